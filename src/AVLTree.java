@@ -1,6 +1,9 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Un arbre AVL est un arbre de recherche binaire auto-équilibré,
@@ -21,6 +24,13 @@ public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
         LEFT_LEFT, LEFT_RIGHT, RIGHT_LEFT, RIGHT_RIGHT
     }
 
+    private enum SetOperation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    // au-dessus de cette hauteur de l'autre arbre, les deux moitiés d'une opération ensembliste sont traitées en parallèle
+    private static final int PARALLEL_SET_HEIGHT = 12;
+
     /**
      * Default constructor.
      */
@@ -43,6 +53,38 @@ public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
         super(creator);
     }
 
+    /**
+     * Construit un arbre AVL parfaitement équilibré à partir d'un tableau trié,
+     * en O(n) et sans rotation. Les hauteurs sont calculées pendant la construction.
+     *
+     * @param values valeurs dans l'ordre croissant.
+     * @return l'arbre construit.
+     */
+    public static <T extends Comparable<T>> AVLTree<T> fromSorted(T[] values) {
+        return fromSorted(values, false);
+    }
+
+    /**
+     * Construit un arbre AVL parfaitement équilibré à partir d'un tableau trié.
+     *
+     * @param values valeurs dans l'ordre croissant.
+     * @param parallel construit les deux moitiés en parallèle (fork-join).
+     * @return l'arbre construit.
+     */
+    public static <T extends Comparable<T>> AVLTree<T> fromSorted(T[] values, boolean parallel) {
+        AVLTree<T> tree = new AVLTree<T>();
+        tree.loadSorted(values, parallel);
+        return tree;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void built(Node<T> node) {
+        ((AVLNode<T>) node).updateHeight();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -67,6 +109,9 @@ public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
 
             nodeAdded = (AVLNode<T>) nodeAdded.parent;
         }
+        // les hauteurs ne changent plus au-dessus, mais les tailles des ancêtres si
+        for (; nodeAdded != null; nodeAdded = (AVLNode<T>) nodeAdded.parent)
+            nodeAdded.updateSize();
         return nodeToReturn;
     }
 
@@ -125,7 +170,17 @@ public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
         Node<T> nodeToRemoved = this.getNode(value);
         if (nodeToRemoved==null)
             return null;
+        return removeNode(nodeToRemoved);
+    }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * L'arbre est rééquilibré du nœud de remplacement jusqu'à la racine, y compris
+     * quand la suppression vient de l'itérateur.
+     */
+    @Override
+    protected Node<T> removeNode(Node<T> nodeToRemoved) {
         // on recherche le noeud de remplacement
         Node<T> replacementNode = this.getReplacementNode(nodeToRemoved);
 
@@ -206,6 +261,436 @@ public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
         }
     }
 
+    /**
+     * k-ième plus petite valeur de l'arbre, en O(log n) grâce à la taille des
+     * sous-arbres gardée dans chaque nœud.
+     *
+     * @param k rang de la valeur, à partir de 0.
+     * @return la valeur de rang k.
+     */
+    public T select(int k) {
+        if (k < 0 || k >= size)
+            throw new IllegalArgumentException("Rank " + k + " is out of bounds for size " + size);
+        AVLNode<T> node = (AVLNode<T>) root;
+        while (true) {
+            int lesserSize = size((AVLNode<T>) node.lesser);
+            if (k < lesserSize) {
+                node = (AVLNode<T>) node.lesser;
+            } else if (k == lesserSize) {
+                return node.id;
+            } else {
+                k -= lesserSize + 1;
+                node = (AVLNode<T>) node.greater;
+            }
+        }
+    }
+
+    /**
+     * Nombre de valeurs strictement inférieures à value, en O(log n). C'est aussi le
+     * rang de la première occurrence de value si elle est dans l'arbre.
+     *
+     * @param value
+     * @return rang de value.
+     */
+    public int rank(T value) {
+        int rank = 0;
+        AVLNode<T> node = (AVLNode<T>) root;
+        while (node != null) {
+            if (node.id.compareTo(value) < 0) {
+                rank += size((AVLNode<T>) node.lesser) + 1;
+                node = (AVLNode<T>) node.greater;
+            } else {
+                node = (AVLNode<T>) node.lesser;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Union ensembliste : ajoute à l'arbre les valeurs de l'autre arbre qu'il ne contient
+     * pas encore. L'autre arbre n'est pas modifié.
+     * <p>
+     * Algorithme par jointure (Blelloch, Ferizovic, Sun, Just Join for Parallel Ordered Sets) :
+     * l'arbre est coupé autour de la racine de l'autre, les deux moitiés sont traitées en
+     * parallèle puis recollées par join. O(m log(n/m + 1)) pour m <= n. Les deux arbres
+     * sont vus comme des ensembles, sans valeurs en double.
+     *
+     * @param other arbre dont les valeurs sont ajoutées.
+     */
+    public void union(AVLTree<T> other) {
+        if (other == this)
+            return;
+        applySetOperation(SetOperation.UNION, other);
+    }
+
+    /**
+     * Intersection ensembliste : ne garde dans l'arbre que les valeurs aussi présentes
+     * dans l'autre arbre. L'autre arbre n'est pas modifié.
+     *
+     * @param other arbre dont les valeurs sont gardées.
+     */
+    public void intersection(AVLTree<T> other) {
+        if (other == this)
+            return;
+        applySetOperation(SetOperation.INTERSECTION, other);
+    }
+
+    /**
+     * Différence ensembliste : retire de l'arbre les valeurs présentes dans l'autre arbre.
+     * L'autre arbre n'est pas modifié.
+     *
+     * @param other arbre dont les valeurs sont retirées.
+     */
+    public void difference(AVLTree<T> other) {
+        if (other == this) {
+            clear();
+            return;
+        }
+        applySetOperation(SetOperation.DIFFERENCE, other);
+    }
+
+    /**
+     * Coupe l'arbre en deux en O(log n) : l'arbre garde les valeurs strictement inférieures
+     * à la clé et les valeurs supérieures ou égales passent dans l'arbre rendu.
+     *
+     * @param key clé de découpage.
+     * @return nouvel arbre des valeurs supérieures ou égales à la clé.
+     */
+    public AVLTree<T> split(T key) {
+        AVLTree<T> right = new AVLTree<T>(creator);
+        if (root == null)
+            return right;
+        Split<T> split = splitAt((AVLNode<T>) root, key);
+        int lesserSize = size(split.lesser);
+        right.replaceContent(split.greater, size - lesserSize);
+        replaceContent(split.lesser, lesserSize);
+        return right;
+    }
+
+    /**
+     * Recolle deux arbres en O(log n) quand toutes les valeurs de left sont inférieures
+     * ou égales à celles de right. Les nœuds de right passent dans left, qui est rendu ;
+     * right est vidé.
+     *
+     * @param left arbre des petites valeurs, reçoit le résultat.
+     * @param right arbre des grandes valeurs, vidé.
+     * @return left.
+     */
+    public static <T extends Comparable<T>> AVLTree<T> join(AVLTree<T> left, AVLTree<T> right) {
+        if (left == right)
+            throw new IllegalArgumentException("Cannot join a tree with itself.");
+        if (left.root != null && right.root != null) {
+            Node<T> greatest = left.root;
+            while (greatest.greater != null)
+                greatest = greatest.greater;
+            Node<T> least = right.root;
+            while (least.lesser != null)
+                least = least.lesser;
+            if (greatest.id.compareTo(least.id) > 0)
+                throw new IllegalArgumentException("Values of the left tree must not be greater than values of the right tree.");
+        }
+        AVLNode<T> joined = join2((AVLNode<T>) left.root, (AVLNode<T>) right.root);
+        left.replaceContent(joined, left.size + right.size);
+        right.replaceContent(null, 0);
+        return left;
+    }
+
+    /**
+     * Découpe le sous-arbre en valeurs strictement inférieures à la clé (lesser) et
+     * valeurs supérieures ou égales (greater). Contrairement à split, les valeurs égales
+     * à la clé peuvent être plusieurs et passent toutes à droite.
+     */
+    private static <T extends Comparable<T>> Split<T> splitAt(AVLNode<T> node, T key) {
+        if (node == null)
+            return new Split<T>(null, null, null);
+        AVLNode<T> lesser = (AVLNode<T>) node.lesser;
+        AVLNode<T> greater = (AVLNode<T>) node.greater;
+        if (node.id.compareTo(key) < 0) {
+            Split<T> split = splitAt(greater, key);
+            return new Split<T>(join(lesser, node, split.lesser), null, split.greater);
+        }
+        Split<T> split = splitAt(lesser, key);
+        return new Split<T>(split.lesser, null, join(split.greater, node, greater));
+    }
+
+    private void applySetOperation(SetOperation operation, AVLTree<T> other) {
+        LongAdder common = new LongAdder();
+        SetTask<T> task = new SetTask<T>(operation, (AVLNode<T>) root, (AVLNode<T>) other.root, creator, common);
+        AVLNode<T> result = ForkJoinPool.commonPool().invoke(task);
+        int newSize;
+        if (operation == SetOperation.UNION)
+            newSize = size + other.size - (int) common.sum();
+        else if (operation == SetOperation.INTERSECTION)
+            newSize = (int) common.sum();
+        else
+            newSize = size - (int) common.sum();
+        replaceContent(result, newSize);
+    }
+
+    /**
+     * Opération ensembliste sur un sous-arbre de cet arbre, dont les nœuds sont réutilisés,
+     * et un sous-arbre de l'autre arbre, qui est seulement lu.
+     */
+    private static class SetTask<T extends Comparable<T>> extends RecursiveTask<AVLNode<T>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SetOperation operation;
+        private final AVLNode<T> node;
+        private final AVLNode<T> other;
+        private final INodeCreator<T> creator;
+        // nombre de valeurs présentes dans les deux arbres
+        private final LongAdder common;
+
+        private SetTask(SetOperation operation, AVLNode<T> node, AVLNode<T> other, INodeCreator<T> creator, LongAdder common) {
+            this.operation = operation;
+            this.node = node;
+            this.other = other;
+            this.creator = creator;
+            this.common = common;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected AVLNode<T> compute() {
+            if (other == null || node == null || other.height <= PARALLEL_SET_HEIGHT)
+                return apply(operation, node, other, creator, common);
+
+            Split<T> split = split(node, other.id);
+            if (split.equal != null)
+                common.increment();
+            SetTask<T> lesserTask = new SetTask<T>(operation, split.lesser, (AVLNode<T>) other.lesser, creator, common);
+            lesserTask.fork();
+            AVLNode<T> greater = new SetTask<T>(operation, split.greater, (AVLNode<T>) other.greater, creator, common).compute();
+            AVLNode<T> lesser = lesserTask.join();
+            return combine(operation, lesser, split.equal, other, greater, creator);
+        }
+    }
+
+    /**
+     * Version séquentielle de SetTask.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> apply(SetOperation operation, AVLNode<T> node, AVLNode<T> other,
+                                                             INodeCreator<T> creator, LongAdder common) {
+        if (other == null)
+            return (operation == SetOperation.INTERSECTION) ? null : node;
+        if (node == null)
+            return (operation == SetOperation.UNION) ? copy(other, creator) : null;
+
+        Split<T> split = split(node, other.id);
+        if (split.equal != null)
+            common.increment();
+        AVLNode<T> lesser = apply(operation, split.lesser, (AVLNode<T>) other.lesser, creator, common);
+        AVLNode<T> greater = apply(operation, split.greater, (AVLNode<T>) other.greater, creator, common);
+        return combine(operation, lesser, split.equal, other, greater, creator);
+    }
+
+    /**
+     * Recolle les résultats des deux moitiés autour de la racine de l'autre arbre.
+     *
+     * @param equal nœud de cet arbre égal à la racine de l'autre, ou NULL.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> combine(SetOperation operation, AVLNode<T> lesser, AVLNode<T> equal,
+                                                               AVLNode<T> other, AVLNode<T> greater, INodeCreator<T> creator) {
+        if (operation == SetOperation.UNION) {
+            AVLNode<T> pivot = equal;
+            if (pivot == null)
+                pivot = (AVLNode<T>) creator.createNewNode(null, other.id);
+            return join(lesser, pivot, greater);
+        } else if (operation == SetOperation.INTERSECTION && equal != null) {
+            return join(lesser, equal, greater);
+        }
+        return join2(lesser, greater);
+    }
+
+    /**
+     * Copie d'un sous-arbre d'un autre arbre.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> copy(AVLNode<T> node, INodeCreator<T> creator) {
+        if (node == null)
+            return null;
+        AVLNode<T> lesser = copy((AVLNode<T>) node.lesser, creator);
+        AVLNode<T> greater = copy((AVLNode<T>) node.greater, creator);
+        return link(lesser, (AVLNode<T>) creator.createNewNode(null, node.id), greater);
+    }
+
+    /**
+     * Résultat d'un découpage : le sous-arbre des valeurs inférieures, le nœud égal à la clé
+     * s'il existe, et le sous-arbre des valeurs supérieures.
+     */
+    private static class Split<T extends Comparable<T>> {
+
+        private final AVLNode<T> lesser;
+        private final AVLNode<T> equal;
+        private final AVLNode<T> greater;
+
+        private Split(AVLNode<T> lesser, AVLNode<T> equal, AVLNode<T> greater) {
+            this.lesser = lesser;
+            this.equal = equal;
+            this.greater = greater;
+        }
+    }
+
+    /**
+     * Découpe le sous-arbre autour de la clé en O(log n), par des jointures en remontant.
+     *
+     * @param node racine du sous-arbre, ses nœuds sont réutilisés.
+     * @param key clé de découpage.
+     * @return les deux sous-arbres et le nœud égal à la clé, détaché.
+     */
+    private static <T extends Comparable<T>> Split<T> split(AVLNode<T> node, T key) {
+        if (node == null)
+            return new Split<T>(null, null, null);
+        AVLNode<T> lesser = (AVLNode<T>) node.lesser;
+        AVLNode<T> greater = (AVLNode<T>) node.greater;
+        int cmp = key.compareTo(node.id);
+        if (cmp == 0)
+            return new Split<T>(lesser, link(null, node, null), greater);
+        if (cmp < 0) {
+            Split<T> split = split(lesser, key);
+            return new Split<T>(split.lesser, split.equal, join(split.greater, node, greater));
+        }
+        Split<T> split = split(greater, key);
+        return new Split<T>(join(lesser, node, split.lesser), split.equal, split.greater);
+    }
+
+    /**
+     * Recolle deux sous-arbres AVL, toutes les valeurs de lesser étant inférieures à celle
+     * du nœud et toutes celles de greater supérieures, en O(|h(lesser) - h(greater)|).
+     *
+     * @return la racine du sous-arbre AVL obtenu.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> join(AVLNode<T> lesser, AVLNode<T> node, AVLNode<T> greater) {
+        int lesserHeight = height(lesser);
+        int greaterHeight = height(greater);
+        if (lesserHeight > greaterHeight + 1)
+            return joinRight(lesser, node, greater);
+        if (greaterHeight > lesserHeight + 1)
+            return joinLeft(lesser, node, greater);
+        return link(lesser, node, greater);
+    }
+
+    /**
+     * Jointure quand lesser est le plus haut : descend le long de sa branche droite
+     * jusqu'à un sous-arbre de la hauteur de greater.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> joinRight(AVLNode<T> lesser, AVLNode<T> node, AVLNode<T> greater) {
+        AVLNode<T> left = (AVLNode<T>) lesser.lesser;
+        AVLNode<T> center = (AVLNode<T>) lesser.greater;
+        if (height(center) <= height(greater) + 1) {
+            AVLNode<T> right = link(center, node, greater);
+            if (right.height <= height(left) + 1)
+                return link(left, lesser, right);
+            // Right-Left (Right rotation, left rotation)
+            return rotateLeftSubtree(link(left, lesser, rotateRightSubtree(right)));
+        }
+        AVLNode<T> right = joinRight(center, node, greater);
+        AVLNode<T> joined = link(left, lesser, right);
+        if (right.height <= height(left) + 1)
+            return joined;
+        // Right-Right (Left rotation)
+        return rotateLeftSubtree(joined);
+    }
+
+    /**
+     * Jointure quand greater est le plus haut : descend le long de sa branche gauche
+     * jusqu'à un sous-arbre de la hauteur de lesser.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> joinLeft(AVLNode<T> lesser, AVLNode<T> node, AVLNode<T> greater) {
+        AVLNode<T> right = (AVLNode<T>) greater.greater;
+        AVLNode<T> center = (AVLNode<T>) greater.lesser;
+        if (height(center) <= height(lesser) + 1) {
+            AVLNode<T> left = link(lesser, node, center);
+            if (left.height <= height(right) + 1)
+                return link(left, greater, right);
+            // Left-Right (Left rotation, right rotation)
+            return rotateRightSubtree(link(rotateLeftSubtree(left), greater, right));
+        }
+        AVLNode<T> left = joinLeft(lesser, node, center);
+        AVLNode<T> joined = link(left, greater, right);
+        if (left.height <= height(right) + 1)
+            return joined;
+        // Left-Left (Right rotation)
+        return rotateRightSubtree(joined);
+    }
+
+    /**
+     * Recolle deux sous-arbres sans nœud intermédiaire : le plus grand nœud de lesser
+     * sert de pivot.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> join2(AVLNode<T> lesser, AVLNode<T> greater) {
+        if (lesser == null)
+            return greater;
+        if (greater == null)
+            return lesser;
+        Split<T> last = splitLast(lesser);
+        return join(last.lesser, last.equal, greater);
+    }
+
+    /**
+     * Détache le plus grand nœud du sous-arbre.
+     *
+     * @return le reste du sous-arbre (lesser) et le plus grand nœud (equal).
+     */
+    private static <T extends Comparable<T>> Split<T> splitLast(AVLNode<T> node) {
+        AVLNode<T> greater = (AVLNode<T>) node.greater;
+        if (greater == null)
+            return new Split<T>((AVLNode<T>) node.lesser, link(null, node, null), null);
+        Split<T> last = splitLast(greater);
+        return new Split<T>(join((AVLNode<T>) node.lesser, node, last.lesser), last.equal, null);
+    }
+
+    /**
+     * Rotation à gauche d'un sous-arbre détaché.
+     *
+     * @return la nouvelle racine du sous-arbre.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> rotateLeftSubtree(AVLNode<T> node) {
+        AVLNode<T> greater = (AVLNode<T>) node.greater;
+        AVLNode<T> greaterGreater = (AVLNode<T>) greater.greater;
+        link((AVLNode<T>) node.lesser, node, (AVLNode<T>) greater.lesser);
+        return link(node, greater, greaterGreater);
+    }
+
+    /**
+     * Rotation à droite d'un sous-arbre détaché.
+     *
+     * @return la nouvelle racine du sous-arbre.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> rotateRightSubtree(AVLNode<T> node) {
+        AVLNode<T> lesser = (AVLNode<T>) node.lesser;
+        AVLNode<T> lesserLesser = (AVLNode<T>) lesser.lesser;
+        link((AVLNode<T>) lesser.greater, node, (AVLNode<T>) node.greater);
+        return link(lesserLesser, lesser, node);
+    }
+
+    /**
+     * Fait du nœud la racine détachée des deux sous-arbres et met à jour sa hauteur.
+     *
+     * @return le nœud.
+     */
+    private static <T extends Comparable<T>> AVLNode<T> link(AVLNode<T> lesser, AVLNode<T> node, AVLNode<T> greater) {
+        node.parent = null;
+        node.lesser = lesser;
+        if (lesser != null)
+            lesser.parent = node;
+        node.greater = greater;
+        if (greater != null)
+            greater.parent = node;
+        node.updateHeight();
+        return node;
+    }
+
+    private static int height(AVLNode<?> node) {
+        return (node == null) ? 0 : node.height;
+    }
+
+    private static int size(AVLNode<?> node) {
+        return (node == null) ? 0 : node.size;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -216,6 +701,8 @@ public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
             return false;
 
         AVLNode<T> avlNode = (AVLNode<T>) node;
+        if (avlNode.size != 1 + size((AVLNode<T>) avlNode.lesser) + size((AVLNode<T>) avlNode.greater))
+            return false;
         int balanceFactor = avlNode.getBalanceFactor();
         if (balanceFactor > 1 || balanceFactor < -1) {
             return false;
@@ -253,6 +740,8 @@ public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
     protected static class AVLNode<T extends Comparable<T>> extends Node<T> {
 
         protected int height = 1;
+        // nombre de nœuds du sous-arbre, pour select et rank
+        protected int size = 1;
 
         /**
          * Constructor for an AVL node
@@ -275,9 +764,18 @@ public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
         }
 
         /**
-         * Met à jour la hauteur de ce noeud en fonction de ses enfants.
+         * Met à jour la taille de ce noeud en fonction de ses enfants.
+         */
+        protected void updateSize() {
+            size = 1 + ((lesser != null) ? ((AVLNode<T>) lesser).size : 0)
+                    + ((greater != null) ? ((AVLNode<T>) greater).size : 0);
+        }
+
+        /**
+         * Met à jour la hauteur et la taille de ce noeud en fonction de ses enfants.
          */
         protected int updateHeight() {
+            updateSize();
             int lesserHeight = 0;
             if (lesser != null) {
                 AVLNode<T> lesserAVLNode = (AVLNode<T>) lesser;
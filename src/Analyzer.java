@@ -1,33 +1,103 @@
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
     Classe utilisée pour faire des statistiques élémentaires
     sur une séquence d'opérations.
+
+    Deux modes :
+    - complet (new Analyzer()) : garde le coût de chaque opération ;
+    - continu (new Analyzer(points)) : mémoire fixe quel que soit le nombre
+      d'opérations, ne garde qu'un échantillon régulier d'au plus points opérations.
+    Dans les deux modes, moyenne et variance sont tenues à jour par l'algorithme
+    de Welford, et les coûts sont comptés dans un histogramme à classes
+    logarithmiques (erreur relative inférieure à 1/HISTOGRAM_HALF) qui donne
+    les percentiles.
  */
 public class Analyzer {
 
     /**
-        Constructeur de la classe analyse
+        Constructeur de la classe analyse, en mode complet.
         Complexité en temps/espace, pire et meilleur cas : O(1)
      */
     public Analyzer() {
-        cost = new ArrayList<Double>();
-        cumulative_cost = new ArrayList<Double>();
-        cumulative_square = 0.;
+        cost = new double[16];
+        cumulative_cost = new double[16];
+        histogram = new long[HISTOGRAM_SIZE];
+    }
+
+    /**
+        Constructeur de la classe analyse, en mode continu.
+        Complexité en temps/espace, pire et meilleur cas : O(points)
+        @param points est le nombre maximal d'opérations gardées pour save_values et plot_values,
+        0 pour n'en garder aucune.
+     */
+    public Analyzer(int points) {
+        if (points < 0)
+            throw new IllegalArgumentException("Number of points must be positive.");
+        histogram = new long[HISTOGRAM_SIZE];
+        // une place de plus pour que l'échantillon garde une taille paire à la décimation
+        sample_position = new long[points + (points & 1)];
+        sample_cost = new double[sample_position.length];
+        sample_cumulative = new double[sample_position.length];
     }
 
     /**
         Ajoute un coût, une valeur à l'analyse.
-        Complexité en temps/espace, pire cas : O(size)
+        Complexité en temps/espace, pire cas : O(size) en mode complet, O(points) en mode continu
         Complexité en temps/espace, meilleur cas : O(1)
         Complexité amortie : O(1)
         @param x est la valeur que l'on souhaite ajouter à l'analyse.
      */
     void append(double  x){
-        cost.add(x);
-        cumulative_cost.add( (!cumulative_cost.isEmpty()) ? cumulative_cost.get(cumulative_cost.size()-1)+x : x);
-        cumulative_square += x*x;
+        // Welford : moyenne et somme des carrés des écarts sans perte de précision
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        squared_deviations += delta * (x - mean);
+        total += x;
+        max = (count == 1) ? x : Math.max(max, x);
+        histogram[bucket(x)]++;
+
+        if (cost != null) {
+            if (count > cost.length) {
+                cost = Arrays.copyOf(cost, 2 * cost.length);
+                cumulative_cost = Arrays.copyOf(cumulative_cost, cost.length);
+            }
+            cost[(int) count - 1] = x;
+            cumulative_cost[(int) count - 1] = total;
+        } else if (sample_position.length > 0 && (count - 1) % sample_stride == 0) {
+            if (sample_size == sample_position.length) {
+                // échantillon plein : on garde une opération sur deux et on double le pas
+                for (int i = 0; i < sample_size / 2; i++) {
+                    sample_position[i] = sample_position[2 * i];
+                    sample_cost[i] = sample_cost[2 * i];
+                    sample_cumulative[i] = sample_cumulative[2 * i];
+                }
+                sample_size /= 2;
+                sample_stride *= 2;
+                if ((count - 1) % sample_stride != 0)
+                    return;
+            }
+            sample_position[sample_size] = count - 1;
+            sample_cost[sample_size] = x;
+            sample_cumulative[sample_size] = total;
+            sample_size++;
+        }
+    }
+
+    /**
+        Renvoie le nombre d'opérations enregistrées dans cette analyse.
+        Complexité en temps/espace, meilleur cas : O(1)
+        @returns le nombre d'opérations enregistrées dans cette analyse.
+     */
+    long get_count(){
+        return count;
     }
 
     /**
@@ -36,17 +106,28 @@ public class Analyzer {
         @returns la somme des coûts enregistrés dans cette analyse.
      */
     double get_total_cost(){
-        return cumulative_cost.get(cumulative_cost.size()-1);
+        if(count == 0)
+            throw new RuntimeException("List is empty");
+        return total;
     }
 
     /**
         Renvoie le coût amorti d'une opération.
+        Disponible seulement en mode complet.
         Complexité en temps/espace, meilleur cas : O(1)
         @param pos est l'indice de l'opération pour laquelle on veut connaître le coût amorti.
         @returns le coût amorti d'une opération.
      */
     double get_amortized_cost(int pos){
-        return (pos > 0)? cumulative_cost.get(pos)/pos : cumulative_cost.get(pos);
+        if(cost == null)
+            throw new IllegalStateException("Per-operation costs are not kept by a streaming Analyzer.");
+        if(pos < 0 || pos >= count)
+            throw new IndexOutOfBoundsException("Index: " + pos + ", Size: " + count);
+        return amortized(pos, cumulative_cost[pos]);
+    }
+
+    private static double amortized(long pos, double cumulative){
+        return (pos > 0)? cumulative/pos : cumulative;
     }
 
     /**
@@ -55,9 +136,9 @@ public class Analyzer {
         @returns la moyenne des coûts de toutes les opérations enregistrées dans l'analyse.
      */
     double get_average_cost(){
-        if(cumulative_cost.isEmpty())
+        if(count == 0)
             throw new RuntimeException("List is empty");
-        return cumulative_cost.get(cumulative_cost.size()-1)/cumulative_cost.size();
+        return mean;
     }
 
     /**
@@ -66,10 +147,9 @@ public class Analyzer {
         @returns la variance des coûts de toutes les opérations enregistrées dans l'analyse.
      */
     double get_variance(){
-        double mean, mean_square;
-        mean = get_average_cost();
-        mean_square = mean * mean;
-        return cumulative_square - mean_square;
+        if(count == 0)
+            throw new RuntimeException("List is empty");
+        return squared_deviations / count;
     }
 
     /**
@@ -82,51 +162,266 @@ public class Analyzer {
     }
 
     /**
-        Sauvegarde la liste des coûts et des coûts amortis dans un fichier.
+        Renvoie le plus grand coût enregistré dans l'analyse.
+        Complexité en temps/espace, meilleur cas : O(1)
+        @returns le plus grand coût enregistré dans l'analyse.
+     */
+    double get_max_cost(){
+        if(count == 0)
+            throw new RuntimeException("List is empty");
+        return max;
+    }
+
+    /**
+        Renvoie le coût sous lequel se trouvent p% des opérations, lu dans l'histogramme :
+        c'est la borne haute de la classe qui contient ce percentile, à moins de 1/HISTOGRAM_HALF près.
+        Complexité en temps/espace, pire cas : O(HISTOGRAM_SIZE)
+        @param p est le percentile voulu, entre 0 et 100 (50 pour la médiane, 99.9 pour p999).
+        @returns le coût du percentile p.
+     */
+    double get_percentile(double p){
+        if(count == 0)
+            throw new RuntimeException("List is empty");
+        if(p < 0 || p > 100)
+            throw new IllegalArgumentException("Percentile must be in [0, 100].");
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank)
+                return Math.min(max, upper_bound(i));
+        }
+        return max;
+    }
+
+    /**
+        Renvoie un résumé d'une ligne : nombre d'opérations, moyenne, écart-type, p50, p99, p999 et maximum.
+        Complexité en temps/espace, pire cas : O(HISTOGRAM_SIZE)
+        @returns le résumé de l'analyse.
+     */
+    String get_summary(){
+        if(count == 0)
+            return "0 opération";
+        return count + " opérations, moyenne " + String.format("%.1f", mean)
+                + ", écart-type " + String.format("%.1f", get_standard_deviation())
+                + ", p50 " + (long) get_percentile(50) + ", p99 " + (long) get_percentile(99)
+                + ", p999 " + (long) get_percentile(99.9) + ", max " + (long) max;
+    }
+
+    /**
+        Sauvegarde la liste des coûts et des coûts amortis dans un fichier, une opération par ligne
+        sous la forme "indice coût coût_amorti".
+        En mode continu, seules les opérations de l'échantillon sont sauvegardées.
         Complexité en temps, meilleur/pire cas : O(size)
         @param path est le chemin du fichier dans lequel la sauvegarde est faite.
      */
     void save_values(String path){
-        int i;
-        File file = new File(path);
-        FileWriter fr = null;
         try {
-            fr = new FileWriter(file);
-            for (i = 0; i < cost.size(); ++i){
-                fr.write(i+" "+cost.get(i)+" "+get_amortized_cost(i)+"\n");
-            }
+            write_text(new FileOutputStream(path), ' ', null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
+    /**
+        Sauvegarde la même liste que save_values au format CSV, avec une ligne d'en-tête.
+        Complexité en temps, meilleur/pire cas : O(size)
+        @param path est le chemin du fichier dans lequel la sauvegarde est faite.
+     */
+    void save_csv(String path){
+        try {
+            write_text(new FileOutputStream(path), ',', "index,cost,amortized_cost");
         } catch (IOException e) {
             e.printStackTrace();
-        }finally{
-            //close resources
+        }
+    }
+
+    /**
+        Sauvegarde la même liste que save_values en binaire little-endian, par une projection
+        du fichier en mémoire : le nombre n d'opérations (long), puis les n indices (long),
+        les n coûts (double) et les n coûts amortis (double). Se relit par exemple avec
+        numpy.fromfile.
+        Complexité en temps, meilleur/pire cas : O(size)
+        @param path est le chemin du fichier dans lequel la sauvegarde est faite.
+     */
+    void save_binary(String path){
+        int rows = rows();
+        try {
+            FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
             try {
-                fr.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+                MappedOutput out = new MappedOutput(channel, 8 + 24L * rows);
+                out.put_long(rows);
+                for (int i = 0; i < rows; ++i)
+                    out.put_long(row_index(i));
+                for (int i = 0; i < rows; ++i)
+                    out.put_double(row_cost(i));
+                for (int i = 0; i < rows; ++i)
+                    out.put_double(row_amortized(i));
+            } finally {
+                channel.close();
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
     /**
         Affiche la liste des coûts et des coûts amortis sur la sortie standard.
+        En mode continu, seules les opérations de l'échantillon sont affichées.
         Complexité en temps, meilleur/pire cas : O(size)
      */
     void plot_values(){
-        int i;
-        for (i = 0; i < cost.size(); ++i){
-            System.out.println(i+" "+cost.get(i)+" "+get_amortized_cost(i));
+        try {
+            write_text(System.out, ' ', null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Nombre de lignes de save_values : toutes les opérations, ou l'échantillon en mode continu.
+    private int rows(){
+        return (cost != null) ? (int) count : sample_size;
+    }
+
+    private long row_index(int i){
+        return (cost != null) ? i : sample_position[i];
+    }
+
+    private double row_cost(int i){
+        return (cost != null) ? cost[i] : sample_cost[i];
+    }
+
+    private double row_amortized(int i){
+        return (cost != null) ? amortized(i, cumulative_cost[i]) : amortized(sample_position[i], sample_cumulative[i]);
+    }
+
+    /**
+        Écrit les lignes dans le flux, ferme le flux sauf s'il s'agit de la sortie standard.
+        Les lignes sont formatées dans un seul StringBuilder, vidé par blocs : ni chaîne
+        ni tableau n'est créé par ligne.
+     */
+    private void write_text(OutputStream stream, char separator, String header) throws IOException {
+        Writer out = new OutputStreamWriter(stream, "US-ASCII");
+        try {
+            StringBuilder line = new StringBuilder(TEXT_BUFFER + 128);
+            char[] chars = new char[TEXT_BUFFER + 128];
+            if (header != null)
+                line.append(header).append('\n');
+            int rows = rows();
+            for (int i = 0; i < rows; ++i){
+                line.append(row_index(i)).append(separator).append(row_cost(i)).append(separator)
+                        .append(row_amortized(i)).append('\n');
+                if (line.length() >= TEXT_BUFFER || i == rows - 1) {
+                    if (chars.length < line.length())
+                        chars = new char[line.length()];
+                    line.getChars(0, line.length(), chars, 0);
+                    out.write(chars, 0, line.length());
+                    line.setLength(0);
+                }
+            }
+            if (line.length() > 0)
+                out.write(line.toString());
+        } finally {
+            if (stream == System.out)
+                out.flush();
+            else
+                out.close();
         }
     }
 
+    /**
+        Écriture séquentielle dans un fichier projeté en mémoire par fenêtres de MAPPED_WINDOW
+        octets, pour les fichiers de plus de 2 Go.
+     */
+    private static class MappedOutput {
+
+        private final FileChannel channel;
+        private final long size;
+        private long position = 0;
+        private MappedByteBuffer buffer = null;
+
+        private MappedOutput(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        private void ensure() throws IOException {
+            if (buffer != null && buffer.hasRemaining())
+                return;
+            if (buffer != null)
+                position += buffer.capacity();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(MAPPED_WINDOW, size - position));
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void put_long(long v) throws IOException {
+            ensure();
+            buffer.putLong(v);
+        }
+
+        private void put_double(double v) throws IOException {
+            ensure();
+            buffer.putDouble(v);
+        }
+    }
 
-    // Coût de chaque opération. Peut représenter du temps ou une autre mesure.
-    private ArrayList<Double> cost;
+    /**
+        Classe de l'histogramme qui contient un coût. Les coûts sont arrondis à l'entier,
+        les coûts négatifs comptent pour 0. Jusqu'à 2 * HISTOGRAM_HALF, une classe par entier,
+        au-delà, HISTOGRAM_HALF classes par puissance de 2.
+     */
+    private static int bucket(double x){
+        long v = (x > 0) ? Math.round(Math.min(x, (double) Long.MAX_VALUE)) : 0;
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(v) - HISTOGRAM_BITS);
+        return shift * HISTOGRAM_HALF + (int) (v >>> shift);
+    }
+
+    /**
+        Plus grand coût entier compté dans la classe i.
+     */
+    private static double upper_bound(int i){
+        if (i < 2 * HISTOGRAM_HALF)
+            return i;
+        int shift = i / HISTOGRAM_HALF - 1;
+        long mantissa = i - (long) shift * HISTOGRAM_HALF;
+        return (double) (((mantissa + 1) << shift) - 1);
+    }
+
+    // Nombre de bits significatifs gardés par l'histogramme.
+    private static final int HISTOGRAM_BITS = 7;
+    private static final int HISTOGRAM_HALF = 1 << (HISTOGRAM_BITS - 1);
+    // Assez de classes pour tous les long positifs.
+    private static final int HISTOGRAM_SIZE = (64 - HISTOGRAM_BITS + 2) * HISTOGRAM_HALF;
+
+    // Taille des blocs de texte écrits par write_text, en caractères.
+    private static final int TEXT_BUFFER = 1 << 16;
+    // Taille des fenêtres de save_binary, multiple de 8 pour qu'aucune valeur ne soit coupée.
+    private static final long MAPPED_WINDOW = 1L << 26;
+
+    // Coût de chaque opération, dans les count premières cases. Peut représenter du temps
+    // ou une autre mesure. null en mode continu.
+    private double[] cost;
     // Coût cumulatif. La case i contient la somme des coûts des i premières opérations.
-    // Permet de calculer le coût amorti d'une opération.
-    private ArrayList<Double> cumulative_cost;
-    // Carré du coût cumulatif. Sert à calculer la variance. On ne garde que la dernière valeur.
-    private double cumulative_square;
+    // Permet de calculer le coût amorti d'une opération. null en mode continu.
+    private double[] cumulative_cost;
+
+    // Nombre d'opérations, somme, moyenne et somme des carrés des écarts à la moyenne (Welford).
+    private long count;
+    private double total;
+    private double mean;
+    private double squared_deviations;
+    private double max;
+    // Nombre d'opérations par classe de coût.
+    private long[] histogram;
+
+    // Échantillon du mode continu : une opération toutes les sample_stride, avec son indice,
+    // son coût et le coût cumulatif à cet indice.
+    private long[] sample_position;
+    private double[] sample_cost;
+    private double[] sample_cumulative;
+    private int sample_size;
+    private long sample_stride = 1;
 
 
 }
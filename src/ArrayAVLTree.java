@@ -0,0 +1,662 @@
+import java.util.Arrays;
+
+import interfaces.ITree;
+
+/**
+ * Arbre AVL sans objets nœuds : chaque nœud est un indice dans des tableaux
+ * parallèles (valeur, parent, fils gauche, fils droit, hauteur). Les indices
+ * libérés par les suppressions sont chaînés dans une liste libre et réutilisés
+ * par les insertions suivantes.
+ * <p>
+ * Les rotations et le rééquilibrage reprennent ceux de {@link BinarySearchTree}
+ * et de {@link AVLTree}, mais sur des indices. Pour un million de valeurs, on
+ * évite ainsi un million d'en-têtes d'objets et de références que le ramasse-miettes
+ * devrait parcourir.
+ * <p>
+ * @see AVLTree
+ */
+@SuppressWarnings("unchecked")
+public class ArrayAVLTree<T extends Comparable<T>> implements ITree<T> {
+
+    private static final int NIL = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private enum Balance {
+        LEFT_LEFT, LEFT_RIGHT, RIGHT_LEFT, RIGHT_RIGHT
+    }
+
+    private Object[] ids;
+    private int[] parent;
+    private int[] lesser;
+    private int[] greater;
+    private int[] height;
+
+    private int root = NIL;
+    private int size = 0;
+    // Tête de la liste libre, chaînée par le tableau greater.
+    private int free = NIL;
+    // Nombre d'emplacements déjà distribués au moins une fois.
+    private int used = 0;
+    private int modifications = 0;
+
+    /**
+     * Default constructor.
+     */
+    public ArrayAVLTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructeur avec une capacité initiale, pour éviter les agrandissements
+     * quand le nombre de valeurs est connu.
+     *
+     * @param capacity nombre de nœuds réservés.
+     */
+    public ArrayAVLTree(int capacity) {
+        if (capacity < 1)
+            capacity = 1;
+        ids = new Object[capacity];
+        parent = new int[capacity];
+        lesser = new int[capacity];
+        greater = new int[capacity];
+        height = new int[capacity];
+    }
+
+    private T id(int node) {
+        return (T) ids[node];
+    }
+
+    /**
+     * Réserve un emplacement, en priorité dans la liste libre.
+     *
+     * @param p parent du nouveau nœud.
+     * @param id valeur du nouveau nœud.
+     * @return indice du nouveau nœud.
+     */
+    private int newNode(int p, T id) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = greater[node];
+        } else {
+            if (used == ids.length)
+                grow();
+            node = used++;
+        }
+        ids[node] = id;
+        parent[node] = p;
+        lesser[node] = NIL;
+        greater[node] = NIL;
+        height[node] = 1;
+        return node;
+    }
+
+    /**
+     * Rend l'emplacement à la liste libre.
+     */
+    private void freeNode(int node) {
+        ids[node] = null;
+        parent[node] = NIL;
+        lesser[node] = NIL;
+        greater[node] = free;
+        free = node;
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1) + 1;
+        ids = Arrays.copyOf(ids, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        lesser = Arrays.copyOf(lesser, capacity);
+        greater = Arrays.copyOf(greater, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(T value) {
+        if (root == NIL) {
+            root = newNode(NIL, value);
+            size++;
+            return true;
+        }
+
+        int node = root;
+        int added;
+        while (true) {
+            if (value.compareTo(id(node)) <= 0) {
+                // Less than or equal to goes left
+                if (lesser[node] == NIL) {
+                    added = newNode(node, value);
+                    lesser[node] = added;
+                    break;
+                }
+                node = lesser[node];
+            } else {
+                // Greater than goes right
+                if (greater[node] == NIL) {
+                    added = newNode(node, value);
+                    greater[node] = added;
+                    break;
+                }
+                node = greater[node];
+            }
+        }
+        size++;
+
+        // on remonte en rééquilibrant tant que la hauteur du sous-arbre change
+        node = parent[added];
+        while (node != NIL) {
+            int h1 = height[node];
+            updateHeight(node);
+            int top = balanceAfterInsert(node);
+            if (height[top] == h1)
+                break;
+            node = parent[top];
+        }
+        return true;
+    }
+
+    /**
+     * Équilibre le sous-arbre selon l'algorithme de post-insertion AVL.
+     *
+     * @param node racine du sous-arbre.
+     * @return la racine du sous-arbre après rotation.
+     */
+    private int balanceAfterInsert(int node) {
+        int balanceFactor = getBalanceFactor(node);
+        if (balanceFactor > 1 || balanceFactor < -1) {
+            int child;
+            Balance balance;
+            if (balanceFactor < 0) {
+                child = lesser[node];
+                balance = (getBalanceFactor(child) < 0) ? Balance.LEFT_LEFT : Balance.LEFT_RIGHT;
+            } else {
+                child = greater[node];
+                balance = (getBalanceFactor(child) < 0) ? Balance.RIGHT_LEFT : Balance.RIGHT_RIGHT;
+            }
+
+            if (balance == Balance.LEFT_RIGHT) {
+                // Left-Right (Left rotation, right rotation)
+                rotateLeft(child);
+                rotateRight(node);
+            } else if (balance == Balance.RIGHT_LEFT) {
+                // Right-Left (Right rotation, left rotation)
+                rotateRight(child);
+                rotateLeft(node);
+            } else if (balance == Balance.LEFT_LEFT) {
+                // Left-Left (Right rotation)
+                rotateRight(node);
+            } else {
+                // Right-Right (Left rotation)
+                rotateLeft(node);
+            }
+            return parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * Équilibre le sous-arbre selon l'algorithme de post-suppression AVL.
+     *
+     * @param node racine du sous-arbre.
+     * @return la racine du sous-arbre après rotation.
+     */
+    private int balanceAfterDelete(int node) {
+        int balanceFactor = getBalanceFactor(node);
+        if (balanceFactor == -2) {
+            int l = lesser[node];
+            if (heightOf(lesser[l]) >= heightOf(greater[l])) {
+                rotateRight(node);
+            } else {
+                rotateLeft(l);
+                rotateRight(node);
+            }
+            return parent[node];
+        } else if (balanceFactor == 2) {
+            int g = greater[node];
+            if (heightOf(greater[g]) >= heightOf(lesser[g])) {
+                rotateLeft(node);
+            } else {
+                rotateRight(g);
+                rotateLeft(node);
+            }
+            return parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * Faire pivoter l'arbre à gauche au niveau du sous-arbre enraciné au nœud.
+     * Les hauteurs des deux nœuds déplacés sont mises à jour.
+     *
+     * @param node Racine de l'arbre à tourner à gauche.
+     */
+    private void rotateLeft(int node) {
+        int p = parent[node];
+        int g = greater[node];
+        int l = lesser[g];
+
+        lesser[g] = node;
+        parent[node] = g;
+
+        greater[node] = l;
+
+        if (l != NIL)
+            parent[l] = node;
+
+        if (p != NIL) {
+            if (node == lesser[p]) {
+                lesser[p] = g;
+            } else if (node == greater[p]) {
+                greater[p] = g;
+            } else {
+                throw new RuntimeException("Yikes! I'm not related to my parent. " + node);
+            }
+            parent[g] = p;
+        } else {
+            root = g;
+            parent[g] = NIL;
+        }
+        updateHeight(node);
+        updateHeight(g);
+    }
+
+    /**
+     * Faire pivoter l'arbre à droite au niveau du sous-arbre enraciné au nœud.
+     * Les hauteurs des deux nœuds déplacés sont mises à jour.
+     *
+     * @param node Racine de l'arbre à tourner à droite.
+     */
+    private void rotateRight(int node) {
+        int p = parent[node];
+        int l = lesser[node];
+        int g = greater[l];
+
+        greater[l] = node;
+        parent[node] = l;
+
+        lesser[node] = g;
+
+        if (g != NIL)
+            parent[g] = node;
+
+        if (p != NIL) {
+            if (node == lesser[p]) {
+                lesser[p] = l;
+            } else if (node == greater[p]) {
+                greater[p] = l;
+            } else {
+                throw new RuntimeException("Yikes! I'm not related to my parent. " + node);
+            }
+            parent[l] = p;
+        } else {
+            root = l;
+            parent[l] = NIL;
+        }
+        updateHeight(node);
+        updateHeight(l);
+    }
+
+    private int heightOf(int node) {
+        return (node != NIL) ? height[node] : 0;
+    }
+
+    private void updateHeight(int node) {
+        int lesserHeight = heightOf(lesser[node]);
+        int greaterHeight = heightOf(greater[node]);
+        height[node] = ((lesserHeight > greaterHeight) ? lesserHeight : greaterHeight) + 1;
+    }
+
+    /**
+     * @return facteur d'équilibre du nœud, négatif si la branche inférieure est plus longue.
+     */
+    private int getBalanceFactor(int node) {
+        return heightOf(greater[node]) - heightOf(lesser[node]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(T value) {
+        return (getNode(value) != NIL);
+    }
+
+    /**
+     * Localisez T dans l'arbre.
+     *
+     * @param value
+     * @return indice de la première occurrence de la valeur ou NIL si non trouvée.
+     */
+    private int getNode(T value) {
+        int node = root;
+        while (node != NIL) {
+            int cmp = value.compareTo(id(node));
+            if (cmp < 0)
+                node = lesser[node];
+            else if (cmp > 0)
+                node = greater[node];
+            else
+                return node;
+        }
+        return NIL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T remove(T value) {
+        int node = getNode(value);
+        if (node == NIL)
+            return null;
+        T removed = id(node);
+        removeNode(node);
+        return removed;
+    }
+
+    /**
+     * Retire le nœud, comme {@link AVLTree} : remplacement par le plus grand
+     * du sous-arbre gauche ou le plus petit du sous-arbre droit, puis
+     * rééquilibrage jusqu'à la racine.
+     *
+     * @param nodeToRemoved indice du nœud à retirer.
+     */
+    private void removeNode(int nodeToRemoved) {
+        int replacementNode = getReplacementNode(nodeToRemoved);
+
+        // on cherche le parent du noeud précedent afin d'équilibrer l'arbre
+        int nodeToRefactor = NIL;
+        if (replacementNode != NIL)
+            nodeToRefactor = parent[replacementNode];
+        if (nodeToRefactor == NIL)
+            nodeToRefactor = parent[nodeToRemoved];
+        if (nodeToRefactor == nodeToRemoved)
+            nodeToRefactor = replacementNode;
+
+        replaceNodeWithNode(nodeToRemoved, replacementNode);
+        freeNode(nodeToRemoved);
+
+        // on rééquilibre jusqu'à la racine
+        while (nodeToRefactor != NIL) {
+            updateHeight(nodeToRefactor);
+            nodeToRefactor = parent[balanceAfterDelete(nodeToRefactor)];
+        }
+    }
+
+    /**
+     * @return indice du nœud qui peut remplacer nodeToRemoved, ou NIL si c'est une feuille.
+     */
+    private int getReplacementNode(int nodeToRemoved) {
+        int l = lesser[nodeToRemoved];
+        int g = greater[nodeToRemoved];
+        if (l != NIL && g != NIL) {
+            // Deux enfants, on alterne entre le plus grand à gauche et le plus petit à droite
+            int replacement;
+            if (modifications % 2 != 0) {
+                replacement = l;
+                while (greater[replacement] != NIL)
+                    replacement = greater[replacement];
+            } else {
+                replacement = g;
+                while (lesser[replacement] != NIL)
+                    replacement = lesser[replacement];
+            }
+            modifications++;
+            return replacement;
+        }
+        return (l != NIL) ? l : g;
+    }
+
+    /**
+     * Remplace nodeToRemoved par replacementNode dans l'arborescence.
+     */
+    private void replaceNodeWithNode(int nodeToRemoved, int replacementNode) {
+        if (replacementNode != NIL) {
+            // Sauvegarde pour plus tard
+            int replacementNodeLesser = lesser[replacementNode];
+            int replacementNodeGreater = greater[replacementNode];
+
+            // Remplace les branches de replacementNode par celles de nodeToRemoved
+            int nodeToRemoveLesser = lesser[nodeToRemoved];
+            if (nodeToRemoveLesser != NIL && nodeToRemoveLesser != replacementNode) {
+                lesser[replacementNode] = nodeToRemoveLesser;
+                parent[nodeToRemoveLesser] = replacementNode;
+            }
+            int nodeToRemoveGreater = greater[nodeToRemoved];
+            if (nodeToRemoveGreater != NIL && nodeToRemoveGreater != replacementNode) {
+                greater[replacementNode] = nodeToRemoveGreater;
+                parent[nodeToRemoveGreater] = replacementNode;
+            }
+
+            // Supprime le lien du parent du nœud de remplacement vers le remplacement
+            int replacementParent = parent[replacementNode];
+            if (replacementParent != NIL && replacementParent != nodeToRemoved) {
+                if (lesser[replacementParent] == replacementNode) {
+                    lesser[replacementParent] = replacementNodeGreater;
+                    if (replacementNodeGreater != NIL)
+                        parent[replacementNodeGreater] = replacementParent;
+                } else if (greater[replacementParent] == replacementNode) {
+                    greater[replacementParent] = replacementNodeLesser;
+                    if (replacementNodeLesser != NIL)
+                        parent[replacementNodeLesser] = replacementParent;
+                }
+            }
+        }
+
+        // Met à jour le lien du parent de nodeToRemoved vers replacementNode
+        int p = parent[nodeToRemoved];
+        if (p == NIL) {
+            root = replacementNode;
+            if (root != NIL)
+                parent[root] = NIL;
+        } else {
+            if (lesser[p] == nodeToRemoved)
+                lesser[p] = replacementNode;
+            else
+                greater[p] = replacementNode;
+            if (replacementNode != NIL)
+                parent[replacementNode] = p;
+        }
+        size--;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(ids, 0, used, null);
+        root = NIL;
+        size = 0;
+        free = NIL;
+        used = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean validate() {
+        if (root == NIL) return (size == 0);
+        if (parent[root] != NIL) return false;
+        return validateNode(root);
+    }
+
+    /**
+     * Validation du nœud selon les invariants de l'arbre de recherche binaire
+     * et de l'arbre AVL (hauteur exacte et facteur d'équilibre).
+     */
+    private boolean validateNode(int node) {
+        int l = lesser[node];
+        int g = greater[node];
+        if (l != NIL) {
+            if (parent[l] != node || id(l).compareTo(id(node)) > 0 || !validateNode(l))
+                return false;
+        }
+        if (g != NIL) {
+            if (parent[g] != node || id(g).compareTo(id(node)) <= 0 || !validateNode(g))
+                return false;
+        }
+        int balanceFactor = getBalanceFactor(node);
+        if (balanceFactor > 1 || balanceFactor < -1)
+            return false;
+        return height[node] == Math.max(heightOf(l), heightOf(g)) + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public java.util.Collection<T> toCollection() {
+        return (new JavaCompatibleArrayAVLTree<T>(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        if (root == NIL)
+            return "Tree has no nodes.";
+        return getString(root, "", true);
+    }
+
+    private String getString(int node, String prefix, boolean isTail) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(prefix + (isTail ? "└── " : "├── ") + "(" + height[node] + ") " + id(node) + "\n");
+        int l = lesser[node];
+        int g = greater[node];
+        if (l != NIL)
+            builder.append(getString(l, prefix + (isTail ? "    " : "│   "), g == NIL));
+        if (g != NIL)
+            builder.append(getString(g, prefix + (isTail ? "    " : "│   "), true));
+        return builder.toString();
+    }
+
+    private static class JavaCompatibleArrayAVLTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
+
+        protected ArrayAVLTree<T> tree = null;
+
+        public JavaCompatibleArrayAVLTree(ArrayAVLTree<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(T value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(Object value) {
+            return (tree.remove((T)value)!=null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(Object value) {
+            return tree.contains((T)value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public java.util.Iterator<T> iterator() {
+            return (new ArrayAVLTreeIterator<T>(this.tree));
+        }
+
+        /**
+         * Parcours infixe par les liens parents, sans pile.
+         */
+        private static class ArrayAVLTreeIterator<C extends Comparable<C>> implements java.util.Iterator<C> {
+
+            private ArrayAVLTree<C> tree = null;
+            private int last = NIL;
+            private int next = NIL;
+
+            protected ArrayAVLTreeIterator(ArrayAVLTree<C> tree) {
+                this.tree = tree;
+                int node = tree.root;
+                if (node != NIL) {
+                    while (tree.lesser[node] != NIL)
+                        node = tree.lesser[node];
+                }
+                next = node;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                return (next != NIL);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public C next() {
+                if (next == NIL)
+                    throw new java.util.NoSuchElementException();
+                last = next;
+                next = successor(next);
+                return tree.id(last);
+            }
+
+            private int successor(int node) {
+                if (tree.greater[node] != NIL) {
+                    node = tree.greater[node];
+                    while (tree.lesser[node] != NIL)
+                        node = tree.lesser[node];
+                    return node;
+                }
+                int p = tree.parent[node];
+                while (p != NIL && node == tree.greater[p]) {
+                    node = p;
+                    p = tree.parent[p];
+                }
+                return p;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void remove() {
+                if (last == NIL)
+                    throw new IllegalStateException();
+                // les rotations conservent l'ordre infixe, next reste le successeur
+                tree.removeNode(last);
+                last = NIL;
+            }
+        }
+    }
+}
@@ -0,0 +1,745 @@
+import java.util.Arrays;
+import java.util.Iterator;
+
+import interfaces.ITree;
+
+/**
+ * Arbre B+ : toutes les valeurs sont rangées dans les feuilles, chaînées dans l'ordre
+ * croissant, et les nœuds internes ne gardent que des clés de séparation. Un parcours
+ * complet ou un intervalle suit la chaîne des feuilles, sans pile ni retour vers les
+ * parents.
+ * <p>
+ * Les nœuds internes ne portent que des séparateurs ; par défaut ils ont deux fois plus
+ * de clés que les feuilles pour le même ordre, ce qui réduit la hauteur de l'arbre.
+ * <p>
+ * @see <a href="https://en.wikipedia.org/wiki/B%2B_tree">B+ Tree (Wikipedia)</a>
+ * <br>
+ */
+@SuppressWarnings("unchecked")
+public class BPlusTree<T extends Comparable<T>> implements ITree<T> {
+
+    private final int minLeafKeySize;
+    private final int maxLeafKeySize;
+    private final int minInternalKeySize;
+    private final int maxInternalKeySize;
+
+    private Node<T> root = null;
+    // première feuille de la chaîne, elle reste la même tant que l'arbre n'est pas vidé
+    private Node<T> first = null;
+    private int size = 0;
+
+    /**
+     * Constructeur pour arbre B+ dont les feuilles ont de 1 à 2 clés.
+     */
+    public BPlusTree() {
+        this(1);
+    }
+
+    /**
+     * Constructeur pour l'arbre B+ de l'ordre donné : nombre minimum de clés dans une
+     * feuille non racine. Les nœuds internes ont l'ordre 2 * order.
+     *
+     * @param order
+     */
+    public BPlusTree(int order) {
+        this(order, 2 * order);
+    }
+
+    /**
+     * Constructeur pour l'arbre B+ avec un ordre propre aux nœuds internes.
+     *
+     * @param order nombre minimum de clés dans une feuille non racine.
+     * @param internalOrder nombre minimum de clés dans un nœud interne non racine.
+     */
+    public BPlusTree(int order, int internalOrder) {
+        if (order < 1 || internalOrder < 1)
+            throw new IllegalArgumentException("Orders must be at least 1.");
+        this.minLeafKeySize = order;
+        this.maxLeafKeySize = 2 * order;
+        this.minInternalKeySize = internalOrder;
+        this.maxInternalKeySize = 2 * internalOrder;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(T value) {
+        if (root == null) {
+            root = new Node<T>(maxLeafKeySize, true);
+            first = root;
+        }
+        // une valeur égale à un séparateur descend à droite de celui-ci
+        Node<T> leaf = root;
+        while (!leaf.isLeaf())
+            leaf = leaf.getChild(leaf.insertionIndex(value));
+        leaf.insertKey(leaf.insertionIndex(value), value);
+        size++;
+        if (leaf.numberOfKeys() > maxLeafKeySize)
+            splitLeaf(leaf);
+        return true;
+    }
+
+    /**
+     * Sépare une feuille trop pleine : la moitié droite part dans une nouvelle feuille,
+     * chaînée après elle, et sa première clé est copiée dans le parent.
+     *
+     * @param leaf
+     */
+    private void splitLeaf(Node<T> leaf) {
+        Node<T> right = new Node<T>(maxLeafKeySize, true);
+        leaf.moveTail(leaf.numberOfKeys() / 2, 0, right);
+        right.next = leaf.next;
+        leaf.next = right;
+        insertInParent(leaf, right.getKey(0), right);
+    }
+
+    /**
+     * Sépare un nœud interne trop plein : la clé médiane monte dans le parent.
+     *
+     * @param node
+     */
+    private void splitInternal(Node<T> node) {
+        Node<T> right = new Node<T>(maxInternalKeySize, false);
+        int medianIndex = node.numberOfKeys() / 2;
+        T medianValue = node.getKey(medianIndex);
+        node.moveTail(medianIndex + 1, medianIndex + 1, right);
+        node.removeKey(medianIndex);
+        insertInParent(node, medianValue, right);
+    }
+
+    /**
+     * Ajoute right juste après left dans leur parent, séparé par key.
+     */
+    private void insertInParent(Node<T> left, T key, Node<T> right) {
+        Node<T> parent = left.parent;
+        if (parent == null) {
+            // nouvelle racine, la hauteur de l'arbre est augmentée
+            Node<T> newRoot = new Node<T>(maxInternalKeySize, false);
+            newRoot.insertKey(0, key);
+            newRoot.insertChild(0, left);
+            newRoot.insertChild(1, right);
+            root = newRoot;
+            return;
+        }
+        int index = parent.indexOf(left);
+        parent.insertKey(index, key);
+        parent.insertChild(index + 1, right);
+        if (parent.numberOfKeys() > maxInternalKeySize)
+            splitInternal(parent);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T remove(T value) {
+        Node<T> leaf = getLeaf(value);
+        if (leaf == null)
+            return null;
+        int index = leaf.firstIndex(value);
+        if (leaf.getKey(index).compareTo(value) != 0)
+            return null;
+
+        T removed = leaf.removeKey(index);
+        size--;
+        if (leaf == root) {
+            if (leaf.numberOfKeys() == 0) {
+                root = null;
+                first = null;
+            }
+        } else if (leaf.numberOfKeys() < minLeafKeySize) {
+            rebalance(leaf);
+        }
+        return removed;
+    }
+
+    /**
+     * Complète un nœud non racine qui n'a plus assez de clés : emprunt à un voisin de
+     * même parent, sinon fusion avec lui, ce qui retire un séparateur du parent.
+     *
+     * @param node
+     */
+    private void rebalance(Node<T> node) {
+        Node<T> parent = node.parent;
+        int index = parent.indexOf(node);
+        Node<T> left = (index > 0) ? parent.getChild(index - 1) : null;
+        Node<T> right = (index < parent.numberOfChildren() - 1) ? parent.getChild(index + 1) : null;
+        int minKeySize = node.isLeaf() ? minLeafKeySize : minInternalKeySize;
+
+        if (right != null && right.numberOfKeys() > minKeySize) {
+            borrowFromRight(node, right, index);
+            return;
+        }
+        if (left != null && left.numberOfKeys() > minKeySize) {
+            borrowFromLeft(node, left, index - 1);
+            return;
+        }
+        // le nœud de droite est toujours fusionné dans celui de gauche, first ne change pas
+        if (right != null)
+            merge(node, right, index);
+        else
+            merge(left, node, index - 1);
+
+        if (parent == root) {
+            if (parent.numberOfKeys() == 0) {
+                // la racine n'a plus qu'un enfant, la hauteur de l'arbre diminue
+                root = parent.getChild(0);
+                root.parent = null;
+            }
+        } else if (parent.numberOfKeys() < minInternalKeySize) {
+            rebalance(parent);
+        }
+    }
+
+    /**
+     * @param separatorIndex indice, dans le parent, du séparateur entre node et right.
+     */
+    private void borrowFromRight(Node<T> node, Node<T> right, int separatorIndex) {
+        Node<T> parent = node.parent;
+        if (node.isLeaf()) {
+            node.insertKey(node.numberOfKeys(), right.removeKey(0));
+            parent.keys[separatorIndex] = right.getKey(0);
+        } else {
+            node.insertKey(node.numberOfKeys(), parent.getKey(separatorIndex));
+            node.insertChild(node.numberOfChildren(), right.removeChild(0));
+            parent.keys[separatorIndex] = right.removeKey(0);
+        }
+    }
+
+    /**
+     * @param separatorIndex indice, dans le parent, du séparateur entre left et node.
+     */
+    private void borrowFromLeft(Node<T> node, Node<T> left, int separatorIndex) {
+        Node<T> parent = node.parent;
+        if (node.isLeaf()) {
+            node.insertKey(0, left.removeKey(left.numberOfKeys() - 1));
+            parent.keys[separatorIndex] = node.getKey(0);
+        } else {
+            node.insertKey(0, parent.getKey(separatorIndex));
+            node.insertChild(0, left.removeChild(left.numberOfChildren() - 1));
+            parent.keys[separatorIndex] = left.removeKey(left.numberOfKeys() - 1);
+        }
+    }
+
+    /**
+     * Fusionne right dans left, son voisin de gauche, et retire leur séparateur du parent.
+     *
+     * @param separatorIndex indice, dans le parent, du séparateur entre left et right.
+     */
+    private void merge(Node<T> left, Node<T> right, int separatorIndex) {
+        Node<T> parent = left.parent;
+        T separator = parent.removeKey(separatorIndex);
+        parent.removeChild(separatorIndex + 1);
+        if (left.isLeaf()) {
+            left.next = right.next;
+        } else {
+            // le séparateur redescend entre les enfants des deux nœuds
+            left.insertKey(left.numberOfKeys(), separator);
+            for (int i = 0; i < right.numberOfChildren(); i++)
+                left.insertChild(left.numberOfChildren(), right.getChild(i));
+        }
+        for (int i = 0; i < right.numberOfKeys(); i++)
+            left.insertKey(left.numberOfKeys(), right.getKey(i));
+    }
+
+    /**
+     * Feuille qui contient la première valeur supérieure ou égale à value.
+     * <p>
+     * Les valeurs égales à un séparateur peuvent être des deux côtés, la descente suit
+     * donc le premier séparateur supérieur ou égal ; si la feuille atteinte n'a que des
+     * valeurs plus petites, la suivante commence par la valeur cherchée.
+     *
+     * @param value
+     * @return la feuille, ou null si toutes les valeurs sont plus petites.
+     */
+    private Node<T> getLeaf(T value) {
+        if (root == null)
+            return null;
+        Node<T> node = root;
+        while (!node.isLeaf())
+            node = node.getChild(node.firstIndex(value));
+        if (node.firstIndex(value) == node.numberOfKeys())
+            node = node.next;
+        return node;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(T value) {
+        Node<T> leaf = getLeaf(value);
+        return leaf != null && leaf.getKey(leaf.firstIndex(value)).compareTo(value) == 0;
+    }
+
+    /**
+     * Valeurs v telles que from <= v < to, dans l'ordre croissant, en O(log n + k).
+     *
+     * @param from borne inférieure incluse.
+     * @param to borne supérieure exclue.
+     * @return liste des valeurs de l'intervalle.
+     */
+    public java.util.List<T> range(T from, T to) {
+        java.util.List<T> values = new java.util.ArrayList<T>();
+        Node<T> leaf = getLeaf(from);
+        int index = (leaf != null) ? leaf.firstIndex(from) : 0;
+        for (; leaf != null; leaf = leaf.next, index = 0) {
+            for (; index < leaf.numberOfKeys(); index++) {
+                T value = leaf.getKey(index);
+                if (value.compareTo(to) >= 0)
+                    return values;
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Curseur paresseux qui se place en O(log n) sur la première valeur supérieure ou
+     * égale à from, puis suit la chaîne des feuilles. L'arbre ne doit pas être modifié
+     * pendant le parcours, sauf par le remove() du curseur.
+     *
+     * @param from borne inférieure incluse.
+     * @return itérateur sur les valeurs supérieures ou égales à from.
+     */
+    public Iterator<T> cursor(T from) {
+        Node<T> leaf = getLeaf(from);
+        return new BPlusTreeIterator<T>(this, leaf, (leaf != null) ? leaf.firstIndex(from) : 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        root = null;
+        first = null;
+        size = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Vérifie aussi que la chaîne des feuilles les contient toutes, dans l'ordre.
+     */
+    @Override
+    public boolean validate() {
+        if (root == null)
+            return size == 0 && first == null;
+        if (root.parent != null)
+            return false;
+        int height = 1;
+        for (Node<T> node = root; !node.isLeaf(); node = node.getChild(0))
+            height++;
+        Node<T>[] expectedLeaf = new Node[] { first };
+        int[] count = new int[1];
+        if (!validateNode(root, null, null, height, expectedLeaf, count))
+            return false;
+        return expectedLeaf[0] == null && count[0] == size;
+    }
+
+    /**
+     * Validation du nœud selon les invariants de l'arbre B+.
+     *
+     * @param lower borne inférieure des valeurs du sous-arbre, null si aucune.
+     * @param upper borne supérieure des valeurs du sous-arbre, null si aucune.
+     * @param height nombre de niveaux restant jusqu'aux feuilles, nœud compris.
+     * @param expectedLeaf prochaine feuille attendue dans la chaîne.
+     * @param count nombre de valeurs vues dans les feuilles.
+     * @return Vrai si valide.
+     */
+    private boolean validateNode(Node<T> node, T lower, T upper, int height, Node<T>[] expectedLeaf, int[] count) {
+        int keySize = node.numberOfKeys();
+        for (int i = 0; i < keySize; i++) {
+            T key = node.getKey(i);
+            if (i > 0 && node.getKey(i - 1).compareTo(key) > 0)
+                return false;
+            if ((lower != null && key.compareTo(lower) < 0) || (upper != null && key.compareTo(upper) > 0))
+                return false;
+        }
+        if (node.isLeaf()) {
+            if (height != 1 || node != expectedLeaf[0])
+                return false;
+            if (node != root && (keySize < minLeafKeySize || keySize > maxLeafKeySize))
+                return false;
+            expectedLeaf[0] = node.next;
+            count[0] += keySize;
+            return true;
+        }
+
+        if (keySize > maxInternalKeySize || (node != root && keySize < minInternalKeySize))
+            return false;
+        if (keySize < 1 || node.numberOfChildren() != keySize + 1)
+            return false;
+        for (int i = 0; i <= keySize; i++) {
+            Node<T> child = node.getChild(i);
+            if (child.parent != node)
+                return false;
+            T childLower = (i == 0) ? lower : node.getKey(i - 1);
+            T childUpper = (i == keySize) ? upper : node.getKey(i);
+            if (!validateNode(child, childLower, childUpper, height - 1, expectedLeaf, count))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Suit la chaîne des feuilles, sans allocation.
+     */
+    @Override
+    public void forEach(java.util.function.Consumer<? super T> action) {
+        for (Node<T> leaf = first; leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.numberOfKeys(); i++)
+                action.accept(leaf.getKey(i));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public java.util.Collection<T> toCollection() {
+        return (new JavaCompatibleBPlusTree<T>(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return TreePrinter.getString(this);
+    }
+
+    private static class Node<T extends Comparable<T>> {
+
+        private T[] keys = null;
+        private int keysSize = 0;
+        // null pour une feuille
+        private Node<T>[] children = null;
+        private int childrenSize = 0;
+
+        private Node<T> parent = null;
+        // feuille suivante dans l'ordre croissant, pour les feuilles seulement
+        private Node<T> next = null;
+
+        private Node(int maxKeySize, boolean leaf) {
+            this.keys = (T[]) new Comparable[maxKeySize + 1];
+            if (!leaf)
+                this.children = new Node[maxKeySize + 2];
+        }
+
+        private boolean isLeaf() {
+            return children == null;
+        }
+
+        private T getKey(int index) {
+            return keys[index];
+        }
+
+        private int numberOfKeys() {
+            return keysSize;
+        }
+
+        /**
+         * Recherche dichotomique de la première clé supérieure ou égale à la valeur.
+         *
+         * @param value
+         * @return nombre de clés strictement inférieures à la valeur.
+         */
+        private int firstIndex(T value) {
+            int low = 0;
+            int high = keysSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(value) < 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * Recherche dichotomique de l'emplacement d'insertion de la valeur.
+         *
+         * @param value
+         * @return indice de la première clé strictement supérieure à la valeur.
+         */
+        private int insertionIndex(T value) {
+            int low = 0;
+            int high = keysSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(value) <= 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        private void insertKey(int index, T value) {
+            // shift the greater keys up
+            System.arraycopy(keys, index, keys, index + 1, keysSize - index);
+            keys[index] = value;
+            keysSize++;
+        }
+
+        private T removeKey(int index) {
+            T value = keys[index];
+            // shift the rest of the keys down
+            System.arraycopy(keys, index + 1, keys, index, keysSize - index - 1);
+            keysSize--;
+            keys[keysSize] = null;
+            return value;
+        }
+
+        private Node<T> getChild(int index) {
+            return children[index];
+        }
+
+        private int numberOfChildren() {
+            return childrenSize;
+        }
+
+        private int indexOf(Node<T> child) {
+            for (int i = 0; i < childrenSize; i++) {
+                if (children[i] == child)
+                    return i;
+            }
+            return -1;
+        }
+
+        private void insertChild(int index, Node<T> child) {
+            child.parent = this;
+            // shift the following children up
+            System.arraycopy(children, index, children, index + 1, childrenSize - index);
+            children[index] = child;
+            childrenSize++;
+        }
+
+        private Node<T> removeChild(int index) {
+            Node<T> child = children[index];
+            // shift the rest of the children down
+            System.arraycopy(children, index + 1, children, index, childrenSize - index - 1);
+            childrenSize--;
+            children[childrenSize] = null;
+            return child;
+        }
+
+        /**
+         * Déplace les clés à partir de keyIndex et les enfants à partir de childIndex
+         * dans le nœud vide right.
+         */
+        private void moveTail(int keyIndex, int childIndex, Node<T> right) {
+            int numberOfKeys = keysSize - keyIndex;
+            System.arraycopy(keys, keyIndex, right.keys, 0, numberOfKeys);
+            right.keysSize = numberOfKeys;
+            Arrays.fill(keys, keyIndex, keysSize, null);
+            keysSize = keyIndex;
+            if (children != null) {
+                int numberOfChildren = childrenSize - childIndex;
+                for (int i = 0; i < numberOfChildren; i++) {
+                    Node<T> child = children[childIndex + i];
+                    child.parent = right;
+                    right.children[i] = child;
+                }
+                right.childrenSize = numberOfChildren;
+                Arrays.fill(children, childIndex, childrenSize, null);
+                childrenSize = childIndex;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(isLeaf() ? "leaf=[" : "keys=[");
+            for (int i = 0; i < keysSize; i++) {
+                builder.append(keys[i]);
+                if (i < keysSize - 1)
+                    builder.append(", ");
+            }
+            builder.append("]");
+            if (parent != null) {
+                builder.append(" parent=[");
+                for (int i = 0; i < parent.keysSize; i++) {
+                    builder.append(parent.keys[i]);
+                    if (i < parent.keysSize - 1)
+                        builder.append(", ");
+                }
+                builder.append("]");
+            }
+            builder.append(" children=").append(childrenSize);
+            return builder.toString();
+        }
+    }
+
+    private static class TreePrinter {
+
+        public static <T extends Comparable<T>> String getString(BPlusTree<T> tree) {
+            if (tree.root == null) return "Tree has no nodes.";
+            return getString(tree.root, "", true);
+        }
+
+        private static <T extends Comparable<T>> String getString(Node<T> node, String prefix, boolean isTail) {
+            StringBuilder builder = new StringBuilder();
+
+            builder.append(prefix).append((isTail ? "└── " : "├── "));
+            for (int i = 0; i < node.numberOfKeys(); i++) {
+                T value = node.getKey(i);
+                builder.append(value);
+                if (i < node.numberOfKeys() - 1)
+                    builder.append(", ");
+            }
+            builder.append("\n");
+
+            if (!node.isLeaf()) {
+                for (int i = 0; i < node.numberOfChildren() - 1; i++) {
+                    Node<T> obj = node.getChild(i);
+                    builder.append(getString(obj, prefix + (isTail ? "    " : "│   "), false));
+                }
+                if (node.numberOfChildren() >= 1) {
+                    Node<T> obj = node.getChild(node.numberOfChildren() - 1);
+                    builder.append(getString(obj, prefix + (isTail ? "    " : "│   "), true));
+                }
+            }
+
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Parcours de la chaîne des feuilles à partir d'une position donnée.
+     */
+    private static class BPlusTreeIterator<C extends Comparable<C>> implements Iterator<C> {
+
+        private BPlusTree<C> tree = null;
+        private Node<C> leaf = null;
+        private int index = 0;
+        // dernière valeur rendue et nombre de valeurs égales rendues à la suite
+        private C lastValue = null;
+        private int equalValues = 0;
+        private boolean removable = false;
+
+        private BPlusTreeIterator(BPlusTree<C> tree, Node<C> leaf, int index) {
+            this.tree = tree;
+            this.leaf = leaf;
+            this.index = index;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public C next() {
+            if (leaf == null)
+                throw new java.util.NoSuchElementException();
+            C value = leaf.getKey(index++);
+            if (index == leaf.numberOfKeys()) {
+                leaf = leaf.next;
+                index = 0;
+            }
+            if (lastValue != null && lastValue.compareTo(value) == 0)
+                equalValues++;
+            else
+                equalValues = 1;
+            lastValue = value;
+            removable = true;
+            return value;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Les emprunts et fusions peuvent déplacer les valeurs suivantes : le parcours
+         * repart de la première valeur égale à celle retirée et saute celles déjà rendues.
+         */
+        @Override
+        public void remove() {
+            if (!removable)
+                throw new IllegalStateException();
+            tree.remove(lastValue);
+            removable = false;
+            equalValues--;
+            leaf = tree.getLeaf(lastValue);
+            index = (leaf != null) ? leaf.firstIndex(lastValue) : 0;
+            for (int i = 0; i < equalValues && leaf != null; i++) {
+                if (++index == leaf.numberOfKeys()) {
+                    leaf = leaf.next;
+                    index = 0;
+                }
+            }
+        }
+    }
+
+    public static class JavaCompatibleBPlusTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
+
+        private BPlusTree<T> tree = null;
+
+        public JavaCompatibleBPlusTree(BPlusTree<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(T value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(Object value) {
+            return (tree.remove((T)value)!=null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(Object value) {
+            return tree.contains((T)value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public java.util.Iterator<T> iterator() {
+            return (new BPlusTreeIterator<T>(this.tree, this.tree.first, 0));
+        }
+    }
+}
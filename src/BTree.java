@@ -1,7 +1,5 @@
-import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.Deque;
+import java.util.Iterator;
 
 import interfaces.ITree;
 
@@ -29,6 +27,9 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
     private Node<T> root = null;
     private int size = 0;
 
+    // compteurs de l'arbre, null tant que enableStats() n'a pas été appelé
+    private TreeStats.Recorder stats = null;
+
     /**
      * Constructeur pour B-arbre qui par défaut est un B-arbre 2-3.
      */
@@ -47,19 +48,110 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
         this.maxChildrenSize = maxKeySize + 1;
     }
 
+    /**
+     * Construit un arbre B de bas en haut à partir d'une suite de valeurs, en O(n)
+     * si elle est déjà triée. Une suite non triée est d'abord triée en parallèle.
+     * Chaque nœud reçoit environ fillFactor * 2 * order clés, dans la limite des
+     * invariants de l'arbre.
+     *
+     * @param values valeurs à charger, de préférence dans l'ordre croissant.
+     * @param order nombre minimum de clés dans un nœud non racine.
+     * @param fillFactor taux de remplissage visé des nœuds, entre 0 et 1.
+     * @return l'arbre construit.
+     */
+    public static <T extends Comparable<T>> BTree<T> fromSorted(Iterator<T> values, int order, double fillFactor) {
+        BTree<T> tree = new BTree<T>(order);
+        T[] keys = (T[]) new Comparable[16];
+        int count = 0;
+        boolean sorted = true;
+        while (values.hasNext()) {
+            T value = values.next();
+            if (count == keys.length)
+                keys = Arrays.copyOf(keys, count * 2);
+            if (sorted && count > 0 && keys[count - 1].compareTo(value) > 0)
+                sorted = false;
+            keys[count++] = value;
+        }
+        if (count == 0)
+            return tree;
+        if (!sorted)
+            Arrays.parallelSort(keys, 0, count);
+        tree.size = count;
+
+        int fill = (int) Math.round(fillFactor * tree.maxKeySize);
+        fill = Math.max(tree.minKeySize, Math.min(tree.maxKeySize, fill));
+
+        // chaque niveau répartit ses clés en nœuds, séparés par une clé qui remonte au niveau supérieur
+        Node<T>[] children = null;
+        while (true) {
+            int numberOfNodes = tree.numberOfNodes(count, fill);
+            int keysPerNode = (count - (numberOfNodes - 1)) / numberOfNodes;
+            int extra = (count - (numberOfNodes - 1)) % numberOfNodes;
+
+            Node<T>[] level = new Node[numberOfNodes];
+            T[] separators = (T[]) new Comparable[numberOfNodes - 1];
+            int key = 0;
+            int child = 0;
+            for (int i = 0; i < numberOfNodes; i++) {
+                int numberOfKeys = keysPerNode + ((i < extra) ? 1 : 0);
+                Node<T> node = new Node<T>(null, tree.maxKeySize, tree.maxChildrenSize);
+                node.insertKeys(0, keys, key, numberOfKeys);
+                key += numberOfKeys;
+                if (children != null) {
+                    node.insertChildren(0, children, child, numberOfKeys + 1);
+                    child += numberOfKeys + 1;
+                }
+                node.recount();
+                level[i] = node;
+                if (i < numberOfNodes - 1)
+                    separators[i] = keys[key++];
+            }
+
+            if (numberOfNodes == 1) {
+                tree.root = level[0];
+                return tree;
+            }
+            keys = separators;
+            count = numberOfNodes - 1;
+            children = level;
+        }
+    }
+
+    /**
+     * Nombre de nœuds d'un niveau construit par fromSorted. Avec n clés réparties
+     * en k nœuds séparés par k - 1 clés, chaque nœud non racine doit garder entre
+     * minKeySize et maxKeySize clés.
+     *
+     * @param count nombre de clés du niveau, séparateurs compris.
+     * @param fill nombre de clés visé par nœud.
+     * @return nombre de nœuds du niveau.
+     */
+    private int numberOfNodes(int count, int fill) {
+        int numberOfNodes = (count + fill + 1) / (fill + 1);
+        if (numberOfNodes * (minKeySize + 1) > count + 1)
+            numberOfNodes = (count + 1) / (minKeySize + 1);
+        return Math.max(numberOfNodes, 1);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean add(T value) {
+        int comparisons = 0;
+        int visited = 1;
         if (root == null) {
             root = new Node<T>(null, maxKeySize, maxChildrenSize);
             root.addKey(value);
+            root.recount();
         } else {
             Node<T> node = root;
             while (node != null) {
                 if (node.numberOfChildren() == 0) {
-                    node.addKey(value);
+                    int index = node.addKey(value);
+                    if (stats != null)
+                        comparisons += Node.insertionComparisons(index, node.numberOfKeys() - 1);
+                    addToCount(node, 1);
                     if (node.numberOfKeys() <= maxKeySize) {
                         break;
                     }
@@ -67,90 +159,118 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
                     split(node);
                     break;
                 }
-                // navigation
-
-                // Inférieur ou égal
-                T lesser = node.getKey(0);
-                if (value.compareTo(lesser) <= 0) {
-                    node = node.getChild(0);
-                    continue;
-                }
-
-                // Superieur
-                int numberOfKeys = node.numberOfKeys();
-                int last = numberOfKeys - 1;
-                T greater = node.getKey(last);
-                if (value.compareTo(greater) > 0) {
-                    node = node.getChild(numberOfKeys);
-                    continue;
-                }
-
-                // Recherche de nœuds internes
-                for (int i = 1; i < node.numberOfKeys(); i++) {
-                    T prev = node.getKey(i - 1);
-                    T next = node.getKey(i);
-                    if (value.compareTo(prev) > 0 && value.compareTo(next) <= 0) {
-                        node = node.getChild(i);
-                        break;
-                    }
-                }
+                // navigation, une valeur égale à une clé descend à gauche de celle-ci
+                int index = node.search(value);
+                if (stats != null)
+                    comparisons += Node.searchComparisons(index, node.numberOfKeys());
+                node = node.getChild((index >= 0) ? index : -index - 1);
+                visited++;
             }
         }
+        if (stats != null)
+            stats.path(comparisons, visited, visited);
 
         size++;
 
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Les valeurs sont triées puis insérées à la suite dans chaque feuille : une seule
+     * descente par feuille, tant qu'elle n'a pas besoin d'être séparée.
+     */
+    @Override
+    public int addAll(T[] values) {
+        T[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int i = 0;
+        while (i < sorted.length) {
+            if (root == null) {
+                add(sorted[i++]);
+                continue;
+            }
+            // descente vers la feuille de la plus petite valeur restante
+            Node<T> node = root;
+            T upper = null;
+            while (node.numberOfChildren() > 0) {
+                int index = node.search(sorted[i]);
+                int child = (index >= 0) ? index : -index - 1;
+                if (child < node.numberOfKeys())
+                    upper = node.getKey(child);
+                node = node.getChild(child);
+            }
+            // les valeurs suivantes vont dans la même feuille tant qu'elles ne dépassent pas sa borne
+            int added = 0;
+            while (true) {
+                node.addKey(sorted[i++]);
+                added++;
+                if (node.numberOfKeys() > maxKeySize)
+                    break;
+                if (i == sorted.length || (upper != null && sorted[i].compareTo(upper) > 0))
+                    break;
+            }
+            size += added;
+            addToCount(node, added);
+            if (node.numberOfKeys() > maxKeySize)
+                split(node);
+        }
+        return sorted.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int addAll(java.util.Collection<? extends T> values) {
+        return addAll((T[]) values.toArray(new Comparable[values.size()]));
+    }
+
     /**
      * La taille de la clé du nœud est supérieure à maxKeySize, divisée par le milieu.
      * 
      * @param nodeToSplit
      */
     private void split(Node<T> nodeToSplit) {
+        if (stats != null)
+            stats.split();
         Node<T> node = nodeToSplit;
         int numberOfKeys = node.numberOfKeys();
         int medianIndex = numberOfKeys / 2;
         T medianValue = node.getKey(medianIndex);
 
         Node<T> left = new Node<T>(null, maxKeySize, maxChildrenSize);
-        for (int i = 0; i < medianIndex; i++) {
-            left.addKey(node.getKey(i));
-        }
+        left.insertKeys(0, node.keys, 0, medianIndex);
         if (node.numberOfChildren() > 0) {
-            for (int j = 0; j <= medianIndex; j++) {
-                Node<T> c = node.getChild(j);
-                left.addChild(c);
-            }
+            left.insertChildren(0, node.children, 0, medianIndex + 1);
         }
 
         Node<T> right = new Node<T>(null, maxKeySize, maxChildrenSize);
-        for (int i = medianIndex + 1; i < numberOfKeys; i++) {
-            right.addKey(node.getKey(i));
-        }
+        right.insertKeys(0, node.keys, medianIndex + 1, numberOfKeys - medianIndex - 1);
         if (node.numberOfChildren() > 0) {
-            for (int j = medianIndex + 1; j < node.numberOfChildren(); j++) {
-                Node<T> c = node.getChild(j);
-                right.addChild(c);
-            }
+            right.insertChildren(0, node.children, medianIndex + 1, node.numberOfChildren() - medianIndex - 1);
         }
+        left.recount();
+        right.recount();
 
         if (node.parent == null) {
             // nouvelle racine, la hauteur de l'arbre est augmentée
             Node<T> newRoot = new Node<T>(null, maxKeySize, maxChildrenSize);
             newRoot.addKey(medianValue);
+            newRoot.count = node.count;
             node.parent = newRoot;
             root = newRoot;
             node = root;
             node.addChild(left);
             node.addChild(right);
         } else {
-            // Déplacer la valeur médiane vers le parent
+            // Déplacer la valeur médiane vers le parent, à la place du nœud séparé
             Node<T> parent = node.parent;
-            parent.addKey(medianValue);
-            parent.removeChild(node);
-            parent.addChild(left);
-            parent.addChild(right);
+            int index = parent.indexOf(node);
+            parent.insertKey(index, medianValue);
+            parent.setChild(index, left);
+            parent.addChild(index + 1, right);
 
             if (parent.numberOfKeys() > maxKeySize) split(parent);
         }
@@ -161,27 +281,108 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
      */
     @Override
     public T remove(T value) {
+        Node<T> node = root;
+        int comparisons = 0;
+        int visited = 0;
         T removed = null;
-        Node<T> node = this.getNode(value);
-        removed = remove(value,node);
+        while (node != null) {
+            visited++;
+            int index = node.search(value);
+            if (stats != null)
+                comparisons += Node.searchComparisons(index, node.numberOfKeys());
+            if (index >= 0) {
+                removed = remove(index, node);
+                break;
+            }
+            node = node.getChild(-index - 1);
+        }
+        if (stats != null)
+            stats.path(comparisons, visited, visited);
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Les valeurs sont triées puis retirées à la suite de chaque feuille : une seule
+     * descente par feuille, tant qu'elle n'a pas besoin d'être combinée. Les valeurs
+     * trouvées dans un nœud interne passent par remove.
+     */
+    @Override
+    public int removeAll(T[] values) {
+        T[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int removed = 0;
+        int i = 0;
+        while (i < sorted.length && root != null) {
+            Node<T> node = root;
+            T upper = null;
+            boolean slow = false;
+            while (node.numberOfChildren() > 0) {
+                int index = node.search(sorted[i]);
+                if (index >= 0) {
+                    // la valeur est dans un nœud interne
+                    slow = true;
+                    break;
+                }
+                int child = -index - 1;
+                if (child < node.numberOfKeys())
+                    upper = node.getKey(child);
+                node = node.getChild(child);
+            }
+            int taken = 0;
+            while (!slow && i < sorted.length) {
+                // une valeur égale à la borne peut être dans un ancêtre, on redescend
+                if (upper != null && sorted[i].compareTo(upper) >= 0)
+                    break;
+                int index = node.search(sorted[i]);
+                if (index < 0) {
+                    // absente de l'arbre
+                    i++;
+                } else if (node.parent != null && node.numberOfKeys() <= minKeySize) {
+                    slow = true;
+                } else {
+                    node.removeKey(index);
+                    size--;
+                    removed++;
+                    taken++;
+                    i++;
+                    if (node.numberOfKeys() == 0) {
+                        // racine feuille vidée
+                        root = null;
+                        break;
+                    }
+                }
+            }
+            addToCount(node, -taken);
+            if (slow && remove(sorted[i++]) != null)
+                removed++;
+        }
         return removed;
     }
 
     /**
-     * Supprimez la valeur du nœud et vérifiez les invariants
+     * {@inheritDoc}
+     */
+    @Override
+    public int removeAll(java.util.Collection<? extends T> values) {
+        return removeAll((T[]) values.toArray(new Comparable[values.size()]));
+    }
+
+    /**
+     * Supprimez la clé d'indice donné du nœud et vérifiez les invariants
      * 
-     * @param value à enlever de l'arbre
+     * @param index de la clé à enlever dans le nœud
      * @param node
-     * @return Vrai si la valeur a été retirée de l'arbre.
+     * @return la valeur retirée de l'arbre.
      */
-    private T remove(T value, Node<T> node) {
+    private T remove(int index, Node<T> node) {
         if (node == null) return null;
 
-        T removed = null;
-        int index = node.indexOf(value);
-        removed = node.removeKey(value);
+        T removed = node.removeKey(index);
         if (node.numberOfChildren() == 0) {
             // nœud feuille
+            addToCount(node, -1);
             if (node.parent != null && node.numberOfKeys() < minKeySize) {
                 this.combined(node);
             } else if (node.parent == null && node.numberOfKeys() == 0) {
@@ -193,7 +394,9 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
             Node<T> lesser = node.getChild(index);
             Node<T> greatest = this.getGreatestNode(lesser);
             T replaceValue = this.removeGreatestValue(greatest);
-            node.addKey(replaceValue);
+            node.insertKey(index, replaceValue);
+            // la feuille a perdu une clé, node garde le même nombre de clés
+            addToCount(greatest, -1);
             if (greatest.parent != null && greatest.numberOfKeys() < minKeySize) {
                 this.combined(greatest);
             }
@@ -230,6 +433,395 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
         size = 0;
     }
 
+    /**
+     * Active les compteurs de l'arbre (comparaisons, nœuds visités, séparations,
+     * fusions, emprunts, profondeur maximale), ou les remet à zéro s'ils l'étaient déjà.
+     */
+    public void enableStats() {
+        stats = new TreeStats.Recorder();
+    }
+
+    /**
+     * Désactive les compteurs de l'arbre.
+     */
+    public void disableStats() {
+        stats = null;
+    }
+
+    /**
+     * @return instantané des compteurs de l'arbre, null s'ils ne sont pas activés.
+     */
+    public TreeStats getStats() {
+        TreeStats.Recorder recorder = stats;
+        return (recorder != null) ? recorder.snapshot() : null;
+    }
+
+    /**
+     * Coupe l'arbre en deux : l'arbre garde les valeurs strictement inférieures à la clé
+     * et les valeurs supérieures ou égales passent dans l'arbre rendu, de même ordre.
+     * <p>
+     * Chaque nœud du chemin de la clé est coupé en deux et les morceaux sont recollés
+     * au fur et à mesure, en O(ordre * log n).
+     *
+     * @param key clé de découpage.
+     * @return nouvel arbre des valeurs supérieures ou égales à la clé.
+     */
+    public BTree<T> split(T key) {
+        BTree<T> right = new BTree<T>(minKeySize);
+        if (root == null)
+            return right;
+        Node<T>[] parts = split(root, key);
+        int lesserSize = (parts[0] != null) ? parts[0].count : 0;
+        right.root = parts[1];
+        right.size = size - lesserSize;
+        root = parts[0];
+        size = lesserSize;
+        return right;
+    }
+
+    /**
+     * Recolle deux arbres de même ordre en O(ordre * log n) quand toutes les valeurs de
+     * left sont inférieures ou égales à celles de right. Les nœuds de right passent dans
+     * left, qui est rendu ; right est vidé.
+     *
+     * @param left arbre des petites valeurs, reçoit le résultat.
+     * @param right arbre des grandes valeurs, vidé.
+     * @return left.
+     */
+    public static <T extends Comparable<T>> BTree<T> join(BTree<T> left, BTree<T> right) {
+        if (left == right)
+            throw new IllegalArgumentException("Cannot join a tree with itself.");
+        if (left.minKeySize != right.minKeySize)
+            throw new IllegalArgumentException("Cannot join trees of different orders.");
+        if (right.root == null)
+            return left;
+        if (left.root == null) {
+            left.root = right.root;
+            left.size = right.size;
+        } else {
+            Node<T> greatest = left.getGreatestNode(left.root);
+            Node<T> least = right.root;
+            while (least.numberOfChildren() > 0)
+                least = least.getChild(0);
+            T separator = least.getKey(0);
+            if (greatest.getKey(greatest.numberOfKeys() - 1).compareTo(separator) > 0)
+                throw new IllegalArgumentException("Values of the left tree must not be greater than values of the right tree.");
+            // la plus petite valeur de droite sert de clé entre les deux arbres
+            right.remove(0, least);
+            left.root = left.join(left.root, separator, right.root);
+            left.size += right.size + 1;
+        }
+        right.clear();
+        return left;
+    }
+
+    /**
+     * Coupe le sous-arbre en valeurs strictement inférieures et supérieures ou égales
+     * à la clé. Le nœud est défait : ses clés et ses enfants passent dans les résultats.
+     *
+     * @return les racines des deux parties, null pour une partie vide.
+     */
+    private Node<T>[] split(Node<T> node, T key) {
+        int index = node.firstIndex(key);
+        int numberOfKeys = node.numberOfKeys();
+        if (node.numberOfChildren() == 0) {
+            Node<T> greater = new Node<T>(null, maxKeySize, maxChildrenSize);
+            greater.insertKeys(0, node.keys, index, numberOfKeys - index);
+            node.removeKeys(index, numberOfKeys);
+            node.recount();
+            greater.recount();
+            return new Node[] { normalize(node), normalize(greater) };
+        }
+
+        // seul l'enfant qui encadre la clé contient des valeurs des deux côtés
+        Node<T>[] parts = split(node.getChild(index), key);
+        Node<T> greater = parts[1];
+        if (index < numberOfKeys) {
+            Node<T> rest = new Node<T>(null, maxKeySize, maxChildrenSize);
+            rest.insertKeys(0, node.keys, index + 1, numberOfKeys - index - 1);
+            rest.insertChildren(0, node.children, index + 1, numberOfKeys - index);
+            rest.recount();
+            greater = join(parts[1], node.getKey(index), normalize(rest));
+        }
+        Node<T> lesser = parts[0];
+        if (index > 0) {
+            T separator = node.getKey(index - 1);
+            node.removeKeys(index - 1, numberOfKeys);
+            node.removeChildren(index, node.numberOfChildren());
+            node.recount();
+            lesser = join(normalize(node), separator, parts[0]);
+        }
+        return new Node[] { lesser, greater };
+    }
+
+    /**
+     * Recolle deux sous-arbres autour d'une clé comprise entre leurs valeurs. Seule la
+     * racine de chaque sous-arbre peut avoir moins de minKeySize clés. Le moins haut est
+     * accroché au bord du plus haut, à la profondeur où les hauteurs se rejoignent, puis
+     * le nœud qui le reçoit est réparé comme après une insertion.
+     *
+     * @return racine du résultat, sans parent.
+     */
+    private Node<T> join(Node<T> left, T key, Node<T> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight == rightHeight) {
+            Node<T> node = new Node<T>(null, maxKeySize, maxChildrenSize);
+            node.addKey(key);
+            if (left != null) {
+                node.addChild(left);
+                node.addChild(right);
+                if (left.numberOfKeys() < minKeySize)
+                    fill(node, 0);
+                else if (right.numberOfKeys() < minKeySize)
+                    fill(node, 1);
+            }
+            node.recount();
+            return normalize(node);
+        }
+
+        Node<T> top = (leftHeight > rightHeight) ? left : right;
+        Node<T> node = top;
+        for (int i = Math.abs(leftHeight - rightHeight); i > 1; i--)
+            node = node.getChild((top == left) ? node.numberOfChildren() - 1 : 0);
+        int index;
+        Node<T> other = (top == left) ? right : left;
+        if (top == left) {
+            node.insertKey(node.numberOfKeys(), key);
+            if (right != null)
+                node.addChild(right);
+            index = node.numberOfChildren() - 1;
+        } else {
+            node.insertKey(0, key);
+            if (left != null)
+                node.addChild(0, left);
+            index = 0;
+        }
+        addToCount(node, 1 + ((other != null) ? other.count : 0));
+        if (node.numberOfChildren() > 0 && node.getChild(index).numberOfKeys() < minKeySize)
+            fill(node, index);
+        // split remonte jusqu'à la racine de l'arbre en cours de construction
+        root = top;
+        if (node.numberOfKeys() > maxKeySize)
+            split(node);
+        return root;
+    }
+
+    /**
+     * Complète l'enfant qui a moins de minKeySize clés avec son voisin : fusion si les
+     * deux tiennent dans un nœud, sinon transfert du nombre de clés manquant.
+     *
+     * @param parent
+     * @param index de l'enfant à compléter.
+     */
+    private void fill(Node<T> parent, int index) {
+        Node<T> child = parent.getChild(index);
+        boolean fromLeft = index > 0;
+        Node<T> neighbor = parent.getChild(fromLeft ? index - 1 : index + 1);
+        int separatorIndex = fromLeft ? index - 1 : index;
+
+        if (neighbor.numberOfKeys() + child.numberOfKeys() < maxKeySize) {
+            Node<T> lesser = parent.getChild(separatorIndex);
+            Node<T> greater = parent.removeChild(separatorIndex + 1);
+            lesser.insertKey(lesser.numberOfKeys(), parent.removeKey(separatorIndex));
+            lesser.insertKeys(lesser.numberOfKeys(), greater.keys, 0, greater.numberOfKeys());
+            if (greater.numberOfChildren() > 0)
+                lesser.insertChildren(lesser.numberOfChildren(), greater.children, 0, greater.numberOfChildren());
+            lesser.recount();
+            return;
+        }
+
+        int moved = minKeySize - child.numberOfKeys();
+        int neighborSize = neighbor.numberOfKeys();
+        boolean internal = neighbor.numberOfChildren() > 0;
+        if (fromLeft) {
+            child.insertKey(0, parent.getKey(separatorIndex));
+            child.insertKeys(0, neighbor.keys, neighborSize - moved + 1, moved - 1);
+            parent.keys[separatorIndex] = neighbor.getKey(neighborSize - moved);
+            if (internal) {
+                child.insertChildren(0, neighbor.children, neighborSize - moved + 1, moved);
+                neighbor.removeChildren(neighborSize - moved + 1, neighborSize + 1);
+            }
+            neighbor.removeKeys(neighborSize - moved, neighborSize);
+        } else {
+            child.insertKey(child.numberOfKeys(), parent.getKey(separatorIndex));
+            child.insertKeys(child.numberOfKeys(), neighbor.keys, 0, moved - 1);
+            parent.keys[separatorIndex] = neighbor.getKey(moved - 1);
+            if (internal) {
+                child.insertChildren(child.numberOfChildren(), neighbor.children, 0, moved);
+                neighbor.removeChildren(0, moved);
+            }
+            neighbor.removeKeys(0, moved);
+        }
+        child.recount();
+        neighbor.recount();
+    }
+
+    /**
+     * Descend les racines sans clé jusqu'à leur unique enfant.
+     *
+     * @return racine sans parent, null si le sous-arbre est vide.
+     */
+    private static <T extends Comparable<T>> Node<T> normalize(Node<T> node) {
+        while (node != null && node.numberOfKeys() == 0)
+            node = node.getChild(0);
+        if (node != null)
+            node.parent = null;
+        return node;
+    }
+
+    private static <T extends Comparable<T>> int height(Node<T> node) {
+        int height = 0;
+        for (; node != null; node = node.getChild(0))
+            height++;
+        return height;
+    }
+
+    /**
+     * k-ième plus petite valeur de l'arbre, en O(ordre * log n) grâce au nombre de clés
+     * de chaque sous-arbre gardé dans les nœuds.
+     *
+     * @param k rang de la valeur, à partir de 0.
+     * @return la valeur de rang k.
+     */
+    public T select(int k) {
+        if (k < 0 || k >= size)
+            throw new IllegalArgumentException("Rank " + k + " is out of bounds for size " + size);
+        Node<T> node = root;
+        while (node.numberOfChildren() > 0) {
+            int index = 0;
+            int childCount = node.getChild(0).count;
+            while (k >= childCount + 1) {
+                k -= childCount + 1;
+                childCount = node.getChild(++index).count;
+            }
+            if (k == childCount)
+                return node.getKey(index);
+            node = node.getChild(index);
+        }
+        return node.getKey(k);
+    }
+
+    /**
+     * Nombre de valeurs strictement inférieures à value, en O(ordre * log n). C'est
+     * aussi le rang de la première occurrence de value si elle est dans l'arbre.
+     *
+     * @param value
+     * @return rang de value.
+     */
+    public int rank(T value) {
+        int rank = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int index = node.firstIndex(value);
+            rank += index;
+            for (int i = 0; i < index && i < node.numberOfChildren(); i++)
+                rank += node.getChild(i).count;
+            node = node.getChild(index);
+        }
+        return rank;
+    }
+
+    /**
+     * Ajoute delta au nombre de clés du nœud et de tous ses ancêtres.
+     */
+    private static <T extends Comparable<T>> void addToCount(Node<T> node, int delta) {
+        for (; node != null; node = node.parent)
+            node.count += delta;
+    }
+
+    /**
+     * @param value
+     * @return la plus petite valeur supérieure ou égale à value, null s'il n'y en a pas.
+     */
+    public T ceiling(T value) {
+        return getCeiling(value, true);
+    }
+
+    /**
+     * @param value
+     * @return la plus petite valeur strictement supérieure à value, null s'il n'y en a pas.
+     */
+    public T higher(T value) {
+        return getCeiling(value, false);
+    }
+
+    /**
+     * @param value
+     * @return la plus grande valeur inférieure ou égale à value, null s'il n'y en a pas.
+     */
+    public T floor(T value) {
+        return getFloor(value, true);
+    }
+
+    /**
+     * @param value
+     * @return la plus grande valeur strictement inférieure à value, null s'il n'y en a pas.
+     */
+    public T lower(T value) {
+        return getFloor(value, false);
+    }
+
+    /**
+     * Valeurs v telles que from <= v < to, dans l'ordre croissant, en O(log n + k).
+     *
+     * @param from borne inférieure incluse.
+     * @param to borne supérieure exclue.
+     * @return liste des valeurs de l'intervalle.
+     */
+    public java.util.List<T> range(T from, T to) {
+        java.util.List<T> values = new java.util.ArrayList<T>();
+        Iterator<T> cursor = cursor(from);
+        while (cursor.hasNext()) {
+            T value = cursor.next();
+            if (value.compareTo(to) >= 0)
+                break;
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Curseur paresseux qui se place en O(log n) sur la première valeur supérieure ou
+     * égale à from, puis rend les valeurs suivantes dans l'ordre croissant. Il ne garde
+     * que le chemin depuis la racine. L'arbre ne doit pas être modifié pendant le parcours,
+     * sauf par le remove() du curseur.
+     *
+     * @param from borne inférieure incluse.
+     * @return itérateur sur les valeurs supérieures ou égales à from.
+     */
+    public Iterator<T> cursor(T from) {
+        return new BTreeCursor<T>(this, from);
+    }
+
+    /**
+     * Les clés égales peuvent être réparties entre un nœud et ses enfants, la descente
+     * continue donc jusqu'à une feuille en gardant la meilleure clé rencontrée.
+     */
+    private T getCeiling(T value, boolean inclusive) {
+        T candidate = null;
+        Node<T> node = root;
+        while (node != null) {
+            int index = inclusive ? node.firstIndex(value) : node.insertionIndex(value);
+            if (index < node.numberOfKeys())
+                candidate = node.getKey(index);
+            node = node.getChild(index);
+        }
+        return candidate;
+    }
+
+    private T getFloor(T value, boolean inclusive) {
+        T candidate = null;
+        Node<T> node = root;
+        while (node != null) {
+            int index = inclusive ? node.insertionIndex(value) : node.firstIndex(value);
+            if (index > 0)
+                candidate = node.getKey(index - 1);
+            node = node.getChild(index);
+        }
+        return candidate;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -247,47 +839,21 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
      */
     private Node<T> getNode(T value) {
         Node<T> node = root;
+        int comparisons = 0;
+        int visited = 0;
         while (node != null) {
-            T lesser = node.getKey(0);
-            if (value.compareTo(lesser) < 0) {
-                if (node.numberOfChildren() > 0)
-                    node = node.getChild(0);
-                else
-                    node = null;
-                continue;
-            }
-
-            int numberOfKeys = node.numberOfKeys();
-            int last = numberOfKeys - 1;
-            T greater = node.getKey(last);
-            if (value.compareTo(greater) > 0) {
-                if (node.numberOfChildren() > numberOfKeys)
-                    node = node.getChild(numberOfKeys);
-                else
-                    node = null;
-                continue;
-            }
-
-            for (int i = 0; i < numberOfKeys; i++) {
-                T currentValue = node.getKey(i);
-                if (currentValue.compareTo(value) == 0) {
-                    return node;
-                }
-
-                int next = i + 1;
-                if (next <= last) {
-                    T nextValue = node.getKey(next);
-                    if (currentValue.compareTo(value) < 0 && nextValue.compareTo(value) > 0) {
-                        if (next < node.numberOfChildren()) {
-                            node = node.getChild(next);
-                            break;
-                        }
-                        return null;
-                    }
-                }
-            }
+            visited++;
+            int index = node.search(value);
+            if (stats != null)
+                comparisons += Node.searchComparisons(index, node.numberOfKeys());
+            if (index >= 0)
+                break;
+            // getChild renvoie null sous une feuille
+            node = node.getChild(-index - 1);
         }
-        return null;
+        if (stats != null)
+            stats.path(comparisons, visited, visited);
+        return node;
     }
 
     /**
@@ -327,15 +893,19 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
         // Essayer d'emprunter le voisin
         if (rightNeighbor != null && rightNeighborSize > minKeySize) {
             // Essayer d'emprunter au bon voisin
-            T removeValue = rightNeighbor.getKey(0);
-            int prev = getIndexOfPreviousValue(parent, removeValue);
-            T parentValue = parent.removeKey(prev);
+            // la clé séparant le nœud de son voisin de droite est à l'indice du nœud
+            T parentValue = parent.removeKey(index);
             T neighborValue = rightNeighbor.removeKey(0);
-            node.addKey(parentValue);
-            parent.addKey(neighborValue);
+            // la clé du parent suit toutes celles du nœud, inutile de chercher sa place
+            node.insertKey(node.numberOfKeys(), parentValue);
+            parent.insertKey(index, neighborValue);
             if (rightNeighbor.numberOfChildren() > 0) {
                 node.addChild(rightNeighbor.removeChild(0));
             }
+            node.recount();
+            rightNeighbor.recount();
+            if (stats != null)
+                stats.borrow();
         } else {
             Node<T> leftNeighbor = null;
             int leftNeighborSize = -minChildrenSize;
@@ -346,30 +916,29 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
 
             if (leftNeighbor != null && leftNeighborSize > minKeySize) {
                 // Essayer d'emprunter au voisin de gauche
-                T removeValue = leftNeighbor.getKey(leftNeighbor.numberOfKeys() - 1);
-                int prev = getIndexOfNextValue(parent, removeValue);
-                T parentValue = parent.removeKey(prev);
+                T parentValue = parent.removeKey(indexOfLeftNeighbor);
                 T neighborValue = leftNeighbor.removeKey(leftNeighbor.numberOfKeys() - 1);
-                node.addKey(parentValue);
-                parent.addKey(neighborValue);
+                // la clé du parent précède toutes celles du nœud
+                node.insertKey(0, parentValue);
+                parent.insertKey(indexOfLeftNeighbor, neighborValue);
                 if (leftNeighbor.numberOfChildren() > 0) {
-                    node.addChild(leftNeighbor.removeChild(leftNeighbor.numberOfChildren() - 1));
+                    node.addChild(0, leftNeighbor.removeChild(leftNeighbor.numberOfChildren() - 1));
                 }
+                node.recount();
+                leftNeighbor.recount();
+                if (stats != null)
+                    stats.borrow();
             } else if (rightNeighbor != null && parent.numberOfKeys() > 0) {
                 // On ne peut pas emprunter aux voisins, essayez de combiner avec le bon voisin
-                T removeValue = rightNeighbor.getKey(0);
-                int prev = getIndexOfPreviousValue(parent, removeValue);
-                T parentValue = parent.removeKey(prev);
-                parent.removeChild(rightNeighbor);
-                node.addKey(parentValue);
-                for (int i = 0; i < rightNeighbor.keysSize; i++) {
-                    T v = rightNeighbor.getKey(i);
-                    node.addKey(v);
-                }
-                for (int i = 0; i < rightNeighbor.childrenSize; i++) {
-                    Node<T> c = rightNeighbor.getChild(i);
-                    node.addChild(c);
-                }
+                T parentValue = parent.removeKey(index);
+                parent.removeChild(indexOfRightNeighbor);
+                node.insertKey(node.numberOfKeys(), parentValue);
+                // les clés du voisin de droite sont toutes supérieures, on les ajoute à la fin
+                node.insertKeys(node.keysSize, rightNeighbor.keys, 0, rightNeighbor.keysSize);
+                node.insertChildren(node.childrenSize, rightNeighbor.children, 0, rightNeighbor.childrenSize);
+                node.recount();
+                if (stats != null)
+                    stats.merge();
 
                 if (parent.parent != null && parent.numberOfKeys() < minKeySize) {
                     // suppression de la clé rendue parent trop petit, arbre combiné
@@ -382,19 +951,15 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
                 }
             } else if (leftNeighbor != null && parent.numberOfKeys() > 0) {
                 // On ne peut pas emprunter aux voisins, essayez de combiner avec le voisin de gauche
-                T removeValue = leftNeighbor.getKey(leftNeighbor.numberOfKeys() - 1);
-                int prev = getIndexOfNextValue(parent, removeValue);
-                T parentValue = parent.removeKey(prev);
-                parent.removeChild(leftNeighbor);
-                node.addKey(parentValue);
-                for (int i = 0; i < leftNeighbor.keysSize; i++) {
-                    T v = leftNeighbor.getKey(i);
-                    node.addKey(v);
-                }
-                for (int i = 0; i < leftNeighbor.childrenSize; i++) {
-                    Node<T> c = leftNeighbor.getChild(i);
-                    node.addChild(c);
-                }
+                T parentValue = parent.removeKey(indexOfLeftNeighbor);
+                parent.removeChild(indexOfLeftNeighbor);
+                node.insertKey(0, parentValue);
+                // les clés du voisin de gauche sont toutes inférieures, on les ajoute au début
+                node.insertKeys(0, leftNeighbor.keys, 0, leftNeighbor.keysSize);
+                node.insertChildren(0, leftNeighbor.children, 0, leftNeighbor.childrenSize);
+                node.recount();
+                if (stats != null)
+                    stats.merge();
 
                 if (parent.parent != null && parent.numberOfKeys() < minKeySize) {
                     // suppression de la clé rendue parent trop petit, arbre combiné
@@ -411,38 +976,6 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
         return true;
     }
 
-    /**
-     * la fonction permet d'obtenir l'index de la clé précédente dans le nœud.
-     * 
-     * @param node
-     * @param value
-     * @return indice de la clé précédente ou -1 si non trouvé.
-     */
-    private int getIndexOfPreviousValue(Node<T> node, T value) {
-        for (int i = 1; i < node.numberOfKeys(); i++) {
-            T t = node.getKey(i);
-            if (t.compareTo(value) >= 0)
-                return i - 1;
-        }
-        return node.numberOfKeys() - 1;
-    }
-
-    /**
-     * la fonction permet d'obtenir l'index de la clé suivante dans le nœud.
-     * 
-     * @param node
-     * @param value
-     * @return indice de la clé suivante ou -1 si non trouvé.
-     */
-    private int getIndexOfNextValue(Node<T> node, T value) {
-        for (int i = 0; i < node.numberOfKeys(); i++) {
-            T t = node.getKey(i);
-            if (t.compareTo(value) >= 0)
-                return i;
-        }
-        return node.numberOfKeys() - 1;
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -457,6 +990,7 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
     @Override
     public boolean validate() {
         if (root == null) return true;
+        if (root.count != size) return false;
         return validateNode(root);
     }
 
@@ -468,6 +1002,11 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
      */
     private boolean validateNode(Node<T> node) {
         int keySize = node.numberOfKeys();
+        int count = keySize;
+        for (int i = 0; i < node.numberOfChildren(); i++)
+            count += node.getChild(i).count;
+        if (node.count != count)
+            return false;
         if (keySize > 1) {
             // Assure que les clés sont triées
             for (int i = 1; i < keySize; i++) {
@@ -549,6 +1088,30 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
         return (new JavaCompatibleBTree<T>(this));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Parcours infixe récursif, sans allocation.
+     */
+    @Override
+    public void forEach(java.util.function.Consumer<? super T> action) {
+        if (root != null)
+            forEach(root, action);
+    }
+
+    private static <T extends Comparable<T>> void forEach(Node<T> node, java.util.function.Consumer<? super T> action) {
+        if (node.numberOfChildren() == 0) {
+            for (int i = 0; i < node.numberOfKeys(); i++)
+                action.accept(node.getKey(i));
+            return;
+        }
+        for (int i = 0; i < node.numberOfKeys(); i++) {
+            forEach(node.getChild(i), action);
+            action.accept(node.getKey(i));
+        }
+        forEach(node.getChild(node.numberOfKeys()), action);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -563,12 +1126,8 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
         private int keysSize = 0;
         private Node<T>[] children = null;
         private int childrenSize = 0;
-        private Comparator<Node<T>> comparator = new Comparator<Node<T>>() {
-            @Override
-            public int compare(Node<T> arg0, Node<T> arg1) {
-                return arg0.getKey(0).compareTo(arg1.getKey(0));
-            }
-        };
+        // nombre de clés du sous-arbre, lu par le parent pour select et rank
+        private int count = 0;
 
         protected Node<T> parent = null;
 
@@ -584,51 +1143,157 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
             return keys[index];
         }
 
-        private int indexOf(T value) {
-            for (int i = 0; i < keysSize; i++) {
-                if (keys[i].equals(value)) return i;
+        /**
+         * Recherche dichotomique de la valeur parmi les clés du nœud.
+         *
+         * @param value
+         * @return indice de la clé égale à la valeur, sinon (-(indice de l'enfant à suivre) - 1).
+         */
+        private int search(T value) {
+            int low = 0;
+            int high = keysSize - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = keys[mid].compareTo(value);
+                if (cmp < 0)
+                    low = mid + 1;
+                else if (cmp > 0)
+                    high = mid - 1;
+                else
+                    return mid;
             }
-            return -1;
+            return -(low + 1);
         }
 
-        private void addKey(T value) {
-            keys[keysSize++] = value;
-            Arrays.sort(keys, 0, keysSize);
+        /**
+         * Recherche dichotomique de l'emplacement d'insertion de la valeur.
+         *
+         * @param value
+         * @return indice de la première clé strictement supérieure à la valeur.
+         */
+        private int insertionIndex(T value) {
+            int low = 0;
+            int high = keysSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(value) <= 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
         }
 
-        private T removeKey(T value) {
-            T removed = null;
-            boolean found = false;
-            if (keysSize == 0) return null;
-            for (int i = 0; i < keysSize; i++) {
-                if (keys[i].equals(value)) {
-                    found = true;
-                    removed = keys[i];
-                } else if (found) {
-                    // shift the rest of the keys down
-                    keys[i - 1] = keys[i];
-                }
+        /**
+         * Recherche dichotomique de la première clé supérieure ou égale à la valeur.
+         *
+         * @param value
+         * @return nombre de clés strictement inférieures à la valeur.
+         */
+        private int firstIndex(T value) {
+            int low = 0;
+            int high = keysSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(value) < 0)
+                    low = mid + 1;
+                else
+                    high = mid;
             }
-            if (found) {
-                keysSize--;
-                keys[keysSize] = null;
+            return low;
+        }
+
+        /**
+         * @return indice où la valeur a été insérée.
+         */
+        private int addKey(T value) {
+            int index = insertionIndex(value);
+            insertKey(index, value);
+            return index;
+        }
+
+        /**
+         * Nombre d'appels à compareTo faits par search sur size clés pour rendre index.
+         * La dichotomie est rejouée sur les indices seuls, search n'a pas à compter.
+         */
+        private static int searchComparisons(int index, int size) {
+            int target = (index >= 0) ? index : -index - 1;
+            int low = 0;
+            int high = size - 1;
+            int comparisons = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                comparisons++;
+                if (mid < target)
+                    low = mid + 1;
+                else if (mid > target || index < 0)
+                    high = mid - 1;
+                else
+                    break;
             }
-            return removed;
+            return comparisons;
+        }
+
+        /**
+         * Nombre d'appels à compareTo faits par insertionIndex sur size clés pour rendre index.
+         */
+        private static int insertionComparisons(int index, int size) {
+            int low = 0;
+            int high = size;
+            int comparisons = 0;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                comparisons++;
+                if (mid < index)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return comparisons;
+        }
+
+        private void insertKey(int index, T value) {
+            // shift the greater keys up
+            System.arraycopy(keys, index, keys, index + 1, keysSize - index);
+            keys[index] = value;
+            keysSize++;
+        }
+
+        /**
+         * Insère une suite de clés déjà triée à l'indice donné. L'appelant garantit
+         * que l'ordre des clés du nœud est conservé.
+         *
+         * @param index position d'insertion dans le nœud
+         * @param src tableau source
+         * @param srcPos indice de la première clé à copier
+         * @param length nombre de clés à copier
+         */
+        private void insertKeys(int index, T[] src, int srcPos, int length) {
+            System.arraycopy(keys, index, keys, index + length, keysSize - index);
+            System.arraycopy(src, srcPos, keys, index, length);
+            keysSize += length;
         }
 
         private T removeKey(int index) {
             if (index >= keysSize)
                 return null;
             T value = keys[index];
-            for (int i = index + 1; i < keysSize; i++) {
-                // shift the rest of the keys down
-                keys[i - 1] = keys[i];
-            }
+            // shift the rest of the keys down
+            System.arraycopy(keys, index + 1, keys, index, keysSize - index - 1);
             keysSize--;
             keys[keysSize] = null;
             return value;
         }
 
+        /**
+         * Retire les clés d'indices from (inclus) à to (exclu).
+         */
+        private void removeKeys(int from, int to) {
+            System.arraycopy(keys, to, keys, from, keysSize - to);
+            Arrays.fill(keys, keysSize - (to - from), keysSize, null);
+            keysSize -= to - from;
+        }
+
         private int numberOfKeys() {
             return keysSize;
         }
@@ -641,56 +1306,81 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
 
         private int indexOf(Node<T> child) {
             for (int i = 0; i < childrenSize; i++) {
-                if (children[i].equals(child))
+                if (children[i] == child)
                     return i;
             }
             return -1;
         }
 
-        private boolean addChild(Node<T> child) {
+        private void addChild(Node<T> child) {
+            addChild(childrenSize, child);
+        }
+
+        private void addChild(int index, Node<T> child) {
             child.parent = this;
-            children[childrenSize++] = child;
-            Arrays.sort(children, 0, childrenSize, comparator);
-            return true;
+            // shift the following children up
+            System.arraycopy(children, index, children, index + 1, childrenSize - index);
+            children[index] = child;
+            childrenSize++;
         }
 
-        private boolean removeChild(Node<T> child) {
-            boolean found = false;
-            if (childrenSize == 0)
-                return found;
-            for (int i = 0; i < childrenSize; i++) {
-                if (children[i].equals(child)) {
-                    found = true;
-                } else if (found) {
-                    // shift the rest of the keys down
-                    children[i - 1] = children[i];
-                }
-            }
-            if (found) {
-                childrenSize--;
-                children[childrenSize] = null;
+        private void setChild(int index, Node<T> child) {
+            child.parent = this;
+            children[index] = child;
+        }
+
+        /**
+         * Insère une suite d'enfants déjà ordonnée à l'indice donné.
+         *
+         * @param index position d'insertion dans le nœud
+         * @param src tableau source
+         * @param srcPos indice du premier enfant à copier
+         * @param length nombre d'enfants à copier
+         */
+        private void insertChildren(int index, Node<T>[] src, int srcPos, int length) {
+            System.arraycopy(children, index, children, index + length, childrenSize - index);
+            for (int i = 0; i < length; i++) {
+                Node<T> child = src[srcPos + i];
+                child.parent = this;
+                children[index + i] = child;
             }
-            return found;
+            childrenSize += length;
         }
 
         private Node<T> removeChild(int index) {
             if (index >= childrenSize)
                 return null;
             Node<T> value = children[index];
-            children[index] = null;
-            for (int i = index + 1; i < childrenSize; i++) {
-                // shift the rest of the keys down
-                children[i - 1] = children[i];
-            }
+            // shift the rest of the children down
+            System.arraycopy(children, index + 1, children, index, childrenSize - index - 1);
             childrenSize--;
             children[childrenSize] = null;
             return value;
         }
 
+        /**
+         * Retire les enfants d'indices from (inclus) à to (exclu).
+         */
+        private void removeChildren(int from, int to) {
+            System.arraycopy(children, to, children, from, childrenSize - to);
+            Arrays.fill(children, childrenSize - (to - from), childrenSize, null);
+            childrenSize -= to - from;
+        }
+
         private int numberOfChildren() {
             return childrenSize;
         }
 
+        /**
+         * Recalcule le nombre de clés du sous-arbre à partir des enfants.
+         */
+        private void recount() {
+            int total = keysSize;
+            for (int i = 0; i < childrenSize; i++)
+                total += children[i].count;
+            count = total;
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -760,6 +1450,135 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
         }
     }
 
+    /**
+     * Parcours infixe qui ne garde que le chemin depuis la racine, dans deux tableaux de
+     * la hauteur de l'arbre alloués une fois.
+     */
+    private static class BTreeCursor<C extends Comparable<C>> implements Iterator<C> {
+
+        private final BTree<C> tree;
+        // chemin depuis la racine : indexes[d] est la prochaine clé à rendre dans nodes[d]
+        private final Node<C>[] nodes;
+        private final int[] indexes;
+        private int depth = -1;
+        // dernière valeur rendue et nombre de valeurs égales rendues à la suite
+        private C lastValue = null;
+        private int equalValues = 0;
+        private boolean removable = false;
+
+        /**
+         * Curseur placé sur la plus petite valeur de l'arbre.
+         */
+        private BTreeCursor(BTree<C> tree) {
+            this.tree = tree;
+            int height = Math.max(1, height(tree.root));
+            this.nodes = new Node[height];
+            this.indexes = new int[height];
+            if (tree.root != null)
+                descend(tree.root);
+        }
+
+        /**
+         * Curseur placé sur la première valeur supérieure ou égale à from.
+         */
+        private BTreeCursor(BTree<C> tree, C from) {
+            this.tree = tree;
+            int height = Math.max(1, height(tree.root));
+            this.nodes = new Node[height];
+            this.indexes = new int[height];
+            seek(from);
+        }
+
+        private void seek(C from) {
+            depth = -1;
+            Node<C> node = tree.root;
+            while (node != null) {
+                int index = node.firstIndex(from);
+                depth++;
+                nodes[depth] = node;
+                indexes[depth] = index;
+                node = node.getChild(index);
+            }
+            settle();
+        }
+
+        /**
+         * Descend jusqu'à la plus petite clé du sous-arbre.
+         */
+        private void descend(Node<C> node) {
+            for (; node != null; node = node.getChild(0)) {
+                depth++;
+                nodes[depth] = node;
+                indexes[depth] = 0;
+            }
+        }
+
+        /**
+         * Remonte tant que le nœud courant n'a plus de clé à rendre.
+         */
+        private void settle() {
+            while (depth >= 0 && indexes[depth] >= nodes[depth].numberOfKeys())
+                depth--;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            return depth >= 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public C next() {
+            if (depth < 0)
+                throw new java.util.NoSuchElementException();
+            Node<C> node = nodes[depth];
+            int index = indexes[depth]++;
+            C value = node.getKey(index);
+            if (node.numberOfChildren() > 0) {
+                // la suite est la plus petite clé du sous-arbre de droite
+                descend(node.getChild(index + 1));
+            } else {
+                settle();
+            }
+            if (lastValue != null && lastValue.compareTo(value) == 0)
+                equalValues++;
+            else
+                equalValues = 1;
+            lastValue = value;
+            removable = true;
+            return value;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * La suppression peut réorganiser les nœuds : le parcours repart de la première
+         * valeur égale à celle retirée et saute celles déjà rendues.
+         */
+        @Override
+        public void remove() {
+            if (!removable)
+                throw new IllegalStateException();
+            tree.remove(lastValue);
+            removable = false;
+            equalValues--;
+            seek(lastValue);
+            for (int i = 0; i < equalValues && depth >= 0; i++) {
+                Node<C> node = nodes[depth];
+                int index = indexes[depth]++;
+                if (node.numberOfChildren() > 0)
+                    descend(node.getChild(index + 1));
+                else
+                    settle();
+            }
+        }
+    }
+
     public static class JavaCompatibleBTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
 
         private BTree<T> tree = null;
@@ -805,78 +1624,7 @@ public class BTree<T extends Comparable<T>> implements ITree<T> {
          */
         @Override
         public java.util.Iterator<T> iterator() {
-            return (new BTreeIterator<T>(this.tree));
-        }
-
-        private static class BTreeIterator<C extends Comparable<C>> implements java.util.Iterator<C> {
-
-            private BTree<C> tree = null;
-            private BTree.Node<C> lastNode = null;
-            private C lastValue = null;
-            private int index = 0;
-            private Deque<BTree.Node<C>> toVisit = new ArrayDeque<BTree.Node<C>>();
-
-            protected BTreeIterator(BTree<C> tree) {
-                this.tree = tree;
-                if (tree.root!=null && tree.root.keysSize>0) {
-                    toVisit.add(tree.root);
-                }
-            }
-
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public boolean hasNext() {
-                if ((lastNode!=null && index<lastNode.keysSize)||(toVisit.size()>0)) return true; 
-                return false;
-            }
-
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public C next() {
-                if (lastNode!=null && (index < lastNode.keysSize)) {
-                    lastValue = lastNode.getKey(index++);
-                    return lastValue;
-                }
-                while (toVisit.size()>0) {
-                    // Go thru the current nodes
-                    BTree.Node<C> n = toVisit.pop();
-
-                    // Add non-null children
-                    for (int i=0; i<n.childrenSize; i++) {
-                        toVisit.add(n.getChild(i));
-                    }
-
-                    // Update last node (used in remove method)
-                    index = 0;
-                    lastNode = n;
-                    lastValue = lastNode.getKey(index++);
-                    return lastValue;
-                }
-                return null;
-            }
-
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public void remove() {
-                if (lastNode!=null && lastValue!=null) {
-                    // On remove, reset the iterator (very inefficient, I know)
-                    tree.remove(lastValue,lastNode);
-
-                    lastNode = null;
-                    lastValue = null;
-                    index = 0;
-                    toVisit.clear();
-                    if (tree.root!=null && tree.root.keysSize>0) {
-                        toVisit.add(tree.root);
-                    }
-                }
-            }
+            return (new BTreeCursor<T>(this.tree));
         }
     }
 }
@@ -0,0 +1,620 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import interfaces.ITree;
+
+/**
+ * Banc d'essai des implémentations d'ITree, sur le modèle de JMH : chaque couple
+ * (arbre, taille) est mesuré dans une JVM à part (fork), après des itérations
+ * de chauffe, et chaque mesure chronomètre un lot d'opérations plutôt qu'un appel
+ * isolé pour que la résolution de System.nanoTime() ne compte pas.
+ * <p>
+ * Les arbres sont gardés à taille constante : les valeurs ajoutées par un lot sont
+ * retirées hors chronomètre, et inversement. Les résultats des opérations sont
+ * accumulés dans un puits pour que le JIT ne puisse pas les éliminer.
+ * <p>
+ * Usage : java Benchmark [-trees AVLTree,BinarySearchTree,BTree:16,...]
+ * [-sizes 1000,...] [-ops contains,add,...] [-forks n] [-warmup n]
+ * [-iterations n] [-time ms] [-jvmArgs "-Xmx4g ..."] [-csv fichier]
+ * <p>
+ * Avec -forks 0 tout s'exécute dans la JVM courante, utile pour déboguer mais
+ * moins fiable : le profil du JIT est partagé entre les arbres.
+ * <p>
+ * @see <a href="https://openjdk.org/projects/code-tools/jmh/">JMH</a>
+ * <br>
+ */
+public class Benchmark {
+
+    private static final String[] TREES = { "BinarySearchTree", "AVLTree", "BTree:2", "BTree:16", "BTree:50", "BTree:256" };
+    private static final int[] SIZES = { 1000, 10000, 100000, 1000000, 10000000 };
+    private static final String[] OPERATIONS = { "contains", "iterate", "forEach", "add", "remove", "mixed" };
+
+    // nombre maximal d'opérations chronométrées d'un seul tenant
+    private static final int BATCH = 1024;
+    // nombre de requêtes aléatoires précalculées, parcourues en boucle
+    private static final int QUERIES = 1 << 16;
+    // proportion d'écritures dans mixed, sur 100
+    private static final int MIXED_WRITES = 20;
+
+    private static final String RESULT = "RESULT ";
+
+    private static long sink = 0;
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("-child")) {
+            child(args);
+            return;
+        }
+        String[] trees = TREES;
+        int[] sizes = SIZES;
+        String[] operations = OPERATIONS;
+        int forks = 2;
+        int warmup = 3;
+        int iterations = 5;
+        int time = 200;
+        String jvmArgs = null;
+        String csv = null;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length)
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            String value = args[++i];
+            if (args[i - 1].equals("-trees"))
+                trees = value.split(",");
+            else if (args[i - 1].equals("-sizes"))
+                sizes = parseInts(value);
+            else if (args[i - 1].equals("-ops"))
+                operations = value.split(",");
+            else if (args[i - 1].equals("-forks"))
+                forks = Integer.parseInt(value);
+            else if (args[i - 1].equals("-warmup"))
+                warmup = Integer.parseInt(value);
+            else if (args[i - 1].equals("-iterations"))
+                iterations = Integer.parseInt(value);
+            else if (args[i - 1].equals("-time"))
+                time = Integer.parseInt(value);
+            else if (args[i - 1].equals("-jvmArgs"))
+                jvmArgs = value;
+            else if (args[i - 1].equals("-csv"))
+                csv = value;
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+        }
+        // vérifie les noms avant de lancer quoi que ce soit
+        for (String tree : trees)
+            createTree(tree);
+        for (String operation : operations)
+            createWorkload(operation);
+        if (iterations < 1)
+            throw new IllegalArgumentException("At least one measurement iteration is required.");
+
+        // échantillons par opération puis par "arbre taille", dans l'ordre de la ligne de commande
+        Map<String, Map<String, List<Double>>> samples = new LinkedHashMap<String, Map<String, List<Double>>>();
+        for (String operation : operations)
+            samples.put(operation, new LinkedHashMap<String, List<Double>>());
+        for (String tree : trees) {
+            for (int size : sizes) {
+                for (int fork = 0; fork < Math.max(1, forks); fork++) {
+                    System.out.println("# " + tree + ", " + size + " valeurs, fork " + (fork + 1) + "/" + Math.max(1, forks));
+                    String[] childArgs = childArgs(tree, size, warmup, iterations, time, operations);
+                    List<String> results = forks == 0 ? runInProcess(childArgs) : runForked(childArgs, jvmArgs);
+                    for (String line : results) {
+                        String[] fields = line.substring(RESULT.length()).split(" ");
+                        Map<String, List<Double>> byTree = samples.get(fields[0]);
+                        String key = tree + " " + size;
+                        if (!byTree.containsKey(key))
+                            byTree.put(key, new ArrayList<Double>());
+                        byTree.get(key).add(Double.parseDouble(fields[1]));
+                    }
+                }
+            }
+        }
+        report(samples, csv);
+    }
+
+    private static int[] parseInts(String value) {
+        String[] fields = value.split(",");
+        int[] result = new int[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            result[i] = Integer.parseInt(fields[i]);
+        return result;
+    }
+
+    private static String[] childArgs(String tree, int size, int warmup, int iterations, int time, String[] operations) {
+        String[] childArgs = new String[6 + operations.length];
+        childArgs[0] = "-child";
+        childArgs[1] = tree;
+        childArgs[2] = Integer.toString(size);
+        childArgs[3] = Integer.toString(warmup);
+        childArgs[4] = Integer.toString(iterations);
+        childArgs[5] = Integer.toString(time);
+        System.arraycopy(operations, 0, childArgs, 6, operations.length);
+        return childArgs;
+    }
+
+    /**
+     * Lance une JVM avec le même classpath et, par défaut, les mêmes options que la JVM courante,
+     * et rend les lignes de résultat qu'elle écrit.
+     */
+    private static List<String> runForked(String[] childArgs, String jvmArgs) {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (jvmArgs != null) {
+            for (String arg : jvmArgs.trim().split("\\s+")) {
+                if (arg.length() > 0)
+                    command.add(arg);
+            }
+        } else {
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Benchmark.class.getName());
+        command.addAll(Arrays.asList(childArgs));
+
+        List<String> results = new ArrayList<String>();
+        try {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(RESULT))
+                        results.add(line);
+                    else
+                        System.out.println(line);
+                }
+            } finally {
+                reader.close();
+            }
+            int status = process.waitFor();
+            if (status != 0)
+                throw new RuntimeException("Le fork s'est terminé avec le code " + status + " : " + command);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return results;
+    }
+
+    private static List<String> runInProcess(String[] childArgs) {
+        final List<String> results = new ArrayList<String>();
+        measure(childArgs, new Output() {
+            @Override
+            public void println(String line) {
+                if (line.startsWith(RESULT))
+                    results.add(line);
+                else
+                    System.out.println(line);
+            }
+        });
+        return results;
+    }
+
+    private interface Output {
+        void println(String line);
+    }
+
+    private static void child(String[] args) {
+        measure(args, new Output() {
+            @Override
+            public void println(String line) {
+                System.out.println(line);
+            }
+        });
+        // le puits est écrit pour que son calcul ne puisse pas être éliminé
+        System.out.println("# puits " + sink);
+    }
+
+    /**
+     * Remplit l'arbre puis, pour chaque opération, fait les itérations de chauffe et
+     * écrit une ligne "RESULT opération ns/op" par itération mesurée.
+     */
+    private static void measure(String[] args, Output out) {
+        String name = args[1];
+        int size = Integer.parseInt(args[2]);
+        int warmup = Integer.parseInt(args[3]);
+        int iterations = Integer.parseInt(args[4]);
+        long time = Long.parseLong(args[5]) * 1000000L;
+
+        Keys keys = new Keys(size);
+        ITree<Integer> tree = createTree(name);
+        for (int i = 0; i < size; i++)
+            tree.add(keys.values[i]);
+
+        for (int o = 6; o < args.length; o++) {
+            Workload workload = createWorkload(args[o]);
+            workload.setUp(tree, keys);
+            for (int i = 0; i < warmup + iterations; i++) {
+                long timed = 0;
+                long operations = 0;
+                long end = System.nanoTime() + time;
+                // au moins un lot, même si un lot dure plus qu'une itération
+                do {
+                    timed += workload.batch();
+                    operations += workload.operationsPerBatch();
+                } while (System.nanoTime() < end);
+                double nsPerOperation = (double) timed / operations;
+                if (i < warmup)
+                    out.println("# " + args[o] + " chauffe " + (i + 1) + " : " + format(nsPerOperation) + " ns/op");
+                else
+                    out.println(RESULT + args[o] + " " + nsPerOperation);
+            }
+            if (tree.size() != size)
+                throw new RuntimeException(args[o] + " a laissé " + tree.size() + " valeurs au lieu de " + size);
+        }
+    }
+
+    private static ITree<Integer> createTree(String name) {
+        if (name.equals("AVLTree"))
+            return new AVLTree<Integer>();
+        if (name.equals("BinarySearchTree"))
+            return new BinarySearchTree<Integer>();
+        if (name.startsWith("BTree:"))
+            return new BTree<Integer>(Integer.parseInt(name.substring("BTree:".length())));
+        throw new IllegalArgumentException("Unknown tree " + name + ", expected AVLTree, BinarySearchTree or BTree:<order>");
+    }
+
+    private static Workload createWorkload(String name) {
+        if (name.equals("contains"))
+            return new Contains();
+        if (name.equals("iterate"))
+            return new Iterate();
+        if (name.equals("forEach"))
+            return new ForEach();
+        if (name.equals("add"))
+            return new Add();
+        if (name.equals("remove"))
+            return new Remove();
+        if (name.equals("mixed"))
+            return new Mixed();
+        throw new IllegalArgumentException("Unknown operation " + name + ", expected one of " + Arrays.toString(OPERATIONS));
+    }
+
+    /**
+     * Affiche, pour chaque opération, la moyenne des itérations mesurées de tous les forks,
+     * leur écart type et la meilleure, et les écrit au besoin dans un fichier CSV.
+     */
+    private static void report(Map<String, Map<String, List<Double>>> samples, String csv) {
+        PrintWriter writer = null;
+        try {
+            if (csv != null) {
+                writer = new PrintWriter(new FileWriter(csv));
+                writer.println("operation,tree,size,mean_ns,stddev_ns,min_ns,samples");
+            }
+            for (Map.Entry<String, Map<String, List<Double>>> operation : samples.entrySet()) {
+                System.out.println();
+                System.out.println(operation.getKey() + " (ns/op)");
+                System.out.println(String.format("%-20s %10s %12s %12s %12s", "arbre", "taille", "moyenne", "écart type", "min"));
+                for (Map.Entry<String, List<Double>> entry : operation.getValue().entrySet()) {
+                    List<Double> values = entry.getValue();
+                    double mean = 0;
+                    double min = Double.MAX_VALUE;
+                    for (double value : values) {
+                        mean += value;
+                        min = Math.min(min, value);
+                    }
+                    mean /= values.size();
+                    double variance = 0;
+                    for (double value : values)
+                        variance += (value - mean) * (value - mean);
+                    double stddev = values.size() > 1 ? Math.sqrt(variance / (values.size() - 1)) : 0;
+                    String[] key = entry.getKey().split(" ");
+                    System.out.println(String.format("%-20s %10s %12s %12s %12s", key[0], key[1], format(mean), format(stddev), format(min)));
+                    if (writer != null)
+                        writer.println(operation.getKey() + "," + key[0] + "," + key[1] + "," + mean + "," + stddev + "," + min + "," + values.size());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (writer != null)
+                writer.close();
+        }
+    }
+
+    private static String format(double value) {
+        return String.format("%.2f", value);
+    }
+
+    /**
+     * 2 * size valeurs distinctes, déjà converties en Integer pour que les lots ne mesurent
+     * pas l'allocation des boîtes. Les size premières sont dans l'arbre au départ, les
+     * suivantes n'y sont pas.
+     */
+    private static class Keys {
+
+        private final int size;
+        private final Integer[] values;
+
+        private Keys(int size) {
+            this.size = size;
+            this.values = new Integer[2 * size];
+            for (int i = 0; i < values.length; i++)
+                values[i] = scramble(i);
+        }
+
+        /**
+         * Bijection sur les int : des indices distincts donnent des valeurs distinctes,
+         * réparties comme des valeurs aléatoires.
+         */
+        private static int scramble(int i) {
+            int h = i * 0x9E3779B1;
+            h ^= h >>> 15;
+            h *= 0x85EBCA77;
+            h ^= h >>> 13;
+            return h;
+        }
+
+        /**
+         * Indices aléatoires mais reproductibles dans [0, bound).
+         */
+        private static int[] randomIndexes(int bound, long seed) {
+            java.util.Random rd = new java.util.Random(seed);
+            int[] indexes = new int[QUERIES];
+            for (int i = 0; i < indexes.length; i++)
+                indexes[i] = rd.nextInt(bound);
+            return indexes;
+        }
+    }
+
+    /**
+     * Une opération mesurée. batch() fait operationsPerBatch() opérations et rend le temps
+     * chronométré en nanosecondes ; il doit laisser l'arbre à la même taille.
+     */
+    private static abstract class Workload {
+
+        protected ITree<Integer> tree;
+        protected Keys keys;
+
+        protected void setUp(ITree<Integer> tree, Keys keys) {
+            this.tree = tree;
+            this.keys = keys;
+        }
+
+        protected abstract long batch();
+
+        protected abstract int operationsPerBatch();
+
+        /**
+         * Taille d'un lot d'écritures : assez grande pour la résolution du chronomètre,
+         * assez petite pour ne pas changer la taille de l'arbre de plus d'un huitième.
+         */
+        protected int writeBatch() {
+            return Math.max(1, Math.min(BATCH, keys.size / 8));
+        }
+    }
+
+    /**
+     * contains sur des valeurs tirées au hasard, présentes une fois sur deux.
+     */
+    private static class Contains extends Workload {
+
+        private int[] queries;
+        private int next = 0;
+
+        @Override
+        protected void setUp(ITree<Integer> tree, Keys keys) {
+            super.setUp(tree, keys);
+            queries = Keys.randomIndexes(keys.values.length, 1);
+        }
+
+        @Override
+        protected long batch() {
+            Integer[] values = keys.values;
+            int found = 0;
+            long before = System.nanoTime();
+            for (int i = 0; i < BATCH; i++) {
+                if (tree.contains(values[queries[next]]))
+                    found++;
+                next = (next + 1) & (QUERIES - 1);
+            }
+            long after = System.nanoTime();
+            sink += found;
+            return after - before;
+        }
+
+        @Override
+        protected int operationsPerBatch() {
+            return BATCH;
+        }
+    }
+
+    /**
+     * Parcours complet par l'itérateur de toCollection(), mesuré par valeur rendue.
+     */
+    private static class Iterate extends Workload {
+
+        @Override
+        protected long batch() {
+            long sum = 0;
+            long before = System.nanoTime();
+            for (Integer value : tree.toCollection())
+                sum += value;
+            long after = System.nanoTime();
+            sink += sum;
+            return after - before;
+        }
+
+        @Override
+        protected int operationsPerBatch() {
+            return keys.size;
+        }
+    }
+
+    /**
+     * Parcours complet par forEach, mesuré par valeur rendue.
+     */
+    private static class ForEach extends Workload {
+
+        private long sum = 0;
+
+        private final java.util.function.Consumer<Integer> action = new java.util.function.Consumer<Integer>() {
+            @Override
+            public void accept(Integer value) {
+                sum += value;
+            }
+        };
+
+        @Override
+        protected long batch() {
+            long before = System.nanoTime();
+            tree.forEach(action);
+            long after = System.nanoTime();
+            sink += sum;
+            return after - before;
+        }
+
+        @Override
+        protected int operationsPerBatch() {
+            return keys.size;
+        }
+    }
+
+    /**
+     * add de valeurs absentes, retirées ensuite hors chronomètre.
+     */
+    private static class Add extends Workload {
+
+        private int next = 0;
+
+        @Override
+        protected long batch() {
+            Integer[] values = keys.values;
+            int count = writeBatch();
+            int first = next;
+            long before = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                tree.add(values[keys.size + next]);
+                next = next + 1 == keys.size ? 0 : next + 1;
+            }
+            long after = System.nanoTime();
+            next = first;
+            for (int i = 0; i < count; i++) {
+                tree.remove(values[keys.size + next]);
+                next = next + 1 == keys.size ? 0 : next + 1;
+            }
+            return after - before;
+        }
+
+        @Override
+        protected int operationsPerBatch() {
+            return writeBatch();
+        }
+    }
+
+    /**
+     * remove de valeurs présentes, rajoutées ensuite hors chronomètre.
+     */
+    private static class Remove extends Workload {
+
+        private int next = 0;
+
+        @Override
+        protected long batch() {
+            Integer[] values = keys.values;
+            int count = writeBatch();
+            int first = next;
+            int removed = 0;
+            long before = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (tree.remove(values[next]) != null)
+                    removed++;
+                next = next + 1 == keys.size ? 0 : next + 1;
+            }
+            long after = System.nanoTime();
+            next = first;
+            for (int i = 0; i < count; i++) {
+                tree.add(values[next]);
+                next = next + 1 == keys.size ? 0 : next + 1;
+            }
+            sink += removed;
+            return after - before;
+        }
+
+        @Override
+        protected int operationsPerBatch() {
+            return writeBatch();
+        }
+    }
+
+    /**
+     * MIXED_WRITES% d'écritures, 100 - MIXED_WRITES% de contains sur des valeurs tirées
+     * au hasard. Une écriture retire la valeur si elle est présente et l'ajoute sinon,
+     * la taille reste donc proche de la taille de départ ; elle est rétablie à la fin
+     * de chaque lot, hors chronomètre.
+     */
+    private static class Mixed extends Workload {
+
+        private int[] queries;
+        private boolean[] writes;
+        private boolean[] present;
+        private int next = 0;
+
+        @Override
+        protected void setUp(ITree<Integer> tree, Keys keys) {
+            super.setUp(tree, keys);
+            queries = Keys.randomIndexes(keys.values.length, 2);
+            writes = new boolean[QUERIES];
+            java.util.Random rd = new java.util.Random(3);
+            for (int i = 0; i < writes.length; i++)
+                writes[i] = rd.nextInt(100) < MIXED_WRITES;
+            present = new boolean[keys.values.length];
+            Arrays.fill(present, 0, keys.size, true);
+        }
+
+        @Override
+        protected long batch() {
+            Integer[] values = keys.values;
+            int first = next;
+            int found = 0;
+            long before = System.nanoTime();
+            for (int i = 0; i < BATCH; i++) {
+                int index = queries[next];
+                if (!writes[next]) {
+                    if (tree.contains(values[index]))
+                        found++;
+                } else if (present[index]) {
+                    tree.remove(values[index]);
+                    present[index] = false;
+                } else {
+                    tree.add(values[index]);
+                    present[index] = true;
+                }
+                next = (next + 1) & (QUERIES - 1);
+            }
+            long after = System.nanoTime();
+            // annule les écritures du lot, du plus récent au plus ancien
+            for (int i = BATCH - 1; i >= 0; i--) {
+                int position = (first + i) & (QUERIES - 1);
+                if (!writes[position])
+                    continue;
+                int index = queries[position];
+                if (present[index]) {
+                    tree.remove(values[index]);
+                    present[index] = false;
+                } else {
+                    tree.add(values[index]);
+                    present[index] = true;
+                }
+            }
+            sink += found;
+            return after - before;
+        }
+
+        @Override
+        protected int operationsPerBatch() {
+            return BATCH;
+        }
+    }
+}
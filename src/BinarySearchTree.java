@@ -2,12 +2,12 @@
 import java.lang.reflect.Array;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.Queue;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import interfaces.ITree;
 
@@ -29,14 +29,21 @@ import interfaces.ITree;
 @SuppressWarnings("unchecked")
 public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
 
+    // nombre de modifications de l'arbre, pour les itérateurs fail-fast
     private int modifications = 0;
 
     protected static final Random RANDOM = new Random();
 
+    // en dessous de cette taille, un sous-arbre est construit sans découpage en tâches
+    private static final int PARALLEL_BUILD_THRESHOLD = 1 << 13;
+
     protected Node<T> root = null;
     protected int size = 0;
     protected INodeCreator<T> creator = null;
 
+    // compteurs de l'arbre, null tant que enableStats() n'a pas été appelé
+    private TreeStats.Recorder stats = null;
+
     public enum DepthFirstSearchOrder {
         inOrder, preOrder, postOrder
     }
@@ -63,6 +70,145 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
         this.creator = creator;
     }
 
+    /**
+     * Construit un arbre parfaitement équilibré à partir d'un tableau trié
+     * (par exemple le résultat de getSorted()), en O(n) et sans rotation.
+     *
+     * @param values valeurs dans l'ordre croissant.
+     * @return l'arbre construit.
+     */
+    public static <T extends Comparable<T>> BinarySearchTree<T> fromSorted(T[] values) {
+        return fromSorted(values, false);
+    }
+
+    /**
+     * Construit un arbre parfaitement équilibré à partir d'un tableau trié,
+     * en O(n) et sans rotation.
+     *
+     * @param values valeurs dans l'ordre croissant.
+     * @param parallel construit les deux moitiés en parallèle (fork-join).
+     * @return l'arbre construit.
+     */
+    public static <T extends Comparable<T>> BinarySearchTree<T> fromSorted(T[] values, boolean parallel) {
+        BinarySearchTree<T> tree = new BinarySearchTree<T>();
+        tree.loadSorted(values, parallel);
+        return tree;
+    }
+
+    /**
+     * Remplace le contenu de l'arbre par les valeurs triées. La valeur du milieu
+     * devient la racine et chaque moitié est construite de la même façon.
+     *
+     * @param values valeurs dans l'ordre croissant.
+     * @param parallel construit les deux moitiés en parallèle (fork-join).
+     */
+    protected void loadSorted(T[] values, boolean parallel) {
+        for (int i = 1; i < values.length; i++) {
+            if (values[i - 1].compareTo(values[i]) > 0)
+                throw new IllegalArgumentException("Values are not sorted at index " + i);
+        }
+        if (parallel && values.length > PARALLEL_BUILD_THRESHOLD)
+            root = ForkJoinPool.commonPool().invoke(new BuildTask<T>(this, values, 0, values.length));
+        else
+            root = build(values, 0, values.length);
+        size = values.length;
+        modifications++;
+    }
+
+    /**
+     * Remplace tout le contenu de l'arbre par un sous-arbre déjà construit.
+     *
+     * @param newRoot racine du nouveau contenu, peut être NULL.
+     * @param newSize nombre de valeurs du nouveau contenu.
+     */
+    protected void replaceContent(Node<T> newRoot, int newSize) {
+        root = newRoot;
+        if (root != null)
+            root.parent = null;
+        size = newSize;
+        modifications++;
+    }
+
+    /**
+     * Construit le sous-arbre équilibré des valeurs de l'intervalle [from, to).
+     *
+     * @return racine du sous-arbre, sans parent.
+     */
+    protected Node<T> build(T[] values, int from, int to) {
+        if (from >= to)
+            return null;
+        int middle = middle(values, from, to);
+        return link(values[middle], build(values, from, middle), build(values, middle + 1, to));
+    }
+
+    /**
+     * Indice de la racine de l'intervalle [from, to). Les valeurs égales à la racine
+     * doivent rester à gauche : on se place sur la dernière d'entre elles.
+     */
+    private static <T extends Comparable<T>> int middle(T[] values, int from, int to) {
+        int middle = (from + to - 1) >>> 1;
+        while (middle + 1 < to && values[middle + 1].compareTo(values[middle]) == 0)
+            middle++;
+        return middle;
+    }
+
+    /**
+     * Crée le nœud de la valeur avec ses deux sous-arbres déjà construits.
+     */
+    private Node<T> link(T value, Node<T> lesser, Node<T> greater) {
+        Node<T> node = this.creator.createNewNode(null, value);
+        node.lesser = lesser;
+        if (lesser != null)
+            lesser.parent = node;
+        node.greater = greater;
+        if (greater != null)
+            greater.parent = node;
+        built(node);
+        return node;
+    }
+
+    /**
+     * Appelée sur chaque nœud construit par loadSorted, après ses enfants.
+     *
+     * @param node nœud dont les deux sous-arbres sont complets.
+     */
+    protected void built(Node<T> node) { }
+
+    /**
+     * Construction fork-join : les deux moitiés d'un grand intervalle sont
+     * construites en parallèle.
+     */
+    private static class BuildTask<T extends Comparable<T>> extends RecursiveTask<Node<T>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BinarySearchTree<T> tree;
+        private final T[] values;
+        private final int from;
+        private final int to;
+
+        private BuildTask(BinarySearchTree<T> tree, T[] values, int from, int to) {
+            this.tree = tree;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected Node<T> compute() {
+            if (to - from <= PARALLEL_BUILD_THRESHOLD)
+                return tree.build(values, from, to);
+            int middle = middle(values, from, to);
+            BuildTask<T> lesser = new BuildTask<T>(tree, values, from, middle);
+            lesser.fork();
+            Node<T> greater = new BuildTask<T>(tree, values, middle + 1, to).compute();
+            return tree.link(values[middle], lesser.join(), greater);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -87,11 +233,14 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
         if (root == null) {
             root = newNode;
             size++;
+            modifications++;
             return newNode;
         }
 
         Node<T> node = root;
+        int visited = 0;
         while (node != null) {
+            visited++;
             if (newNode.id.compareTo(node.id) <= 0) {
                 // Less than or equal to goes left
                 if (node.lesser == null) {
@@ -99,6 +248,9 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
                     node.lesser = newNode;
                     newNode.parent = node;
                     size++;
+                    modifications++;
+                    if (stats != null)
+                        stats.path(visited, visited, visited + 1);
                     return newNode;
                 }
                 node = node.lesser;
@@ -109,6 +261,9 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
                     node.greater = newNode;
                     newNode.parent = node;
                     size++;
+                    modifications++;
+                    if (stats != null)
+                        stats.path(visited, visited, visited + 1);
                     return newNode;
                 }
                 node = node.greater;
@@ -136,16 +291,21 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
      */
     protected Node<T> getNode(T value) {
         Node<T> node = root;
+        int visited = 0;
         while (node != null && node.id != null) {
-            if (value.compareTo(node.id) < 0) {
+            visited++;
+            int cmp = value.compareTo(node.id);
+            if (cmp < 0) {
                 node = node.lesser;
-            } else if (value.compareTo(node.id) > 0) {
+            } else if (cmp > 0) {
                 node = node.greater;
-            } else if (value.compareTo(node.id) == 0) {
-                return node;
+            } else {
+                break;
             }
         }
-        return null;
+        if (stats != null)
+            stats.path(visited, visited, visited);
+        return (node != null && node.id != null) ? node : null;
     }
 
     /**
@@ -155,6 +315,8 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
      *            Racine de l'arbre à tourner à gauche.
      */
     protected void rotateLeft(Node<T> node) {
+        if (stats != null)
+            stats.rotation();
         Node<T> parent = node.parent;
         Node<T> greater = node.greater;
         Node<T> lesser = greater.lesser;
@@ -189,6 +351,8 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
      *            Racine de l'arbre à tourner à droite.
      */
     protected void rotateRight(Node<T> node) {
+        if (stats != null)
+            stats.rotation();
         Node<T> parent = node.parent;
         Node<T> lesser = node.lesser;
         Node<T> greater = lesser.greater;
@@ -264,6 +428,240 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
         return lesser;
     }
 
+    /**
+     * @param value
+     * @return la plus petite valeur supérieure ou égale à value, null s'il n'y en a pas.
+     */
+    public T ceiling(T value) {
+        Node<T> node = getCeilingNode(value, true);
+        return (node != null) ? node.id : null;
+    }
+
+    /**
+     * @param value
+     * @return la plus petite valeur strictement supérieure à value, null s'il n'y en a pas.
+     */
+    public T higher(T value) {
+        Node<T> node = getCeilingNode(value, false);
+        return (node != null) ? node.id : null;
+    }
+
+    /**
+     * @param value
+     * @return la plus grande valeur inférieure ou égale à value, null s'il n'y en a pas.
+     */
+    public T floor(T value) {
+        Node<T> node = getFloorNode(value, true);
+        return (node != null) ? node.id : null;
+    }
+
+    /**
+     * @param value
+     * @return la plus grande valeur strictement inférieure à value, null s'il n'y en a pas.
+     */
+    public T lower(T value) {
+        Node<T> node = getFloorNode(value, false);
+        return (node != null) ? node.id : null;
+    }
+
+    /**
+     * Valeurs v telles que from <= v < to, dans l'ordre croissant, en O(log n + k).
+     *
+     * @param from borne inférieure incluse.
+     * @param to borne supérieure exclue.
+     * @return liste des valeurs de l'intervalle.
+     */
+    public java.util.List<T> range(T from, T to) {
+        java.util.List<T> values = new java.util.ArrayList<T>();
+        java.util.Iterator<T> cursor = cursor(from);
+        while (cursor.hasNext()) {
+            T value = cursor.next();
+            if (value.compareTo(to) >= 0)
+                break;
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Curseur paresseux qui se place en O(log n) sur la première valeur supérieure ou
+     * égale à from, puis rend les valeurs suivantes dans l'ordre croissant en suivant
+     * les liens vers les parents, sans copier l'arbre. L'arbre ne doit pas être modifié
+     * pendant le parcours.
+     *
+     * @param from borne inférieure incluse.
+     * @return itérateur sur les valeurs supérieures ou égales à from.
+     */
+    public java.util.Iterator<T> cursor(T from) {
+        return new BinarySearchTreeCursor<T>(this, getCeilingNode(from, true));
+    }
+
+    /**
+     * Premier nœud, dans l'ordre infixe, dont la valeur est supérieure (ou égale si
+     * inclusive) à value. Les valeurs égales peuvent se trouver des deux côtés d'un nœud
+     * après des rotations, la descente ne s'arrête donc pas sur une égalité.
+     */
+    protected Node<T> getCeilingNode(T value, boolean inclusive) {
+        Node<T> candidate = null;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = node.id.compareTo(value);
+            if (cmp > 0 || (inclusive && cmp == 0)) {
+                candidate = node;
+                node = node.lesser;
+            } else {
+                node = node.greater;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Dernier nœud, dans l'ordre infixe, dont la valeur est inférieure (ou égale si
+     * inclusive) à value.
+     */
+    protected Node<T> getFloorNode(T value, boolean inclusive) {
+        Node<T> candidate = null;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = node.id.compareTo(value);
+            if (cmp < 0 || (inclusive && cmp == 0)) {
+                candidate = node;
+                node = node.greater;
+            } else {
+                node = node.lesser;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Successeur du nœud dans l'ordre infixe, en O(1) amorti sur un parcours complet.
+     *
+     * @param node
+     * @return nœud suivant ou NULL si node est le dernier.
+     */
+    protected Node<T> getSuccessor(Node<T> node) {
+        if (node.greater != null) {
+            node = node.greater;
+            while (node.lesser != null)
+                node = node.lesser;
+            return node;
+        }
+        Node<T> parent = node.parent;
+        while (parent != null && parent.greater == node) {
+            node = parent;
+            parent = parent.parent;
+        }
+        return parent;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Un lot assez grand par rapport à l'arbre est trié puis fusionné avec les valeurs
+     * de l'arbre, qui est reconstruit équilibré en O(n + m) ; sinon les valeurs sont
+     * ajoutées une à une.
+     */
+    @Override
+    public int addAll(T[] values) {
+        if (!worthRebuilding(values.length))
+            return ITree.super.addAll(values);
+        T[] batch = values.clone();
+        Arrays.sort(batch);
+        T[] current = sortedValues();
+        T[] merged = (T[]) new Comparable[current.length + batch.length];
+        int i = 0, j = 0, k = 0;
+        while (i < current.length && j < batch.length)
+            merged[k++] = (current[i].compareTo(batch[j]) <= 0) ? current[i++] : batch[j++];
+        while (i < current.length)
+            merged[k++] = current[i++];
+        while (j < batch.length)
+            merged[k++] = batch[j++];
+        loadSorted(merged, false);
+        return batch.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int addAll(java.util.Collection<? extends T> values) {
+        return addAll((T[]) values.toArray(new Comparable[values.size()]));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Un lot assez grand par rapport à l'arbre est trié puis soustrait des valeurs
+     * de l'arbre par fusion, et l'arbre est reconstruit équilibré en O(n + m) ; sinon
+     * les valeurs sont retirées une à une.
+     */
+    @Override
+    public int removeAll(T[] values) {
+        if (!worthRebuilding(values.length))
+            return ITree.super.removeAll(values);
+        T[] batch = values.clone();
+        Arrays.sort(batch);
+        T[] current = sortedValues();
+        T[] kept = (T[]) new Comparable[current.length];
+        int i = 0, j = 0, k = 0;
+        while (i < current.length && j < batch.length) {
+            int cmp = current[i].compareTo(batch[j]);
+            if (cmp < 0) {
+                kept[k++] = current[i++];
+            } else {
+                // une valeur du lot retire au plus une occurrence
+                if (cmp == 0)
+                    i++;
+                j++;
+            }
+        }
+        while (i < current.length)
+            kept[k++] = current[i++];
+        loadSorted(Arrays.copyOf(kept, k), false);
+        return current.length - k;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int removeAll(java.util.Collection<? extends T> values) {
+        return removeAll((T[]) values.toArray(new Comparable[values.size()]));
+    }
+
+    /**
+     * Compare le coût de m opérations en O(log n) à celui d'une fusion suivie d'une
+     * reconstruction en O(n + m), dont chaque étape coûte une allocation de nœud.
+     *
+     * @param batchSize taille du lot.
+     * @return vrai si la reconstruction est moins chère.
+     */
+    private boolean worthRebuilding(int batchSize) {
+        long total = (long) size + batchSize;
+        int log = 64 - Long.numberOfLeadingZeros(total);
+        return (long) batchSize * log > 2 * total;
+    }
+
+    /**
+     * Valeurs de l'arbre dans l'ordre croissant, par un parcours infixe sans pile.
+     *
+     * @return les valeurs triées.
+     */
+    private T[] sortedValues() {
+        final T[] values = (T[]) new Comparable[size];
+        forEach(new java.util.function.Consumer<T>() {
+            private int index = 0;
+
+            @Override
+            public void accept(T value) {
+                values[index++] = value;
+            }
+        });
+        return values;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -329,7 +727,6 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
                 if (replacement == null)
                     replacement = nodeToRemoved.greater;
             }
-            modifications++;
         } else if (nodeToRemoved.lesser != null && nodeToRemoved.greater == null) {
             replacement = nodeToRemoved.lesser;
         } else if (nodeToRemoved.greater != null && nodeToRemoved.lesser == null) {
@@ -387,16 +784,17 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
             root = replacementNode;
             if (root != null)
                 root.parent = null;
-        } else if (parent.lesser != null && (parent.lesser.id.compareTo(nodeToRemoved.id) == 0)) {
+        } else if (parent.lesser == nodeToRemoved) {
             parent.lesser = replacementNode;
             if (replacementNode != null)
                 replacementNode.parent = parent;
-        } else if (parent.greater != null && (parent.greater.id.compareTo(nodeToRemoved.id) == 0)) {
+        } else if (parent.greater == nodeToRemoved) {
             parent.greater = replacementNode;
             if (replacementNode != null)
                 replacementNode.parent = parent;
         }
         size--;
+        modifications++;
     }
 
     /**
@@ -406,6 +804,30 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
     public void clear() {
         root = null;
         size = 0;
+        modifications++;
+    }
+
+    /**
+     * Active les compteurs de l'arbre (comparaisons, nœuds visités, rotations,
+     * profondeur maximale), ou les remet à zéro s'ils l'étaient déjà.
+     */
+    public void enableStats() {
+        stats = new TreeStats.Recorder();
+    }
+
+    /**
+     * Désactive les compteurs de l'arbre.
+     */
+    public void disableStats() {
+        stats = null;
+    }
+
+    /**
+     * @return instantané des compteurs de l'arbre, null s'ils ne sont pas activés.
+     */
+    public TreeStats getStats() {
+        TreeStats.Recorder recorder = stats;
+        return (recorder != null) ? recorder.snapshot() : null;
     }
 
     /**
@@ -467,7 +889,8 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
      *
      */
     public static <T extends Comparable<T>> T[] getBFS(Node<T> start, int size) {
-        final Queue<Node<T>> queue = new ArrayDeque<Node<T>>();
+        // un niveau a au plus (size + 1) / 2 nœuds, la file ne grandit jamais
+        final Queue<Node<T>> queue = new ArrayDeque<Node<T>>(size / 2 + 1);
         final T[] values = (T[])Array.newInstance(start.id.getClass(), size);
         int count = 0;
         Node<T> node = start;
@@ -511,68 +934,48 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
      *
      */
     public static <T extends Comparable<T>> T[] getDFS(DepthFirstSearchOrder order, Node<T> start, int size) {
-        final Set<Node<T>> added = new HashSet<Node<T>>(2);
         final T[] nodes = (T[])Array.newInstance(start.id.getClass(), size);
         int index = 0;
+        // parcours sans pile : le nœud d'où l'on vient dit si l'on descend ou si l'on
+        // remonte d'un enfant
+        Node<T> top = start.parent;
+        Node<T> previous = top;
         Node<T> node = start;
-        while (index < size && node != null) {
-            Node<T> parent = node.parent;
-            Node<T> lesser = (node.lesser != null && !added.contains(node.lesser)) ? node.lesser : null;
-            Node<T> greater = (node.greater != null && !added.contains(node.greater)) ? node.greater : null;
-
-            if (parent == null && lesser == null && greater == null) {
-                if (!added.contains(node))
+        while (node != top) {
+            Node<T> next;
+            if (previous == node.parent) {
+                if (order == DepthFirstSearchOrder.preOrder)
                     nodes[index++] = node.id;
-                break;
-            }
-
-            if (order == DepthFirstSearchOrder.inOrder) {
-                if (lesser != null) {
-                    node = lesser;
+                if (node.lesser != null) {
+                    next = node.lesser;
                 } else {
-                    if (!added.contains(node)) {
+                    if (order == DepthFirstSearchOrder.inOrder)
                         nodes[index++] = node.id;
-                        added.add(node);
-                    }
-                    if (greater != null) {
-                        node = greater;
-                    } else if (added.contains(node)) {
-                        node = parent;
+                    if (node.greater != null) {
+                        next = node.greater;
                     } else {
-                        // We should not get here. Stop the loop!
-                        node = null;
+                        if (order == DepthFirstSearchOrder.postOrder)
+                            nodes[index++] = node.id;
+                        next = node.parent;
                     }
                 }
-            } else if (order == DepthFirstSearchOrder.preOrder) {
-                if (!added.contains(node)) {
+            } else if (previous == node.lesser && previous != null) {
+                if (order == DepthFirstSearchOrder.inOrder)
                     nodes[index++] = node.id;
-                    added.add(node);
-                }
-                if (lesser != null) {
-                    node = lesser;
-                } else if (greater != null) {
-                    node = greater;
-                } else if (added.contains(node)) {
-                    node = parent;
+                if (node.greater != null) {
+                    next = node.greater;
                 } else {
-                    // We should not get here. Stop the loop!
-                    node = null;
-                }
-            } else {
-                // post-Order
-                if (lesser != null) {
-                    node = lesser;
-                } else {
-                    if (greater != null) {
-                        node = greater;
-                    } else {
-                        // lesser==null && greater==null
+                    if (order == DepthFirstSearchOrder.postOrder)
                         nodes[index++] = node.id;
-                        added.add(node);
-                        node = parent;
-                    }
+                    next = node.parent;
                 }
+            } else {
+                if (order == DepthFirstSearchOrder.postOrder)
+                    nodes[index++] = node.id;
+                next = node.parent;
             }
+            previous = node;
+            node = next;
         }
         return nodes;
     }
@@ -586,6 +989,26 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
         return getDFS(DepthFirstSearchOrder.inOrder);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Parcours infixe par les liens vers les parents, sans allocation.
+     */
+    @Override
+    public void forEach(java.util.function.Consumer<? super T> action) {
+        int expectedModifications = modifications;
+        Node<T> node = root;
+        if (node != null) {
+            while (node.lesser != null)
+                node = node.lesser;
+        }
+        for (; node != null; node = getSuccessor(node)) {
+            action.accept(node.id);
+            if (modifications != expectedModifications)
+                throw new java.util.ConcurrentModificationException();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -686,6 +1109,41 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
         }
     }
 
+    private static class BinarySearchTreeCursor<C extends Comparable<C>> implements java.util.Iterator<C> {
+
+        private BinarySearchTree<C> tree = null;
+        private BinarySearchTree.Node<C> next = null;
+        private int expectedModifications;
+
+        private BinarySearchTreeCursor(BinarySearchTree<C> tree, BinarySearchTree.Node<C> first) {
+            this.tree = tree;
+            this.next = first;
+            this.expectedModifications = tree.modifications;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public C next() {
+            if (tree.modifications != expectedModifications)
+                throw new java.util.ConcurrentModificationException();
+            if (next == null)
+                throw new java.util.NoSuchElementException();
+            C value = next.id;
+            next = tree.getSuccessor(next);
+            return value;
+        }
+    }
+
     private static class JavaCompatibleBinarySearchTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
 
         protected BinarySearchTree<T> tree = null;
@@ -738,11 +1196,27 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
 
             private BinarySearchTree<C> tree = null;
             private BinarySearchTree.Node<C> last = null;
-            private Deque<BinarySearchTree.Node<C>> toVisit = new ArrayDeque<BinarySearchTree.Node<C>>();
+            // parcours infixe par les parents : les nœuds gardent leur place dans l'ordre
+            // même quand remove() rééquilibre l'arbre par rotations
+            private BinarySearchTree.Node<C> next = null;
+            private int expectedModifications;
 
             protected BinarySearchTreeIterator(BinarySearchTree<C> tree) {
                 this.tree = tree;
-                if (tree.root!=null) toVisit.add(tree.root);
+                this.expectedModifications = tree.modifications;
+                next = tree.root;
+                if (next != null) {
+                    while (next.lesser != null)
+                        next = next.lesser;
+                }
+            }
+
+            /**
+             * L'arbre ne doit pas être modifié pendant le parcours, sauf par remove().
+             */
+            private void checkForComodification() {
+                if (tree.modifications != expectedModifications)
+                    throw new java.util.ConcurrentModificationException();
             }
 
             /**
@@ -750,8 +1224,7 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
              */
             @Override
             public boolean hasNext() {
-                if (toVisit.size()>0) return true; 
-                return false;
+                return next != null;
             }
 
             /**
@@ -759,19 +1232,13 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
              */
             @Override
             public C next() {
-                while (toVisit.size()>0) {
-                    // Go thru the current nodes
-                    BinarySearchTree.Node<C> n = toVisit.pop();
-
-                    // Add non-null children
-                    if (n.lesser!=null) toVisit.add(n.lesser);
-                    if (n.greater!=null) toVisit.add(n.greater);
-
-                    // Update last node (used in remove method)
-                    last = n;
-                    return n.id;
-                }
-                return null;
+                checkForComodification();
+                if (next == null)
+                    throw new java.util.NoSuchElementException();
+                // Update last node (used in remove method)
+                last = next;
+                next = tree.getSuccessor(next);
+                return last.id;
             }
 
             /**
@@ -779,7 +1246,12 @@ public class BinarySearchTree<T extends Comparable<T>> implements ITree<T> {
              */
             @Override
             public void remove() {
+                if (last == null)
+                    throw new IllegalStateException();
+                checkForComodification();
                 tree.removeNode(last);
+                last = null;
+                expectedModifications = tree.modifications;
             }
         }
     }
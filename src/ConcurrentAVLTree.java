@@ -0,0 +1,603 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+import interfaces.ITree;
+
+/**
+ * Arbre AVL dont les recherches ne prennent aucun verrou, à la manière de
+ * Bronson, Casper, Chafi et Olukotun (A Practical Concurrent Binary Search Tree).
+ * <p>
+ * Chaque nœud porte un numéro de version. Une rotation marque le nœud qui descend
+ * (son intervalle de clés rétrécit) pendant qu'elle modifie les liens, puis incrémente
+ * sa version ; un nœud retiré de l'arbre est marqué comme détaché. Une recherche lit
+ * la version d'un nœud, lit le lien vers l'enfant puis revérifie la version : si elle
+ * a changé, la recherche reprend depuis le nœud précédent.
+ * <p>
+ * Les écritures sont sérialisées entre elles par un verrou unique, qui ne bloque
+ * jamais les lectures. Les valeurs égales partagent un nœud avec un compteur ; un
+ * nœud dont le compteur tombe à zéro et qui a deux enfants reste dans l'arbre comme
+ * nœud de routage jusqu'à ce qu'il puisse être détaché sans déplacer de clé.
+ * <p>
+ * @see <a href="https://doi.org/10.1145/1693453.1693488">A Practical Concurrent Binary Search Tree</a>
+ * <br>
+ */
+public class ConcurrentAVLTree<T extends Comparable<T>> implements ITree<T> {
+
+    // bits de la version d'un nœud, le compteur de changements est au-dessus
+    private static final long UNLINKED = 1L;
+    private static final long SHRINKING = 2L;
+    private static final long CHANGE = 4L;
+
+    // résultats d'une tentative de recherche
+    private static final int NOT_FOUND = 0;
+    private static final int FOUND = 1;
+    private static final int RETRY = 2;
+
+    // la racine est l'enfant droit de ce nœud, qui ne change jamais
+    private final Node<T> rootHolder = new Node<T>(null, null);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile int size = 0;
+
+    /**
+     * Constructeur par défaut.
+     */
+    public ConcurrentAVLTree() { }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(T value) {
+        while (true) {
+            Node<T> root = rootHolder.greater;
+            if (root == null)
+                return false;
+            int cmp = value.compareTo(root.id);
+            if (cmp == 0)
+                return root.count > 0;
+            long version = root.version;
+            if (isChanging(version)) {
+                waitUntilNotChanging(root);
+            } else if (root == rootHolder.greater) {
+                int result = attemptContains(value, root, cmp, version);
+                if (result != RETRY)
+                    return (result == FOUND);
+            }
+        }
+    }
+
+    /**
+     * Recherche optimiste sous le nœud, valable tant que sa version n'a pas changé.
+     *
+     * @param value valeur cherchée.
+     * @param node nœud dont la version a été lue.
+     * @param cmp comparaison de la valeur avec la clé du nœud.
+     * @param version version du nœud lue avant la comparaison.
+     * @return FOUND, NOT_FOUND, ou RETRY si le nœud a été modifié entre temps.
+     */
+    private int attemptContains(T value, Node<T> node, int cmp, long version) {
+        while (true) {
+            Node<T> child = node.child(cmp);
+            if (node.version != version)
+                return RETRY;
+            if (child == null)
+                return NOT_FOUND;
+            int childCmp = value.compareTo(child.id);
+            if (childCmp == 0)
+                return (child.count > 0) ? FOUND : NOT_FOUND;
+
+            long childVersion = child.version;
+            if (isChanging(childVersion)) {
+                // une rotation est en cours sous ce nœud, on relit le lien une fois finie
+                waitUntilNotChanging(child);
+                if (node.version != version)
+                    return RETRY;
+            } else if (child != node.child(cmp)) {
+                if (node.version != version)
+                    return RETRY;
+            } else {
+                if (node.version != version)
+                    return RETRY;
+                int result = attemptContains(value, child, childCmp, childVersion);
+                if (result != RETRY)
+                    return result;
+            }
+        }
+    }
+
+    private static boolean isChanging(long version) {
+        return (version & (SHRINKING | UNLINKED)) != 0;
+    }
+
+    private static void waitUntilNotChanging(Node<?> node) {
+        while ((node.version & SHRINKING) != 0)
+            Thread.yield();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(T value) {
+        writeLock.lock();
+        try {
+            Node<T> parent = rootHolder;
+            int cmp = 1;
+            Node<T> node = rootHolder.greater;
+            while (node != null) {
+                cmp = value.compareTo(node.id);
+                if (cmp == 0) {
+                    // valeur déjà présente, ou nœud de routage qui redevient une valeur
+                    node.count = node.count + 1;
+                    size = size + 1;
+                    return true;
+                }
+                parent = node;
+                node = node.child(cmp);
+            }
+
+            // le nœud est complet avant d'être visible par les lecteurs
+            Node<T> added = new Node<T>(parent, value);
+            if (cmp < 0)
+                parent.lesser = added;
+            else
+                parent.greater = added;
+            size = size + 1;
+            rebalance(parent);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T remove(T value) {
+        writeLock.lock();
+        try {
+            Node<T> node = rootHolder.greater;
+            while (node != null) {
+                int cmp = value.compareTo(node.id);
+                if (cmp == 0)
+                    break;
+                node = node.child(cmp);
+            }
+            if (node == null || node.count == 0)
+                return null;
+
+            node.count = node.count - 1;
+            size = size - 1;
+            if (node.count == 0 && (node.lesser == null || node.greater == null)) {
+                Node<T> parent = node.parent;
+                unlink(node);
+                rebalance(parent);
+            }
+            return node.id;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Détache un nœud qui a au plus un enfant, remplacé par cet enfant.
+     *
+     * @param node nœud sans valeur à détacher.
+     */
+    private void unlink(Node<T> node) {
+        Node<T> parent = node.parent;
+        Node<T> splice = (node.lesser != null) ? node.lesser : node.greater;
+        if (parent.lesser == node)
+            parent.lesser = splice;
+        else
+            parent.greater = splice;
+        if (splice != null)
+            splice.parent = parent;
+        node.version = UNLINKED;
+    }
+
+    /**
+     * Remonte du nœud jusqu'à la racine en mettant à jour les hauteurs, en équilibrant
+     * par rotation et en détachant les nœuds de routage qui n'ont plus deux enfants.
+     *
+     * @param start premier nœud dont un sous-arbre a changé.
+     */
+    private void rebalance(Node<T> start) {
+        Node<T> node = start;
+        while (node != rootHolder) {
+            if (node.count == 0 && (node.lesser == null || node.greater == null)) {
+                Node<T> parent = node.parent;
+                unlink(node);
+                node = parent;
+                continue;
+            }
+
+            int balanceFactor = height(node.lesser) - height(node.greater);
+            if (balanceFactor > 1) {
+                Node<T> lesser = node.lesser;
+                Node<T> top = lesser;
+                if (height(lesser.lesser) < height(lesser.greater)) {
+                    // LEFT_RIGHT
+                    top = lesser.greater;
+                    rotateLeft(lesser);
+                    unlinkRouting(lesser);
+                }
+                rotateRight(node);
+                unlinkRouting(node);
+                // la nouvelle racine du sous-arbre est réexaminée
+                node = top;
+                continue;
+            } else if (balanceFactor < -1) {
+                Node<T> greater = node.greater;
+                Node<T> top = greater;
+                if (height(greater.greater) < height(greater.lesser)) {
+                    // RIGHT_LEFT
+                    top = greater.lesser;
+                    rotateRight(greater);
+                    unlinkRouting(greater);
+                }
+                rotateLeft(node);
+                unlinkRouting(node);
+                node = top;
+                continue;
+            }
+
+            node.updateHeight();
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Détache un nœud descendu par une rotation s'il est devenu un nœud de routage
+     * avec moins de deux enfants.
+     *
+     * @param node nœud descendu.
+     */
+    private void unlinkRouting(Node<T> node) {
+        if (node.count == 0 && (node.lesser == null || node.greater == null))
+            unlink(node);
+    }
+
+    /**
+     * Rotation à gauche : l'enfant droit prend la place du nœud, qui descend à gauche.
+     * Le nœud est marqué pendant que son intervalle de clés rétrécit.
+     *
+     * @param node nœud qui descend.
+     */
+    private void rotateLeft(Node<T> node) {
+        Node<T> parent = node.parent;
+        Node<T> greater = node.greater;
+        Node<T> lesser = greater.lesser;
+
+        node.version = node.version | SHRINKING;
+        node.greater = lesser;
+        if (lesser != null)
+            lesser.parent = node;
+        greater.lesser = node;
+        node.parent = greater;
+        if (parent.lesser == node)
+            parent.lesser = greater;
+        else
+            parent.greater = greater;
+        greater.parent = parent;
+
+        node.updateHeight();
+        greater.updateHeight();
+        node.version = (node.version & ~SHRINKING) + CHANGE;
+    }
+
+    /**
+     * Rotation à droite : l'enfant gauche prend la place du nœud, qui descend à droite.
+     * Le nœud est marqué pendant que son intervalle de clés rétrécit.
+     *
+     * @param node nœud qui descend.
+     */
+    private void rotateRight(Node<T> node) {
+        Node<T> parent = node.parent;
+        Node<T> lesser = node.lesser;
+        Node<T> greater = lesser.greater;
+
+        node.version = node.version | SHRINKING;
+        node.lesser = greater;
+        if (greater != null)
+            greater.parent = node;
+        lesser.greater = node;
+        node.parent = lesser;
+        if (parent.lesser == node)
+            parent.lesser = lesser;
+        else
+            parent.greater = lesser;
+        lesser.parent = parent;
+
+        node.updateHeight();
+        lesser.updateHeight();
+        node.version = (node.version & ~SHRINKING) + CHANGE;
+    }
+
+    private static int height(Node<?> node) {
+        return (node == null) ? 0 : node.height;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        writeLock.lock();
+        try {
+            rootHolder.greater = null;
+            size = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean validate() {
+        writeLock.lock();
+        try {
+            Node<T> root = rootHolder.greater;
+            if (root == null)
+                return size == 0;
+            if (root.parent != rootHolder)
+                return false;
+            int[] count = new int[1];
+            if (validateNode(root, null, null, count) < 0)
+                return false;
+            return count[0] == size;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Validation du sous-arbre : ordre strict des clés, liens parents, hauteurs,
+     * équilibre et nœuds de routage.
+     *
+     * @param node racine du sous-arbre.
+     * @param min clé strictement inférieure à tout le sous-arbre, ou null.
+     * @param max clé strictement supérieure à tout le sous-arbre, ou null.
+     * @param count reçoit le nombre de valeurs du sous-arbre.
+     * @return hauteur du sous-arbre, -1 s'il est invalide.
+     */
+    private int validateNode(Node<T> node, T min, T max, int[] count) {
+        if (node == null)
+            return 0;
+        if (min != null && node.id.compareTo(min) <= 0)
+            return -1;
+        if (max != null && node.id.compareTo(max) >= 0)
+            return -1;
+        if (node.version % CHANGE != 0)
+            return -1;
+        if (node.count == 0 && (node.lesser == null || node.greater == null))
+            return -1;
+        if ((node.lesser != null && node.lesser.parent != node) || (node.greater != null && node.greater.parent != node))
+            return -1;
+        count[0] += node.count;
+
+        int lesserHeight = validateNode(node.lesser, min, node.id, count);
+        int greaterHeight = validateNode(node.greater, node.id, max, count);
+        if (lesserHeight < 0 || greaterHeight < 0)
+            return -1;
+        if (Math.abs(lesserHeight - greaterHeight) > 1)
+            return -1;
+        int height = 1 + Math.max(lesserHeight, greaterHeight);
+        return (height == node.height) ? height : -1;
+    }
+
+    /**
+     * Copie des valeurs de l'arbre dans l'ordre croissant.
+     *
+     * @return les valeurs triées.
+     */
+    @SuppressWarnings("unchecked")
+    private T[] snapshot() {
+        writeLock.lock();
+        try {
+            T[] values = (T[]) new Comparable[size];
+            snapshot(rootHolder.greater, values, 0);
+            return values;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private int snapshot(Node<T> node, T[] values, int index) {
+        if (node == null)
+            return index;
+        index = snapshot(node.lesser, values, index);
+        for (int i = 0; i < node.count; i++)
+            values[index++] = node.id;
+        return snapshot(node.greater, values, index);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * L'itération se fait sur une copie de l'arbre prise à la création de l'itérateur.
+     */
+    @Override
+    public java.util.Collection<T> toCollection() {
+        return (new JavaCompatibleConcurrentAVLTree<T>(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        writeLock.lock();
+        try {
+            return TreePrinter.getString(rootHolder.greater);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static class Node<T extends Comparable<T>> {
+
+        private final T id;
+        // nombre de valeurs égales à id, zéro pour un nœud de routage
+        private volatile int count = 1;
+        private volatile long version = 0;
+        private volatile Node<T> lesser = null;
+        private volatile Node<T> greater = null;
+
+        // lus et écrits seulement sous le verrou d'écriture
+        private Node<T> parent = null;
+        private int height = 1;
+
+        private Node(Node<T> parent, T id) {
+            this.parent = parent;
+            this.id = id;
+        }
+
+        private Node<T> child(int cmp) {
+            return (cmp < 0) ? lesser : greater;
+        }
+
+        private void updateHeight() {
+            height = 1 + Math.max(ConcurrentAVLTree.height(lesser), ConcurrentAVLTree.height(greater));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "id=" + id + " count=" + count + " height=" + height + " version=" + version;
+        }
+    }
+
+    private static class TreePrinter {
+
+        public static <T extends Comparable<T>> String getString(Node<T> root) {
+            if (root == null) return "Tree has no nodes.";
+            return getString(root, "", true);
+        }
+
+        private static <T extends Comparable<T>> String getString(Node<T> node, String prefix, boolean isTail) {
+            StringBuilder builder = new StringBuilder();
+
+            builder.append(prefix).append((isTail ? "└── " : "├── "));
+            builder.append("(").append(node.height).append(") ").append(node.id);
+            if (node.count != 1)
+                builder.append(" x").append(node.count);
+            builder.append("\n");
+
+            Node<T> lesser = node.lesser;
+            Node<T> greater = node.greater;
+            if (greater != null)
+                builder.append(getString(greater, prefix + (isTail ? "    " : "│   "), lesser == null));
+            if (lesser != null)
+                builder.append(getString(lesser, prefix + (isTail ? "    " : "│   "), true));
+
+            return builder.toString();
+        }
+    }
+
+    public static class JavaCompatibleConcurrentAVLTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
+
+        private ConcurrentAVLTree<T> tree = null;
+
+        public JavaCompatibleConcurrentAVLTree(ConcurrentAVLTree<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(T value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean remove(Object value) {
+            return (tree.remove((T)value)!=null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean contains(Object value) {
+            return tree.contains((T)value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public java.util.Iterator<T> iterator() {
+            return (new ConcurrentAVLTreeIterator<T>(this.tree));
+        }
+
+        private static class ConcurrentAVLTreeIterator<C extends Comparable<C>> implements java.util.Iterator<C> {
+
+            private ConcurrentAVLTree<C> tree = null;
+            private C[] values = null;
+            private int index = 0;
+            private C lastValue = null;
+
+            protected ConcurrentAVLTreeIterator(ConcurrentAVLTree<C> tree) {
+                this.tree = tree;
+                this.values = tree.snapshot();
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                return index < values.length;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public C next() {
+                if (index >= values.length)
+                    throw new java.util.NoSuchElementException();
+                lastValue = values[index++];
+                return lastValue;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void remove() {
+                if (lastValue == null)
+                    throw new IllegalStateException();
+                tree.remove(lastValue);
+                lastValue = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,896 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import interfaces.ITree;
+
+/**
+ * Arbre B utilisable par plusieurs threads sans verrou global. Chaque nœud porte
+ * un verrou lecture/écriture et les opérations descendent en couplage de verrous
+ * (crabbing) : le verrou d'un enfant est pris avant de relâcher celui du parent.
+ * <p>
+ * Les recherches ne prennent que des verrous de lecture. Une écriture tente d'abord
+ * une descente en lecture et ne verrouille en écriture que la feuille ; si la feuille
+ * doit être séparée ou combinée, elle recommence en verrouillant en écriture le chemin
+ * depuis la racine, et relâche les ancêtres dès qu'un nœud ne peut plus propager de
+ * séparation (split) ou de combinaison (combined) vers le haut.
+ * <p>
+ * @see <a href="https://en.wikipedia.org/wiki/B-tree#Concurrent_access">B-Tree (Wikipedia)</a>
+ * <br>
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentBTree<T extends Comparable<T>> implements ITree<T> {
+
+    // par défaut avec 2-3 emplacement
+    private int minKeySize = 1;
+    private int minChildrenSize = minKeySize + 1; // 2
+    private int maxKeySize = 2 * minKeySize; // 2
+    private int maxChildrenSize = maxKeySize + 1; // 3
+
+    // protège le champ root, pris en écriture tant que la racine peut changer
+    private final ReentrantReadWriteLock rootLatch = new ReentrantReadWriteLock();
+    private Node<T> root = null;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Constructeur pour B-arbre qui par défaut est un B-arbre 2-3.
+     */
+    public ConcurrentBTree() {
+        root = new Node<T>(true, maxKeySize, maxChildrenSize);
+    }
+
+    /**
+     * Constructeur pour l'arbre B du paramètre ordonné.
+     * L'ordre signifie ici le nombre minimum de clés dans un nœud non racine.
+     *
+     * @param order
+     */
+    public ConcurrentBTree(int order) {
+        this.minKeySize = order;
+        this.minChildrenSize = minKeySize + 1;
+        this.maxKeySize = 2 * minKeySize;
+        this.maxChildrenSize = maxKeySize + 1;
+        root = new Node<T>(true, maxKeySize, maxChildrenSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(T value) {
+        Node<T> leaf = latchLeaf(value, false);
+        if (safeForAdd(leaf)) {
+            leaf.addKey(value);
+            size.incrementAndGet();
+            leaf.latch.writeLock().unlock();
+            return true;
+        }
+        leaf.latch.writeLock().unlock();
+
+        // la feuille est pleine : on recommence en gardant les ancêtres que la séparation peut atteindre
+        Deque<Node<T>> latched = new ArrayDeque<Node<T>>();
+        Node<T> node = latchRoot(latched);
+        if (safeForAdd(node))
+            release(latched, node);
+        while (!node.leaf) {
+            // navigation, une valeur égale à une clé descend à gauche de celle-ci
+            int index = node.search(value);
+            Node<T> child = node.getChild((index >= 0) ? index : -index - 1);
+            child.latch.writeLock().lock();
+            if (safeForAdd(child))
+                release(latched, null);
+            latched.addLast(child);
+            node = child;
+        }
+        node.addKey(value);
+        if (node.numberOfKeys() > maxKeySize)
+            split(node);
+        size.incrementAndGet();
+        release(latched, null);
+
+        return true;
+    }
+
+    /**
+     * La taille de la clé du nœud est supérieure à maxKeySize, divisée par le milieu.
+     * La moitié gauche reste dans le nœud, la moitié droite part dans un nouveau frère.
+     * Le nœud et son parent sont verrouillés en écriture par l'appelant.
+     *
+     * @param node
+     */
+    private void split(Node<T> node) {
+        int numberOfKeys = node.numberOfKeys();
+        int medianIndex = numberOfKeys / 2;
+        T medianValue = node.getKey(medianIndex);
+
+        Node<T> right = new Node<T>(node.leaf, maxKeySize, maxChildrenSize);
+        right.insertKeys(0, node.keys, medianIndex + 1, numberOfKeys - medianIndex - 1);
+        if (!node.leaf) {
+            right.insertChildren(0, node.children, medianIndex + 1, node.numberOfChildren() - medianIndex - 1);
+            node.truncateChildren(medianIndex + 1);
+        }
+        node.truncateKeys(medianIndex);
+
+        if (node.parent == null) {
+            // nouvelle racine, la hauteur de l'arbre est augmentée
+            Node<T> newRoot = new Node<T>(false, maxKeySize, maxChildrenSize);
+            newRoot.addKey(medianValue);
+            newRoot.addChild(node);
+            newRoot.addChild(right);
+            root = newRoot;
+        } else {
+            // Déplacer la valeur médiane vers le parent, à droite du nœud séparé
+            Node<T> parent = node.parent;
+            int index = parent.indexOf(node);
+            parent.insertKey(index, medianValue);
+            parent.addChild(index + 1, right);
+
+            if (parent.numberOfKeys() > maxKeySize) split(parent);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T remove(T value) {
+        Node<T> leaf = latchLeaf(value, true);
+        if (leaf != null) {
+            int index = leaf.search(value);
+            if (index < 0) {
+                leaf.latch.writeLock().unlock();
+                return null;
+            }
+            if (safeForRemove(leaf)) {
+                T removed = leaf.removeKey(index);
+                size.decrementAndGet();
+                leaf.latch.writeLock().unlock();
+                return removed;
+            }
+            leaf.latch.writeLock().unlock();
+        }
+
+        // la clé est dans un nœud interne ou la feuille doit être combinée :
+        // on recommence en gardant les ancêtres que la combinaison peut atteindre
+        Deque<Node<T>> latched = new ArrayDeque<Node<T>>();
+        Node<T> node = latchRoot(latched);
+        if (safeForRemove(node))
+            release(latched, node);
+        // nœud interne contenant la clé, gardé verrouillé jusqu'au remplacement de celle-ci
+        Node<T> keyNode = null;
+        int keyIndex = -1;
+        while (true) {
+            int childIndex;
+            if (keyNode == null) {
+                int index = node.search(value);
+                if (index >= 0) {
+                    keyNode = node;
+                    keyIndex = index;
+                    if (node.leaf)
+                        break;
+                    childIndex = index;
+                } else if (node.leaf) {
+                    release(latched, null);
+                    return null;
+                } else {
+                    childIndex = -index - 1;
+                }
+            } else if (node.leaf) {
+                break;
+            } else {
+                // descente vers la plus grande valeur du sous-arbre gauche de la clé
+                childIndex = node.numberOfChildren() - 1;
+            }
+            Node<T> child = node.getChild(childIndex);
+            child.latch.writeLock().lock();
+            if (safeForRemove(child))
+                release(latched, keyNode);
+            latched.addLast(child);
+            node = child;
+        }
+
+        T removed = keyNode.removeKey(keyIndex);
+        if (keyNode != node) {
+            // nœud interne, la clé est remplacée par la plus grande valeur de son sous-arbre gauche
+            T replaceValue = node.removeKey(node.numberOfKeys() - 1);
+            keyNode.insertKey(keyIndex, replaceValue);
+        }
+        if (node.parent != null && node.numberOfKeys() < minKeySize)
+            combined(node);
+        size.decrementAndGet();
+        release(latched, null);
+
+        return removed;
+    }
+
+    /**
+     * fonction de Combinaison de clés enfants avec parent
+     * lorsque la taille est inférieure à minKeySize.
+     * Le nœud et son parent sont verrouillés en écriture par l'appelant ; les voisins
+     * sont verrouillés le temps de l'emprunt ou de la fusion.
+     *
+     * @param node
+     */
+    private void combined(Node<T> node) {
+        Node<T> parent = node.parent;
+        int index = parent.indexOf(node);
+        int indexOfLeftNeighbor = index - 1;
+        int indexOfRightNeighbor = index + 1;
+        boolean parentUnderflow = false;
+
+        Node<T> rightNeighbor = null;
+        int rightNeighborSize = -minChildrenSize;
+        if (indexOfRightNeighbor < parent.numberOfChildren()) {
+            rightNeighbor = parent.getChild(indexOfRightNeighbor);
+            // une autre opération peut encore parcourir le voisin après avoir quitté le parent
+            rightNeighbor.latch.writeLock().lock();
+            rightNeighborSize = rightNeighbor.numberOfKeys();
+        }
+        Node<T> leftNeighbor = null;
+
+        try {
+            // Essayer d'emprunter le voisin
+            if (rightNeighbor != null && rightNeighborSize > minKeySize) {
+                // Essayer d'emprunter au bon voisin
+                T parentValue = parent.removeKey(index);
+                T neighborValue = rightNeighbor.removeKey(0);
+                node.addKey(parentValue);
+                parent.insertKey(index, neighborValue);
+                if (!rightNeighbor.leaf) {
+                    node.addChild(rightNeighbor.removeChild(0));
+                }
+                return;
+            }
+
+            int leftNeighborSize = -minChildrenSize;
+            if (indexOfLeftNeighbor >= 0) {
+                leftNeighbor = parent.getChild(indexOfLeftNeighbor);
+                leftNeighbor.latch.writeLock().lock();
+                leftNeighborSize = leftNeighbor.numberOfKeys();
+            }
+
+            if (leftNeighbor != null && leftNeighborSize > minKeySize) {
+                // Essayer d'emprunter au voisin de gauche
+                T parentValue = parent.removeKey(indexOfLeftNeighbor);
+                T neighborValue = leftNeighbor.removeKey(leftNeighbor.numberOfKeys() - 1);
+                node.addKey(parentValue);
+                parent.insertKey(indexOfLeftNeighbor, neighborValue);
+                if (!leftNeighbor.leaf) {
+                    node.addChild(0, leftNeighbor.removeChild(leftNeighbor.numberOfChildren() - 1));
+                }
+                return;
+            }
+
+            Node<T> neighbor;
+            if (rightNeighbor != null) {
+                // On ne peut pas emprunter aux voisins, essayez de combiner avec le bon voisin
+                neighbor = rightNeighbor;
+                T parentValue = parent.removeKey(index);
+                parent.removeChild(indexOfRightNeighbor);
+                node.addKey(parentValue);
+                // les clés du voisin de droite sont toutes supérieures, on les ajoute à la fin
+                node.insertKeys(node.keysSize, neighbor.keys, 0, neighbor.keysSize);
+                node.insertChildren(node.childrenSize, neighbor.children, 0, neighbor.childrenSize);
+            } else {
+                // On ne peut pas emprunter aux voisins, essayez de combiner avec le voisin de gauche
+                neighbor = leftNeighbor;
+                T parentValue = parent.removeKey(indexOfLeftNeighbor);
+                parent.removeChild(indexOfLeftNeighbor);
+                node.addKey(parentValue);
+                // les clés du voisin de gauche sont toutes inférieures, on les ajoute au début
+                node.insertKeys(0, neighbor.keys, 0, neighbor.keysSize);
+                node.insertChildren(0, neighbor.children, 0, neighbor.childrenSize);
+            }
+
+            if (parent.parent != null && parent.numberOfKeys() < minKeySize) {
+                // suppression de la clé rendue parent trop petit, arbre combiné
+                parentUnderflow = true;
+            } else if (parent.numberOfKeys() == 0) {
+                // parent n'a plus de clés,
+                // faites de ce noeud la nouvelle racine qui diminue la hauteur de l'arbre
+                node.parent = null;
+                root = node;
+            }
+        } finally {
+            if (rightNeighbor != null)
+                rightNeighbor.latch.writeLock().unlock();
+            if (leftNeighbor != null)
+                leftNeighbor.latch.writeLock().unlock();
+        }
+
+        if (parentUnderflow)
+            combined(parent);
+    }
+
+    /**
+     * Un nœud est sûr pour un ajout s'il peut recevoir une clé sans être séparé.
+     */
+    private boolean safeForAdd(Node<T> node) {
+        return node.numberOfKeys() < maxKeySize;
+    }
+
+    /**
+     * Un nœud est sûr pour une suppression s'il peut perdre une clé sans être combiné.
+     * Une racine interne qui perd sa dernière clé est remplacée par son enfant.
+     */
+    private boolean safeForRemove(Node<T> node) {
+        if (node.parent == null)
+            return node.leaf || node.numberOfKeys() > 1;
+        return node.numberOfKeys() > minKeySize;
+    }
+
+    /**
+     * Descente optimiste : verrous de lecture sur les nœuds internes, verrou d'écriture
+     * sur la feuille seulement.
+     *
+     * @param value valeur cherchée.
+     * @param stopOnKey abandonne si la valeur est trouvée dans un nœud interne.
+     * @return la feuille verrouillée en écriture, ou null si la descente a été abandonnée.
+     */
+    private Node<T> latchLeaf(T value, boolean stopOnKey) {
+        rootLatch.readLock().lock();
+        Node<T> node = root;
+        if (node.leaf)
+            node.latch.writeLock().lock();
+        else
+            node.latch.readLock().lock();
+        rootLatch.readLock().unlock();
+
+        while (!node.leaf) {
+            int index = node.search(value);
+            if (index >= 0 && stopOnKey) {
+                node.latch.readLock().unlock();
+                return null;
+            }
+            Node<T> child = node.getChild((index >= 0) ? index : -index - 1);
+            if (child.leaf)
+                child.latch.writeLock().lock();
+            else
+                child.latch.readLock().lock();
+            node.latch.readLock().unlock();
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Verrouille en écriture le champ root puis la racine, pour une descente pessimiste.
+     *
+     * @param latched reçoit la racine verrouillée.
+     * @return la racine.
+     */
+    private Node<T> latchRoot(Deque<Node<T>> latched) {
+        rootLatch.writeLock().lock();
+        Node<T> node = root;
+        node.latch.writeLock().lock();
+        latched.addLast(node);
+        return node;
+    }
+
+    /**
+     * Relâche le champ root et les nœuds verrouillés en écriture, sauf le nœud gardé.
+     *
+     * @param latched nœuds verrouillés depuis le haut du chemin.
+     * @param keep nœud à garder verrouillé, ou null.
+     */
+    private void release(Deque<Node<T>> latched, Node<T> keep) {
+        if (rootLatch.isWriteLockedByCurrentThread())
+            rootLatch.writeLock().unlock();
+        Iterator<Node<T>> it = latched.iterator();
+        while (it.hasNext()) {
+            Node<T> node = it.next();
+            if (node == keep)
+                continue;
+            node.latch.writeLock().unlock();
+            it.remove();
+        }
+    }
+
+    /**
+     * Verrouille tous les nœuds de l'arbre, de haut en bas, et les garde jusqu'à
+     * unlatchAll. Le résultat est un état cohérent de l'arbre : aucune opération
+     * ne peut plus le modifier et aucune n'est à moitié faite.
+     *
+     * @param write verrous d'écriture plutôt que de lecture.
+     * @return les nœuds verrouillés.
+     */
+    private Deque<Node<T>> latchAll(boolean write) {
+        Deque<Node<T>> latched = new ArrayDeque<Node<T>>();
+        rootLatch.readLock().lock();
+        try {
+            latchAll(root, latched, write);
+        } finally {
+            rootLatch.readLock().unlock();
+        }
+        return latched;
+    }
+
+    private void latchAll(Node<T> node, Deque<Node<T>> latched, boolean write) {
+        if (write)
+            node.latch.writeLock().lock();
+        else
+            node.latch.readLock().lock();
+        latched.addLast(node);
+        for (int i = 0; i < node.childrenSize; i++)
+            latchAll(node.children[i], latched, write);
+    }
+
+    private void unlatchAll(Deque<Node<T>> latched, boolean write) {
+        for (Node<T> node : latched) {
+            if (write)
+                node.latch.writeLock().unlock();
+            else
+                node.latch.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Attend la fin des opérations en cours dans l'arbre.
+     */
+    @Override
+    public void clear() {
+        rootLatch.writeLock().lock();
+        try {
+            Deque<Node<T>> latched = new ArrayDeque<Node<T>>();
+            latchAll(root, latched, true);
+            root = new Node<T>(true, maxKeySize, maxChildrenSize);
+            size.set(0);
+            unlatchAll(latched, true);
+        } finally {
+            rootLatch.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(T value) {
+        rootLatch.readLock().lock();
+        Node<T> node = root;
+        node.latch.readLock().lock();
+        rootLatch.readLock().unlock();
+
+        while (true) {
+            int index = node.search(value);
+            if (index >= 0 || node.leaf) {
+                node.latch.readLock().unlock();
+                return (index >= 0);
+            }
+            Node<T> child = node.getChild(-index - 1);
+            child.latch.readLock().lock();
+            node.latch.readLock().unlock();
+            node = child;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tout l'arbre est verrouillé en lecture pendant la validation.
+     */
+    @Override
+    public boolean validate() {
+        Deque<Node<T>> latched = latchAll(false);
+        try {
+            return validateNode(latched.peekFirst());
+        } finally {
+            unlatchAll(latched, false);
+        }
+    }
+
+    /**
+     * Validation du nœud selon les invariants de l'arbre B.
+     *
+     * @param node
+     * @return Vrai si valide.
+     */
+    private boolean validateNode(Node<T> node) {
+        int keySize = node.numberOfKeys();
+        if (keySize > 1) {
+            // Assure que les clés sont triées
+            for (int i = 1; i < keySize; i++) {
+                T p = node.getKey(i - 1);
+                T n = node.getKey(i);
+                if (p.compareTo(n) > 0)
+                    return false;
+            }
+        }
+        int childrenSize = node.numberOfChildren();
+        if (node.leaf != (childrenSize == 0))
+            return false;
+        if (node.parent == null) {
+            // racine
+            if (keySize > maxKeySize) {
+                // vérifie la taille maximale de la clé. root n'a pas de taille minimale de clé
+                return false;
+            } else if (childrenSize == 0) {
+                // si la racine, aucun enfant, et les clés sont valides
+                return true;
+            } else if (keySize != (childrenSize - 1)) {
+                return false;
+            } else if (childrenSize < 2) {
+                // la racine doit avoir zéro ou au moins deux enfants
+                return false;
+            } else if (childrenSize > maxChildrenSize) {
+                return false;
+            }
+        } else {
+            // non racince
+            if (keySize < minKeySize) {
+                return false;
+            } else if (keySize > maxKeySize) {
+                return false;
+            } else if (childrenSize == 0) {
+                return true;
+            } else if (keySize != (childrenSize - 1)) {
+                // S'il y a des enfants, il devrait y avoir un enfant de plus que les clés
+                return false;
+            } else if (childrenSize < minChildrenSize) {
+                return false;
+            } else if (childrenSize > maxChildrenSize) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < childrenSize; i++) {
+            Node<T> c = node.getChild(i);
+            if (c.parent != node)
+                return false;
+            // les clés de l'enfant sont encadrées par les clés voisines du nœud
+            if (i > 0 && node.getKey(i - 1).compareTo(c.getKey(0)) > 0)
+                return false;
+            if (i < keySize && node.getKey(i).compareTo(c.getKey(c.numberOfKeys() - 1)) < 0)
+                return false;
+            boolean valid = this.validateNode(c);
+            if (!valid)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Copie des valeurs de l'arbre dans l'ordre croissant, prise sur un état cohérent.
+     *
+     * @return les valeurs triées.
+     */
+    private T[] snapshot() {
+        Deque<Node<T>> latched = latchAll(false);
+        try {
+            T[] values = (T[]) new Comparable[size.get()];
+            int count = snapshot(latched.peekFirst(), values, 0);
+            return (count == values.length) ? values : java.util.Arrays.copyOf(values, count);
+        } finally {
+            unlatchAll(latched, false);
+        }
+    }
+
+    private int snapshot(Node<T> node, T[] values, int count) {
+        for (int i = 0; i < node.keysSize; i++) {
+            if (!node.leaf)
+                count = snapshot(node.children[i], values, count);
+            values[count++] = node.keys[i];
+        }
+        if (!node.leaf)
+            count = snapshot(node.children[node.keysSize], values, count);
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * L'itération se fait sur une copie de l'arbre prise à la création de l'itérateur.
+     */
+    @Override
+    public java.util.Collection<T> toCollection() {
+        return (new JavaCompatibleConcurrentBTree<T>(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        Deque<Node<T>> latched = latchAll(false);
+        try {
+            return TreePrinter.getString(latched.peekFirst());
+        } finally {
+            unlatchAll(latched, false);
+        }
+    }
+
+    private static class Node<T extends Comparable<T>> {
+
+        private T[] keys = null;
+        private int keysSize = 0;
+        private Node<T>[] children = null;
+        private int childrenSize = 0;
+
+        // une feuille reste une feuille : séparation et fusion se font entre nœuds du même niveau
+        private final boolean leaf;
+        private final ReentrantReadWriteLock latch = new ReentrantReadWriteLock();
+
+        protected Node<T> parent = null;
+
+        private Node(boolean leaf, int maxKeySize, int maxChildrenSize) {
+            this.leaf = leaf;
+            this.keys = (T[]) new Comparable[maxKeySize + 1];
+            if (!leaf)
+                this.children = new Node[maxChildrenSize + 1];
+        }
+
+        private T getKey(int index) {
+            return keys[index];
+        }
+
+        /**
+         * Recherche dichotomique de la valeur parmi les clés du nœud.
+         *
+         * @param value
+         * @return indice de la clé égale à la valeur, sinon (-(indice de l'enfant à suivre) - 1).
+         */
+        private int search(T value) {
+            int low = 0;
+            int high = keysSize - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = keys[mid].compareTo(value);
+                if (cmp < 0)
+                    low = mid + 1;
+                else if (cmp > 0)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Recherche dichotomique de l'emplacement d'insertion de la valeur.
+         *
+         * @param value
+         * @return indice de la première clé strictement supérieure à la valeur.
+         */
+        private int insertionIndex(T value) {
+            int low = 0;
+            int high = keysSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(value) <= 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        private void addKey(T value) {
+            insertKey(insertionIndex(value), value);
+        }
+
+        private void insertKey(int index, T value) {
+            // shift the greater keys up
+            System.arraycopy(keys, index, keys, index + 1, keysSize - index);
+            keys[index] = value;
+            keysSize++;
+        }
+
+        private void insertKeys(int index, T[] src, int srcPos, int length) {
+            System.arraycopy(keys, index, keys, index + length, keysSize - index);
+            System.arraycopy(src, srcPos, keys, index, length);
+            keysSize += length;
+        }
+
+        private T removeKey(int index) {
+            if (index >= keysSize)
+                return null;
+            T value = keys[index];
+            // shift the rest of the keys down
+            System.arraycopy(keys, index + 1, keys, index, keysSize - index - 1);
+            keysSize--;
+            keys[keysSize] = null;
+            return value;
+        }
+
+        private void truncateKeys(int length) {
+            java.util.Arrays.fill(keys, length, keysSize, null);
+            keysSize = length;
+        }
+
+        private int numberOfKeys() {
+            return keysSize;
+        }
+
+        private Node<T> getChild(int index) {
+            if (index >= childrenSize)
+                return null;
+            return children[index];
+        }
+
+        private int indexOf(Node<T> child) {
+            for (int i = 0; i < childrenSize; i++) {
+                if (children[i] == child)
+                    return i;
+            }
+            return -1;
+        }
+
+        private void addChild(Node<T> child) {
+            addChild(childrenSize, child);
+        }
+
+        private void addChild(int index, Node<T> child) {
+            child.parent = this;
+            // shift the following children up
+            System.arraycopy(children, index, children, index + 1, childrenSize - index);
+            children[index] = child;
+            childrenSize++;
+        }
+
+        private void insertChildren(int index, Node<T>[] src, int srcPos, int length) {
+            if (length == 0)
+                return;
+            System.arraycopy(children, index, children, index + length, childrenSize - index);
+            for (int i = 0; i < length; i++) {
+                Node<T> child = src[srcPos + i];
+                child.parent = this;
+                children[index + i] = child;
+            }
+            childrenSize += length;
+        }
+
+        private Node<T> removeChild(int index) {
+            if (index >= childrenSize)
+                return null;
+            Node<T> value = children[index];
+            // shift the rest of the children down
+            System.arraycopy(children, index + 1, children, index, childrenSize - index - 1);
+            childrenSize--;
+            children[childrenSize] = null;
+            return value;
+        }
+
+        private void truncateChildren(int length) {
+            java.util.Arrays.fill(children, length, childrenSize, null);
+            childrenSize = length;
+        }
+
+        private int numberOfChildren() {
+            return childrenSize;
+        }
+    }
+
+    private static class TreePrinter {
+
+        public static <T extends Comparable<T>> String getString(Node<T> root) {
+            if (root.numberOfKeys() == 0) return "Tree has no nodes.";
+            return getString(root, "", true);
+        }
+
+        private static <T extends Comparable<T>> String getString(Node<T> node, String prefix, boolean isTail) {
+            StringBuilder builder = new StringBuilder();
+
+            builder.append(prefix).append((isTail ? "└── " : "├── "));
+            for (int i = 0; i < node.numberOfKeys(); i++) {
+                T value = node.getKey(i);
+                builder.append(value);
+                if (i < node.numberOfKeys() - 1)
+                    builder.append(", ");
+            }
+            builder.append("\n");
+
+            for (int i = 0; i < node.numberOfChildren(); i++) {
+                Node<T> obj = node.getChild(i);
+                boolean last = (i == node.numberOfChildren() - 1);
+                builder.append(getString(obj, prefix + (isTail ? "    " : "│   "), last));
+            }
+
+            return builder.toString();
+        }
+    }
+
+    public static class JavaCompatibleConcurrentBTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
+
+        private ConcurrentBTree<T> tree = null;
+
+        public JavaCompatibleConcurrentBTree(ConcurrentBTree<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(T value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(Object value) {
+            return (tree.remove((T)value)!=null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(Object value) {
+            return tree.contains((T)value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public java.util.Iterator<T> iterator() {
+            return (new ConcurrentBTreeIterator<T>(this.tree));
+        }
+
+        private static class ConcurrentBTreeIterator<C extends Comparable<C>> implements java.util.Iterator<C> {
+
+            private ConcurrentBTree<C> tree = null;
+            private C[] values = null;
+            private int index = 0;
+            private C lastValue = null;
+
+            protected ConcurrentBTreeIterator(ConcurrentBTree<C> tree) {
+                this.tree = tree;
+                this.values = tree.snapshot();
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                return index < values.length;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public C next() {
+                if (index >= values.length)
+                    throw new java.util.NoSuchElementException();
+                lastValue = values[index++];
+                return lastValue;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void remove() {
+                if (lastValue == null)
+                    throw new IllegalStateException();
+                tree.remove(lastValue);
+                lastValue = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,720 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import interfaces.ITree;
+
+/**
+ * Variante de {@link BTree} spécialisée pour des clés de type long.
+ * Les clés de chaque nœud sont stockées dans un tableau long[], ce qui évite
+ * l'allocation d'un Long par clé et l'appel à compareTo lors des comparaisons.
+ * <p>
+ * Les méthodes add(long), remove(long) et contains(long) ne font aucune
+ * conversion (boxing). Les méthodes de {@link ITree} restent disponibles et
+ * délèguent aux versions primitives.
+ * <p>
+ * @see BTree
+ */
+public class LongBTree implements ITree<Long> {
+
+    // par défaut avec 2-3 emplacement
+    private int minKeySize = 1;
+    private int minChildrenSize = minKeySize + 1; // 2
+    private int maxKeySize = 2 * minKeySize; // 2
+    private int maxChildrenSize = maxKeySize + 1; // 3
+
+    private Node root = null;
+    private int size = 0;
+
+    /**
+     * Constructeur pour B-arbre qui par défaut est un B-arbre 2-3.
+     */
+    public LongBTree() { }
+
+    /**
+     * Constructeur pour l'arbre B du paramètre ordonné.
+     * L'ordre signifie ici le nombre minimum de clés dans un nœud non racine.
+     *
+     * @param order
+     */
+    public LongBTree(int order) {
+        this.minKeySize = order;
+        this.minChildrenSize = minKeySize + 1;
+        this.maxKeySize = 2 * minKeySize;
+        this.maxChildrenSize = maxKeySize + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    /**
+     * Ajoute une valeur à l'arbre, sans boxing.
+     *
+     * @param value à ajouter à l'arbre.
+     * @return True si la valeur a été ajoutée.
+     */
+    public boolean add(long value) {
+        if (root == null) {
+            root = new Node(null, maxKeySize, maxChildrenSize);
+            root.addKey(value);
+        } else {
+            Node node = root;
+            while (node != null) {
+                if (node.numberOfChildren() == 0) {
+                    node.addKey(value);
+                    if (node.numberOfKeys() <= maxKeySize) {
+                        break;
+                    }
+                    // séparation
+                    split(node);
+                    break;
+                }
+                // navigation, une valeur égale à une clé descend à gauche de celle-ci
+                int index = node.search(value);
+                node = node.getChild((index >= 0) ? index : -index - 1);
+            }
+        }
+
+        size++;
+
+        return true;
+    }
+
+    /**
+     * La taille de la clé du nœud est supérieure à maxKeySize, divisée par le milieu.
+     *
+     * @param nodeToSplit
+     */
+    private void split(Node nodeToSplit) {
+        Node node = nodeToSplit;
+        int numberOfKeys = node.numberOfKeys();
+        int medianIndex = numberOfKeys / 2;
+        long medianValue = node.getKey(medianIndex);
+
+        Node left = new Node(null, maxKeySize, maxChildrenSize);
+        left.insertKeys(0, node.keys, 0, medianIndex);
+        if (node.numberOfChildren() > 0) {
+            left.insertChildren(0, node.children, 0, medianIndex + 1);
+        }
+
+        Node right = new Node(null, maxKeySize, maxChildrenSize);
+        right.insertKeys(0, node.keys, medianIndex + 1, numberOfKeys - medianIndex - 1);
+        if (node.numberOfChildren() > 0) {
+            right.insertChildren(0, node.children, medianIndex + 1, node.numberOfChildren() - medianIndex - 1);
+        }
+
+        if (node.parent == null) {
+            // nouvelle racine, la hauteur de l'arbre est augmentée
+            Node newRoot = new Node(null, maxKeySize, maxChildrenSize);
+            newRoot.addKey(medianValue);
+            root = newRoot;
+            newRoot.addChild(left);
+            newRoot.addChild(right);
+        } else {
+            // Déplacer la valeur médiane vers le parent, à la place du nœud séparé
+            Node parent = node.parent;
+            int index = parent.indexOf(node);
+            parent.insertKey(index, medianValue);
+            parent.setChild(index, left);
+            parent.addChild(index + 1, right);
+
+            if (parent.numberOfKeys() > maxKeySize) split(parent);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long remove(Long value) {
+        return (remove(value.longValue()) ? value : null);
+    }
+
+    /**
+     * Retire la première occurrence de la valeur, sans boxing.
+     *
+     * @param value à enlever de l'arbre.
+     * @return True si la valeur a été retirée.
+     */
+    public boolean remove(long value) {
+        Node node = root;
+        while (node != null) {
+            int index = node.search(value);
+            if (index >= 0) {
+                remove(index, node);
+                return true;
+            }
+            node = node.getChild(-index - 1);
+        }
+        return false;
+    }
+
+    /**
+     * Supprimez la clé d'indice donné du nœud et vérifiez les invariants
+     *
+     * @param index de la clé à enlever dans le nœud
+     * @param node
+     * @return la valeur retirée de l'arbre.
+     */
+    private long remove(int index, Node node) {
+        long removed = node.removeKey(index);
+        if (node.numberOfChildren() == 0) {
+            // nœud feuille
+            if (node.parent != null && node.numberOfKeys() < minKeySize) {
+                this.combined(node);
+            } else if (node.parent == null && node.numberOfKeys() == 0) {
+                // Suppression du noeud racine sans clés ni enfants
+                root = null;
+            }
+        } else {
+            // nœud interne
+            Node lesser = node.getChild(index);
+            Node greatest = this.getGreatestNode(lesser);
+            long replaceValue = greatest.removeKey(greatest.numberOfKeys() - 1);
+            node.insertKey(index, replaceValue);
+            if (greatest.parent != null && greatest.numberOfKeys() < minKeySize) {
+                this.combined(greatest);
+            }
+        }
+
+        size--;
+
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(Long value) {
+        return contains(value.longValue());
+    }
+
+    /**
+     * L'arbre contient-il la valeur, sans boxing.
+     *
+     * @param value à chercher dans l'arbre.
+     * @return True si l'arbre contient la valeur.
+     */
+    public boolean contains(long value) {
+        Node node = root;
+        while (node != null) {
+            int index = node.search(value);
+            if (index >= 0)
+                return true;
+            // getChild renvoie null sous une feuille
+            node = node.getChild(-index - 1);
+        }
+        return false;
+    }
+
+    /**
+     * Obtenez l'enfant le plus grand du nœud.
+     *
+     * @param nodeToGet
+     * @return Node enfant avec la plus grande valeur.
+     */
+    private Node getGreatestNode(Node nodeToGet) {
+        Node node = nodeToGet;
+        while (node.numberOfChildren() > 0) {
+            node = node.getChild(node.numberOfChildren() - 1);
+        }
+        return node;
+    }
+
+    /**
+     * fonction de Combinaison de clés enfants avec parent
+     * lorsque la taille est inférieure à minKeySize.
+     *
+     * @param node
+     * @return True si combinaison réussi.
+     */
+    private boolean combined(Node node) {
+        Node parent = node.parent;
+        int index = parent.indexOf(node);
+        int indexOfLeftNeighbor = index - 1;
+        int indexOfRightNeighbor = index + 1;
+
+        Node rightNeighbor = null;
+        int rightNeighborSize = -minChildrenSize;
+        if (indexOfRightNeighbor < parent.numberOfChildren()) {
+            rightNeighbor = parent.getChild(indexOfRightNeighbor);
+            rightNeighborSize = rightNeighbor.numberOfKeys();
+        }
+
+        // Essayer d'emprunter le voisin
+        if (rightNeighbor != null && rightNeighborSize > minKeySize) {
+            // Essayer d'emprunter au bon voisin
+            long parentValue = parent.removeKey(index);
+            long neighborValue = rightNeighbor.removeKey(0);
+            node.addKey(parentValue);
+            parent.insertKey(index, neighborValue);
+            if (rightNeighbor.numberOfChildren() > 0) {
+                node.addChild(rightNeighbor.removeChild(0));
+            }
+        } else {
+            Node leftNeighbor = null;
+            int leftNeighborSize = -minChildrenSize;
+            if (indexOfLeftNeighbor >= 0) {
+                leftNeighbor = parent.getChild(indexOfLeftNeighbor);
+                leftNeighborSize = leftNeighbor.numberOfKeys();
+            }
+
+            if (leftNeighbor != null && leftNeighborSize > minKeySize) {
+                // Essayer d'emprunter au voisin de gauche
+                long parentValue = parent.removeKey(indexOfLeftNeighbor);
+                long neighborValue = leftNeighbor.removeKey(leftNeighbor.numberOfKeys() - 1);
+                node.addKey(parentValue);
+                parent.insertKey(indexOfLeftNeighbor, neighborValue);
+                if (leftNeighbor.numberOfChildren() > 0) {
+                    node.addChild(0, leftNeighbor.removeChild(leftNeighbor.numberOfChildren() - 1));
+                }
+            } else if (rightNeighbor != null && parent.numberOfKeys() > 0) {
+                // On ne peut pas emprunter aux voisins, essayez de combiner avec le bon voisin
+                long parentValue = parent.removeKey(index);
+                parent.removeChild(indexOfRightNeighbor);
+                node.addKey(parentValue);
+                node.insertKeys(node.keysSize, rightNeighbor.keys, 0, rightNeighbor.keysSize);
+                node.insertChildren(node.childrenSize, rightNeighbor.children, 0, rightNeighbor.childrenSize);
+
+                if (parent.parent != null && parent.numberOfKeys() < minKeySize) {
+                    // suppression de la clé rendue parent trop petit, arbre combiné
+                    this.combined(parent);
+                } else if (parent.numberOfKeys() == 0) {
+                    // parent n'a plus de clés,
+                    // faites de ce noeud la nouvelle racine qui diminue la hauteur de l'arbre
+                    node.parent = null;
+                    root = node;
+                }
+            } else if (leftNeighbor != null && parent.numberOfKeys() > 0) {
+                // On ne peut pas emprunter aux voisins, essayez de combiner avec le voisin de gauche
+                long parentValue = parent.removeKey(indexOfLeftNeighbor);
+                parent.removeChild(indexOfLeftNeighbor);
+                node.addKey(parentValue);
+                node.insertKeys(0, leftNeighbor.keys, 0, leftNeighbor.keysSize);
+                node.insertChildren(0, leftNeighbor.children, 0, leftNeighbor.childrenSize);
+
+                if (parent.parent != null && parent.numberOfKeys() < minKeySize) {
+                    // suppression de la clé rendue parent trop petit, arbre combiné
+                    this.combined(parent);
+                } else if (parent.numberOfKeys() == 0) {
+                    // parent n'a plus de clés,
+                    // faites de ce noeud la nouvelle racine qui diminue la hauteur de l'arbre
+                    node.parent = null;
+                    root = node;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean validate() {
+        if (root == null) return true;
+        return validateNode(root);
+    }
+
+    /**
+     * Validation du nœud selon les invariants de l'arbre B.
+     *
+     * @param node
+     * @return Vrai si valide.
+     */
+    private boolean validateNode(Node node) {
+        int keySize = node.numberOfKeys();
+        // Assure que les clés sont triées
+        for (int i = 1; i < keySize; i++) {
+            if (node.getKey(i - 1) > node.getKey(i))
+                return false;
+        }
+        int childrenSize = node.numberOfChildren();
+        if (node.parent == null) {
+            // racine
+            if (keySize > maxKeySize) {
+                return false;
+            } else if (childrenSize == 0) {
+                return true;
+            } else if (childrenSize < 2) {
+                return false;
+            } else if (childrenSize > maxChildrenSize) {
+                return false;
+            }
+        } else {
+            // non racine
+            if (keySize < minKeySize) {
+                return false;
+            } else if (keySize > maxKeySize) {
+                return false;
+            } else if (childrenSize == 0) {
+                return true;
+            } else if (keySize != (childrenSize - 1)) {
+                return false;
+            } else if (childrenSize < minChildrenSize) {
+                return false;
+            } else if (childrenSize > maxChildrenSize) {
+                return false;
+            }
+        }
+
+        // Chaque enfant doit être encadré par les clés qui l'entourent
+        for (int i = 0; i < childrenSize; i++) {
+            Node c = node.getChild(i);
+            if (c.parent != node)
+                return false;
+            if (i > 0 && node.getKey(i - 1) > c.getKey(0))
+                return false;
+            if (i < keySize && node.getKey(i) < c.getKey(c.numberOfKeys() - 1))
+                return false;
+            if (!this.validateNode(c))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public java.util.Collection<Long> toCollection() {
+        return (new JavaCompatibleLongBTree(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return TreePrinter.getString(this);
+    }
+
+    private static class Node {
+
+        private long[] keys = null;
+        private int keysSize = 0;
+        private Node[] children = null;
+        private int childrenSize = 0;
+
+        protected Node parent = null;
+
+        private Node(Node parent, int maxKeySize, int maxChildrenSize) {
+            this.parent = parent;
+            this.keys = new long[maxKeySize + 1];
+            this.keysSize = 0;
+            this.children = new Node[maxChildrenSize + 1];
+            this.childrenSize = 0;
+        }
+
+        private long getKey(int index) {
+            return keys[index];
+        }
+
+        /**
+         * Recherche dichotomique de la valeur parmi les clés du nœud.
+         *
+         * @param value
+         * @return indice de la clé égale à la valeur, sinon (-(indice de l'enfant à suivre) - 1).
+         */
+        private int search(long value) {
+            int low = 0;
+            int high = keysSize - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long key = keys[mid];
+                if (key < value)
+                    low = mid + 1;
+                else if (key > value)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Recherche dichotomique de l'emplacement d'insertion de la valeur.
+         *
+         * @param value
+         * @return indice de la première clé strictement supérieure à la valeur.
+         */
+        private int insertionIndex(long value) {
+            int low = 0;
+            int high = keysSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] <= value)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        private void addKey(long value) {
+            insertKey(insertionIndex(value), value);
+        }
+
+        private void insertKey(int index, long value) {
+            // shift the greater keys up
+            System.arraycopy(keys, index, keys, index + 1, keysSize - index);
+            keys[index] = value;
+            keysSize++;
+        }
+
+        private void insertKeys(int index, long[] src, int srcPos, int length) {
+            System.arraycopy(keys, index, keys, index + length, keysSize - index);
+            System.arraycopy(src, srcPos, keys, index, length);
+            keysSize += length;
+        }
+
+        private long removeKey(int index) {
+            long value = keys[index];
+            // shift the rest of the keys down
+            System.arraycopy(keys, index + 1, keys, index, keysSize - index - 1);
+            keysSize--;
+            return value;
+        }
+
+        private int numberOfKeys() {
+            return keysSize;
+        }
+
+        private Node getChild(int index) {
+            if (index >= childrenSize)
+                return null;
+            return children[index];
+        }
+
+        private int indexOf(Node child) {
+            for (int i = 0; i < childrenSize; i++) {
+                if (children[i] == child)
+                    return i;
+            }
+            return -1;
+        }
+
+        private void addChild(Node child) {
+            addChild(childrenSize, child);
+        }
+
+        private void addChild(int index, Node child) {
+            child.parent = this;
+            // shift the following children up
+            System.arraycopy(children, index, children, index + 1, childrenSize - index);
+            children[index] = child;
+            childrenSize++;
+        }
+
+        private void setChild(int index, Node child) {
+            child.parent = this;
+            children[index] = child;
+        }
+
+        private void insertChildren(int index, Node[] src, int srcPos, int length) {
+            System.arraycopy(children, index, children, index + length, childrenSize - index);
+            for (int i = 0; i < length; i++) {
+                Node child = src[srcPos + i];
+                child.parent = this;
+                children[index + i] = child;
+            }
+            childrenSize += length;
+        }
+
+        private Node removeChild(int index) {
+            if (index >= childrenSize)
+                return null;
+            Node value = children[index];
+            // shift the rest of the children down
+            System.arraycopy(children, index + 1, children, index, childrenSize - index - 1);
+            childrenSize--;
+            children[childrenSize] = null;
+            return value;
+        }
+
+        private int numberOfChildren() {
+            return childrenSize;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("keys=[");
+            for (int i = 0; i < numberOfKeys(); i++) {
+                builder.append(getKey(i));
+                if (i < numberOfKeys() - 1)
+                    builder.append(", ");
+            }
+            builder.append("]\n");
+            builder.append("keySize=").append(numberOfKeys()).append(" children=").append(numberOfChildren()).append("\n");
+            return builder.toString();
+        }
+    }
+
+    private static class TreePrinter {
+
+        public static String getString(LongBTree tree) {
+            if (tree.root == null) return "Tree has no nodes.";
+            return getString(tree.root, "", true);
+        }
+
+        private static String getString(Node node, String prefix, boolean isTail) {
+            StringBuilder builder = new StringBuilder();
+
+            builder.append(prefix).append((isTail ? "└── " : "├── "));
+            for (int i = 0; i < node.numberOfKeys(); i++) {
+                builder.append(node.getKey(i));
+                if (i < node.numberOfKeys() - 1)
+                    builder.append(", ");
+            }
+            builder.append("\n");
+
+            for (int i = 0; i < node.numberOfChildren() - 1; i++) {
+                builder.append(getString(node.getChild(i), prefix + (isTail ? "    " : "│   "), false));
+            }
+            if (node.numberOfChildren() >= 1) {
+                builder.append(getString(node.getChild(node.numberOfChildren() - 1), prefix + (isTail ? "    " : "│   "), true));
+            }
+
+            return builder.toString();
+        }
+    }
+
+    public static class JavaCompatibleLongBTree extends java.util.AbstractCollection<Long> {
+
+        private LongBTree tree = null;
+
+        public JavaCompatibleLongBTree(LongBTree tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(Long value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(Object value) {
+            return (value instanceof Long) && tree.remove(((Long) value).longValue());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(Object value) {
+            return (value instanceof Long) && tree.contains(((Long) value).longValue());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public java.util.Iterator<Long> iterator() {
+            return (new LongBTreeIterator(this.tree));
+        }
+
+        private static class LongBTreeIterator implements java.util.Iterator<Long> {
+
+            private LongBTree tree = null;
+            private Node lastNode = null;
+            private int index = 0;
+            private boolean removable = false;
+            private Deque<Node> toVisit = new ArrayDeque<Node>();
+
+            protected LongBTreeIterator(LongBTree tree) {
+                this.tree = tree;
+                if (tree.root!=null && tree.root.keysSize>0) {
+                    toVisit.add(tree.root);
+                }
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                return (lastNode!=null && index<lastNode.keysSize) || (toVisit.size()>0);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public Long next() {
+                if (lastNode==null || index >= lastNode.keysSize) {
+                    if (toVisit.isEmpty())
+                        return null;
+                    Node n = toVisit.pop();
+                    for (int i=0; i<n.childrenSize; i++) {
+                        toVisit.add(n.getChild(i));
+                    }
+                    index = 0;
+                    lastNode = n;
+                }
+                removable = true;
+                return lastNode.getKey(index++);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void remove() {
+                if (lastNode!=null && removable) {
+                    // On remove, reset the iterator (very inefficient, I know)
+                    tree.remove(index - 1, lastNode);
+
+                    lastNode = null;
+                    removable = false;
+                    index = 0;
+                    toVisit.clear();
+                    if (tree.root!=null && tree.root.keysSize>0) {
+                        toVisit.add(tree.root);
+                    }
+                }
+            }
+        }
+    }
+}
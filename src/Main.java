@@ -1,10 +1,39 @@
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import interfaces.ITree;
 
 public class Main {
     public static void main(String[] args) {
         int level = 50;
-        ArrayList<Integer> array = new ArrayList<Integer>();
+        if (args.length > 0 && args[0].equals("bench")) {
+            // banc d'essai avec chauffe et forks, options passées à Benchmark
+            Benchmark.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("int")) {
+            // comparaison BTree<Integer> / IntBTree sur la même séquence d'opérations
+            compareIntBTree(level);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("concurrent")) {
+            // ajouts et suppressions mélangés depuis plusieurs threads sur les arbres concurrents
+            stressConcurrentTrees(level);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("trace")) {
+            // génère au besoin une trace, puis la rejoue sur un AVLTree et un BTree
+            replayTrace(args, level);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("scan")) {
+            // parcours complets et par intervalles, arbre B contre arbre B+ du même ordre
+            compareScans(level);
+            return;
+        }
+        // file des valeurs ajoutées, la plus ancienne est retirée en O(1)
+        ArrayDeque<Integer> array = new ArrayDeque<Integer>();
         Analyzer time_avl = new Analyzer();
         Analyzer time_b = new Analyzer();
         long beforeB, beforeAVL, afterB, afterAVL;
@@ -14,7 +43,7 @@ public class Main {
         for (int i = 0; i < 1000000; i++) {
             boolean bool = rd.nextBoolean();
             if (!bool && array.size() != 0) {
-                int value = array.remove(0);
+                int value = array.poll();
                 beforeAVL = System.nanoTime();
                 avl.remove(value);
                 afterAVL = System.nanoTime();
@@ -45,4 +74,283 @@ public class Main {
         time_avl.save_values("avlTimeR_" + level + ".plot");
         time_b.save_values("bTimeR_" + level + ".plot");
     }
+
+    /**
+     * Rejoue la séquence aléatoire de main (même graine) sur un BTree<Integer>
+     * et sur un IntBTree du même ordre, puis sauvegarde les deux séries de temps.
+     *
+     * @param level ordre des deux arbres B.
+     */
+    private static void compareIntBTree(int level) {
+        // file des valeurs ajoutées, la plus ancienne est retirée en O(1)
+        ArrayDeque<Integer> array = new ArrayDeque<Integer>();
+        Analyzer time_b = new Analyzer();
+        Analyzer time_int = new Analyzer();
+        long beforeB, beforeInt, afterB, afterInt;
+        BTree<Integer> b = new BTree<Integer>(level);
+        IntBTree ib = new IntBTree(level);
+        Random rd = new Random(11500697);
+        for (int i = 0; i < 1000000; i++) {
+            boolean bool = rd.nextBoolean();
+            if (!bool && array.size() != 0) {
+                int value = array.poll();
+                beforeB = System.nanoTime();
+                b.remove(value);
+                afterB = System.nanoTime();
+                beforeInt = System.nanoTime();
+                ib.remove(value);
+                afterInt = System.nanoTime();
+                time_b.append(afterB - beforeB);
+                time_int.append(afterInt - beforeInt);
+            } else {
+                int value = Math.abs(rd.nextInt());
+                array.add(value);
+                beforeB = System.nanoTime();
+                b.add(value);
+                afterB = System.nanoTime();
+                beforeInt = System.nanoTime();
+                ib.add(value);
+                afterInt = System.nanoTime();
+                time_b.append(afterB - beforeB);
+                time_int.append(afterInt - beforeInt);
+            }
+        }
+        System.out.println("BTree<Integer> : moyenne " + time_b.get_average_cost() + " ns");
+        System.out.println("IntBTree       : moyenne " + time_int.get_average_cost() + " ns");
+        time_b.save_values("bTimeR_" + level + ".plot");
+        time_int.save_values("intBTimeR_" + level + ".plot");
+    }
+
+    /**
+     * Main trace fichier [uniform|zipfian|sequential|window|readheavy nombre [graine]]
+     * <p>
+     * Avec un type de charge, écrit d'abord dans le fichier une trace de ce type du nombre
+     * d'opérations donné. Rejoue ensuite le fichier sur un AVLTree et sur un BTree, affiche
+     * leurs compteurs, les percentiles des temps et sauvegarde ceux d'au plus TRACE_POINTS opérations.
+     *
+     * @param level ordre de l'arbre B.
+     */
+    private static void replayTrace(String[] args, int level) {
+        if (args.length != 2 && args.length != 4 && args.length != 5)
+            throw new IllegalArgumentException("Usage: Main trace <file> [uniform|zipfian|sequential|window|readheavy <count> [seed]]");
+        String path = args[1];
+        try {
+            if (args.length > 2) {
+                long count = Long.parseLong(args[3]);
+                long seed = args.length > 4 ? Long.parseLong(args[4]) : 11500697;
+                int range = (int) Math.min(Integer.MAX_VALUE, Math.max(1, count));
+                TraceGenerator generator;
+                if (args[2].equals("uniform"))
+                    generator = TraceGenerator.uniform(range, 50, 50, seed);
+                else if (args[2].equals("zipfian"))
+                    generator = TraceGenerator.zipfian(range, 0.99, 50, 50, seed);
+                else if (args[2].equals("sequential"))
+                    generator = TraceGenerator.sequential();
+                else if (args[2].equals("window"))
+                    generator = TraceGenerator.slidingWindow(0, 50, false, seed);
+                else if (args[2].equals("readheavy"))
+                    generator = TraceGenerator.readHeavy(range, seed);
+                else
+                    throw new IllegalArgumentException("Unknown workload " + args[2]);
+                Trace.Writer out = new Trace.Writer(new java.io.FileOutputStream(path));
+                try {
+                    generator.write(out, count);
+                } finally {
+                    out.close();
+                }
+                System.out.println(count + " opérations écrites dans " + path + " (" + new java.io.File(path).length() + " octets)");
+            }
+            // les compteurs expliquent les écarts de temps : comparaisons, rotations, séparations...
+            AVLTree<Integer> avl = new AVLTree<Integer>();
+            avl.enableStats();
+            replayTrace(path, "avlTrace.plot", avl);
+            System.out.println("    " + avl.getStats());
+            BTree<Integer> b = new BTree<Integer>(level);
+            b.enableStats();
+            replayTrace(path, "bTrace_" + level + ".plot", b);
+            System.out.println("    " + b.getStats());
+        } catch (java.io.IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final int TRACE_POINTS = 10000;
+
+    private static void replayTrace(String path, String plot, ITree<Integer> tree) throws java.io.IOException {
+        // mémoire fixe quelle que soit la longueur de la trace
+        Analyzer costs = new Analyzer(TRACE_POINTS);
+        Trace.Reader in = new Trace.Reader(new java.io.FileInputStream(path));
+        try {
+            Trace.Replay replay = Trace.replay(in, tree, costs);
+            System.out.println(tree.getClass().getSimpleName() + " : " + replay + ", taille finale " + tree.size());
+            System.out.println("    " + costs.get_summary());
+        } finally {
+            in.close();
+        }
+        costs.save_values(plot);
+    }
+
+    private static final int SCAN_SIZE = 1000000;
+    private static final int SCAN_QUERIES = 100000;
+    private static final int SCAN_LENGTH = 100;
+
+    /**
+     * Remplit un BTree et un BPlusTree du même ordre avec les mêmes valeurs, puis compare
+     * le temps d'un parcours complet et de SCAN_QUERIES lectures des SCAN_LENGTH valeurs
+     * qui suivent une clé aléatoire.
+     *
+     * @param level ordre des deux arbres.
+     */
+    private static void compareScans(int level) {
+        BTree<Integer> b = new BTree<Integer>(level);
+        BPlusTree<Integer> bPlus = new BPlusTree<Integer>(level);
+        Random rd = new Random(11500697);
+        for (int i = 0; i < SCAN_SIZE; i++) {
+            int value = rd.nextInt(Integer.MAX_VALUE);
+            b.add(value);
+            bPlus.add(value);
+        }
+        // plusieurs tours pour laisser le JIT compiler les deux parcours
+        for (int round = 0; round < 5; round++) {
+            long sum = 0;
+            long before = System.nanoTime();
+            for (Integer value : b.toCollection())
+                sum += value;
+            long afterB = System.nanoTime();
+            for (Integer value : bPlus.toCollection())
+                sum -= value;
+            long afterBPlus = System.nanoTime();
+            if (sum != 0)
+                throw new RuntimeException("Les deux arbres n'ont pas les mêmes valeurs.");
+            System.out.println("parcours complet : BTree " + (afterB - before) / 1000000 + " ms, BPlusTree "
+                    + (afterBPlus - afterB) / 1000000 + " ms");
+
+            Random queries = new Random(round);
+            before = System.nanoTime();
+            for (int q = 0; q < SCAN_QUERIES; q++) {
+                java.util.Iterator<Integer> cursor = b.cursor(queries.nextInt(Integer.MAX_VALUE));
+                for (int k = 0; k < SCAN_LENGTH && cursor.hasNext(); k++)
+                    sum += cursor.next();
+            }
+            afterB = System.nanoTime();
+            queries = new Random(round);
+            for (int q = 0; q < SCAN_QUERIES; q++) {
+                java.util.Iterator<Integer> cursor = bPlus.cursor(queries.nextInt(Integer.MAX_VALUE));
+                for (int k = 0; k < SCAN_LENGTH && cursor.hasNext(); k++)
+                    sum -= cursor.next();
+            }
+            afterBPlus = System.nanoTime();
+            if (sum != 0)
+                throw new RuntimeException("Les deux curseurs n'ont pas rendu les mêmes valeurs.");
+            System.out.println(SCAN_QUERIES + " x " + SCAN_LENGTH + " valeurs suivantes : BTree "
+                    + (afterB - before) / 1000000 + " ms, BPlusTree " + (afterBPlus - afterB) / 1000000 + " ms");
+        }
+    }
+
+    /**
+     * Test de charge des arbres concurrents : chaque thread ajoute et supprime des valeurs
+     * d'un même intervalle, puis on vérifie validate() et size() contre le bilan des
+     * opérations réussies. Mesure ensuite le débit d'un mélange à 95% de contains
+     * avec 1 à N threads.
+     *
+     * @param level ordre de l'arbre B.
+     */
+    private static void stressConcurrentTrees(int level) {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        for (int order : new int[] { 1, 2, level })
+            stress("ConcurrentBTree(" + order + ")", new ConcurrentBTree<Integer>(order), threads);
+        stress("ConcurrentAVLTree", new ConcurrentAVLTree<Integer>(), threads);
+        stress("ShardedTree(BTree)", ShardedTree.<Integer>ofBTrees(4 * threads, level), threads);
+
+        throughput("ConcurrentBTree(" + level + ")", new ConcurrentBTree<Integer>(level), threads);
+        throughput("ConcurrentAVLTree", new ConcurrentAVLTree<Integer>(), threads);
+        throughput("ShardedTree(AVLTree)", ShardedTree.<Integer>ofAVLTrees(4 * threads), threads);
+    }
+
+    private static final int STRESS_OPERATIONS = 1000000;
+    private static final int STRESS_RANGE = 100000;
+
+    private static void stress(String name, final ITree<Integer> tree, final int threads) {
+        final AtomicInteger expected = new AtomicInteger();
+        runThreads(threads, new Worker() {
+            @Override
+            public void run(int id) {
+                Random rd = new Random(11500697 + id);
+                int balance = 0;
+                for (int i = 0; i < STRESS_OPERATIONS / threads; i++) {
+                    int value = rd.nextInt(STRESS_RANGE);
+                    int op = rd.nextInt(4);
+                    if (op < 2) {
+                        tree.add(value);
+                        balance++;
+                    } else if (op == 2) {
+                        if (tree.remove(value) != null)
+                            balance--;
+                    } else {
+                        tree.contains(value);
+                    }
+                }
+                expected.addAndGet(balance);
+            }
+        });
+        if (!tree.validate())
+            throw new RuntimeException(name + " invalide après le test de charge.");
+        if (tree.size() != expected.get() || tree.toCollection().size() != expected.get())
+            throw new RuntimeException(name + " : taille " + tree.size() + " au lieu de " + expected.get());
+        System.out.println(name + " : " + threads + " threads, taille " + tree.size() + ", valide");
+    }
+
+    private static void throughput(String name, final ITree<Integer> tree, int threads) {
+        for (int i = 0; i < STRESS_RANGE; i += 2)
+            tree.add(i);
+        for (int n = 1; n <= threads; n *= 2) {
+            final int count = n;
+            long before = System.nanoTime();
+            runThreads(count, new Worker() {
+                @Override
+                public void run(int id) {
+                    Random rd = new Random(id);
+                    for (int i = 0; i < STRESS_OPERATIONS / count; i++) {
+                        int value = rd.nextInt(STRESS_RANGE);
+                        int op = rd.nextInt(40);
+                        if (op == 0)
+                            tree.add(value);
+                        else if (op == 1)
+                            tree.remove(value);
+                        else
+                            tree.contains(value);
+                    }
+                }
+            });
+            long after = System.nanoTime();
+            System.out.println(name + ", " + count + " threads : " + (STRESS_OPERATIONS * 1000L / ((after - before) / 1000)) + " op/ms");
+        }
+    }
+
+    private interface Worker {
+        void run(int id);
+    }
+
+    /**
+     * Lance count threads sur le même travail et attend leur fin.
+     */
+    private static void runThreads(int count, final Worker worker) {
+        Thread[] workers = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            final int id = i;
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    worker.run(id);
+                }
+            });
+            workers[i].start();
+        }
+        try {
+            for (Thread thread : workers)
+                thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,957 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import interfaces.ITree;
+
+/**
+ * B-arbre persistant, stocké dans un fichier de pages de taille fixe accédé par
+ * {@link FileChannel#map}. L'ouverture d'un fichier existant ne lit que l'en-tête :
+ * les pages sont projetées en mémoire à la demande.
+ * <p>
+ * Format du fichier (petit-boutiste) :
+ * <pre>
+ * page 0     : deux emplacements d'en-tête de 64 octets, utilisés en alternance
+ *              [magic][version][ordre][largeur de clé][taille de page]
+ *              [transaction][racine][nombre de valeurs][nombre de pages][page libre][crc32]
+ * page 1..n  : [type][transaction][nombre de clés][nombre d'enfants][clés][enfants]
+ * </pre>
+ * Les modifications se font par copie sur écriture : une page déjà validée n'est
+ * jamais réécrite, on en copie le chemin depuis la racine. {@link #commit()} force
+ * les nouvelles pages sur disque, puis écrit l'en-tête dans l'emplacement qui ne
+ * porte pas la dernière transaction. C'est cette écriture qui bascule la racine.
+ * Après un arrêt brutal, l'ouverture retient l'en-tête valide (somme de contrôle)
+ * le plus récent. On retrouve donc l'arbre du dernier commit, intact.
+ * <p>
+ * Les pages remplacées ne sont rendues à la liste libre qu'après le commit qui
+ * les a rendues inaccessibles. Les nœuds n'ont pas de lien vers leur parent, ce
+ * qui éviterait de recopier tous les frères lors d'une séparation. Le chemin
+ * de descente est donc mémorisé. Pour le reste, l'ajout, la séparation (split)
+ * et la combinaison (combined) suivent {@link BTree}.
+ * <p>
+ * @see BTree
+ * @see OffHeapBTree
+ */
+public class MappedBTree<T extends Comparable<T>> implements ITree<T> {
+
+    private static final int NIL = -1;
+
+    private static final int MAGIC = 0x42545245;
+    private static final int VERSION = 1;
+
+    // emplacements d'en-tête dans la page 0
+    private static final int HEADER_SLOT = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_ORDER = 8;
+    private static final int H_KEY_WIDTH = 12;
+    private static final int H_PAGE_SIZE = 16;
+    private static final int H_TXN = 20;
+    private static final int H_ROOT = 24;
+    private static final int H_SIZE = 28;
+    private static final int H_PAGE_COUNT = 32;
+    private static final int H_FREE = 36;
+    private static final int H_CHECKSUM = 40;
+
+    // en-tête de page
+    private static final int KIND = 0;
+    private static final int TXN = 4;
+    private static final int KEYS_SIZE = 8;
+    private static final int CHILDREN_SIZE = 12;
+    private static final int HEADER = 16;
+    // une page libre garde la suivante de la liste à la place du nombre de clés
+    private static final int NEXT_FREE = 8;
+
+    private static final int NODE = 1;
+    private static final int FREE = 2;
+
+    private static final int MIN_PAGE_SIZE = 2 * HEADER_SLOT;
+    private static final int CHUNK_BYTES = 1 << 22;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final OffHeapBTree.KeyCodec<T> codec;
+    private final int keyWidth;
+
+    private final int order;
+    private final int minKeySize;
+    private final int maxKeySize;
+    private final int minChildrenSize;
+    private final int maxChildrenSize;
+
+    private final int childrenOffset;
+    private final int pageSize;
+    private final int pagesPerChunkShift;
+    private final int pagesPerChunkMask;
+
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private final byte[] scratch;
+
+    // transaction en cours : les pages qui la portent peuvent être modifiées sur place
+    private int txn;
+    private int root;
+    private int size;
+    private int pageCount;
+    private int free;
+    private boolean dirty = false;
+
+    // pages remplacées pendant la transaction, libérées après le commit
+    private int[] pending = new int[16];
+    private int pendingSize = 0;
+
+    // chemin de la dernière descente : page et indice de l'enfant suivi
+    private int[] pathPages = new int[16];
+    private int[] pathIndexes = new int[16];
+    private int depth = 0;
+
+    private MappedBTree(RandomAccessFile file, OffHeapBTree.KeyCodec<T> codec, int order, int pageSize) {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.codec = codec;
+        this.keyWidth = codec.width();
+        this.order = order;
+        this.minKeySize = order;
+        this.minChildrenSize = minKeySize + 1;
+        this.maxKeySize = 2 * minKeySize;
+        this.maxChildrenSize = maxKeySize + 1;
+        this.childrenOffset = HEADER + (maxKeySize + 1) * keyWidth;
+        this.pageSize = pageSize;
+        this.scratch = new byte[pageSize];
+
+        int pagesPerChunk = Integer.highestOneBit(Math.max(1, CHUNK_BYTES / pageSize));
+        this.pagesPerChunkShift = Integer.numberOfTrailingZeros(pagesPerChunk);
+        this.pagesPerChunkMask = pagesPerChunk - 1;
+    }
+
+    /**
+     * Ouvre le fichier, ou le crée avec un B-arbre 2-3 vide.
+     *
+     * @param path fichier de l'arbre.
+     * @param codec encodage des clés.
+     */
+    public static <T extends Comparable<T>> MappedBTree<T> open(File path, OffHeapBTree.KeyCodec<T> codec) throws IOException {
+        return open(path, codec, 1);
+    }
+
+    /**
+     * Ouvre le fichier, ou le crée avec un arbre vide de l'ordre donné.
+     * Pour un fichier existant, c'est l'ordre enregistré dans l'en-tête qui s'applique.
+     *
+     * @param path fichier de l'arbre.
+     * @param codec encodage des clés.
+     * @param order nombre minimum de clés dans un nœud non racine, pour un nouveau fichier.
+     */
+    public static <T extends Comparable<T>> MappedBTree<T> open(File path, OffHeapBTree.KeyCodec<T> codec, int order) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            if (file.length() == 0) {
+                int pageSize = HEADER + (2 * order + 1) * codec.width() + (2 * order + 2) * 4;
+                MappedBTree<T> tree = new MappedBTree<T>(file, codec, order, Math.max(pageSize, MIN_PAGE_SIZE));
+                tree.txn = 0;
+                tree.root = NIL;
+                tree.size = 0;
+                tree.pageCount = 1;
+                tree.free = NIL;
+                tree.dirty = true;
+                tree.commit();
+                return tree;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(2 * HEADER_SLOT).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && file.getChannel().read(header, header.position()) > 0) { }
+            int slot = NIL;
+            for (int i = 0; i < 2; i++) {
+                if (isValidHeader(header, i * HEADER_SLOT)
+                        && (slot == NIL || header.getInt(i * HEADER_SLOT + H_TXN) > header.getInt(slot + H_TXN)))
+                    slot = i * HEADER_SLOT;
+            }
+            if (slot == NIL)
+                throw new IOException("No valid header in " + path);
+            if (header.getInt(slot + H_KEY_WIDTH) != codec.width())
+                throw new IllegalArgumentException("Key width " + header.getInt(slot + H_KEY_WIDTH)
+                                                   + " does not match codec width " + codec.width());
+
+            MappedBTree<T> tree = new MappedBTree<T>(file, codec, header.getInt(slot + H_ORDER), header.getInt(slot + H_PAGE_SIZE));
+            tree.txn = header.getInt(slot + H_TXN) + 1;
+            tree.root = header.getInt(slot + H_ROOT);
+            tree.size = header.getInt(slot + H_SIZE);
+            tree.pageCount = header.getInt(slot + H_PAGE_COUNT);
+            tree.free = header.getInt(slot + H_FREE);
+            return tree;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        } catch (RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static boolean isValidHeader(ByteBuffer header, int offset) {
+        if (header.getInt(offset + H_MAGIC) != MAGIC || header.getInt(offset + H_VERSION) != VERSION)
+            return false;
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), offset, H_CHECKSUM);
+        return header.getInt(offset + H_CHECKSUM) == (int) crc.getValue();
+    }
+
+    /**
+     * Rend durables toutes les modifications depuis le dernier commit.
+     * Les pages de la transaction sont forcées sur disque avant l'en-tête,
+     * qui désigne la nouvelle racine.
+     */
+    public void commit() {
+        if (!dirty)
+            return;
+        for (MappedByteBuffer chunk : chunks) {
+            if (chunk != null)
+                chunk.force();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SLOT).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(H_MAGIC, MAGIC);
+        header.putInt(H_VERSION, VERSION);
+        header.putInt(H_ORDER, order);
+        header.putInt(H_KEY_WIDTH, keyWidth);
+        header.putInt(H_PAGE_SIZE, pageSize);
+        header.putInt(H_TXN, txn);
+        header.putInt(H_ROOT, root);
+        header.putInt(H_SIZE, size);
+        header.putInt(H_PAGE_COUNT, pageCount);
+        header.putInt(H_FREE, free);
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 0, H_CHECKSUM);
+        header.putInt(H_CHECKSUM, (int) crc.getValue());
+
+        MappedByteBuffer first = chunk(0);
+        first.position((txn & 1) * HEADER_SLOT);
+        first.put(header.array());
+        first.force();
+
+        txn++;
+        // la racine validée n'atteint plus ces pages, on peut les réutiliser
+        for (int i = 0; i < pendingSize; i++)
+            pushFree(pending[i]);
+        dirty = (pendingSize > 0);
+        pendingSize = 0;
+    }
+
+    /**
+     * Valide les modifications en cours et ferme le fichier.
+     */
+    public void close() throws IOException {
+        commit();
+        chunks = new MappedByteBuffer[0];
+        file.close();
+    }
+
+    /* ---------------------------------------------------------------- pages */
+
+    private MappedByteBuffer chunk(int page) {
+        int index = page >>> pagesPerChunkShift;
+        if (index >= chunks.length)
+            chunks = Arrays.copyOf(chunks, index + 1);
+        MappedByteBuffer chunk = chunks[index];
+        if (chunk == null) {
+            long bytes = (long) (pagesPerChunkMask + 1) * pageSize;
+            try {
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, index * bytes, bytes);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to map pages of the tree file", e);
+            }
+            chunk.order(ByteOrder.LITTLE_ENDIAN);
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    private int base(int page) {
+        return (page & pagesPerChunkMask) * pageSize;
+    }
+
+    /**
+     * Réserve une page pour la transaction en cours, en priorité dans la liste libre.
+     */
+    private int newPage() {
+        int page = NIL;
+        if (free != NIL) {
+            if (free < pageCount && chunk(free).getInt(base(free) + KIND) == FREE) {
+                page = free;
+                free = chunk(page).getInt(base(page) + NEXT_FREE);
+            } else {
+                // liste libre entamée par une transaction non validée : on l'abandonne
+                free = NIL;
+            }
+        }
+        if (page == NIL)
+            page = pageCount++;
+        ByteBuffer buffer = chunk(page);
+        int base = base(page);
+        buffer.putInt(base + KIND, NODE);
+        buffer.putInt(base + TXN, txn);
+        buffer.putInt(base + KEYS_SIZE, 0);
+        buffer.putInt(base + CHILDREN_SIZE, 0);
+        dirty = true;
+        return page;
+    }
+
+    private void pushFree(int page) {
+        ByteBuffer buffer = chunk(page);
+        int base = base(page);
+        buffer.putInt(base + KIND, FREE);
+        buffer.putInt(base + NEXT_FREE, free);
+        free = page;
+    }
+
+    /**
+     * Libère une page. Une page validée reste intacte jusqu'au prochain commit.
+     */
+    private void release(int page) {
+        if (chunk(page).getInt(base(page) + TXN) == txn) {
+            pushFree(page);
+        } else {
+            if (pendingSize == pending.length)
+                pending = Arrays.copyOf(pending, pendingSize * 2);
+            pending[pendingSize++] = page;
+        }
+    }
+
+    /**
+     * @return la page elle-même si la transaction l'a déjà écrite, sinon une copie modifiable.
+     */
+    private int copyOnWrite(int page) {
+        if (chunk(page).getInt(base(page) + TXN) == txn)
+            return page;
+        int copy = newPage();
+        copy(page, KEYS_SIZE, copy, KEYS_SIZE, pageSize - KEYS_SIZE);
+        release(page);
+        return copy;
+    }
+
+    /**
+     * Rend modifiables les pages du chemin jusqu'à la profondeur donnée,
+     * en recopiant depuis la racine.
+     */
+    private void copyPathOnWrite(int to) {
+        for (int i = 0; i <= to; i++) {
+            int page = copyOnWrite(pathPages[i]);
+            if (page != pathPages[i]) {
+                pathPages[i] = page;
+                if (i == 0)
+                    root = page;
+                else
+                    setChild(pathPages[i - 1], pathIndexes[i - 1], page);
+            }
+        }
+    }
+
+    private void push(int page) {
+        if (depth == pathPages.length) {
+            pathPages = Arrays.copyOf(pathPages, depth * 2);
+            pathIndexes = Arrays.copyOf(pathIndexes, depth * 2);
+        }
+        pathPages[depth++] = page;
+    }
+
+    private void copy(int srcPage, int srcOffset, int dstPage, int dstOffset, int length) {
+        if (length <= 0)
+            return;
+        ByteBuffer src = chunk(srcPage);
+        src.position(base(srcPage) + srcOffset);
+        src.get(scratch, 0, length);
+        ByteBuffer dst = chunk(dstPage);
+        dst.position(base(dstPage) + dstOffset);
+        dst.put(scratch, 0, length);
+    }
+
+    private int numberOfKeys(int page) {
+        return chunk(page).getInt(base(page) + KEYS_SIZE);
+    }
+
+    private void setNumberOfKeys(int page, int keysSize) {
+        chunk(page).putInt(base(page) + KEYS_SIZE, keysSize);
+    }
+
+    private int numberOfChildren(int page) {
+        return chunk(page).getInt(base(page) + CHILDREN_SIZE);
+    }
+
+    private void setNumberOfChildren(int page, int childrenSize) {
+        chunk(page).putInt(base(page) + CHILDREN_SIZE, childrenSize);
+    }
+
+    private int keyOffset(int index) {
+        return HEADER + index * keyWidth;
+    }
+
+    private int childOffset(int index) {
+        return childrenOffset + index * 4;
+    }
+
+    private T getKey(int page, int index) {
+        return codec.read(chunk(page), base(page) + keyOffset(index));
+    }
+
+    /**
+     * Recherche dichotomique de la valeur parmi les clés de la page.
+     *
+     * @return indice de la clé égale à la valeur, sinon (-(indice de l'enfant à suivre) - 1).
+     */
+    private int search(int page, T value) {
+        ByteBuffer buffer = chunk(page);
+        int keys = base(page) + HEADER;
+        int low = 0;
+        int high = buffer.getInt(base(page) + KEYS_SIZE) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = codec.compare(buffer, keys + mid * keyWidth, value);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return indice de la première clé strictement supérieure à la valeur.
+     */
+    private int insertionIndex(int page, T value) {
+        ByteBuffer buffer = chunk(page);
+        int keys = base(page) + HEADER;
+        int low = 0;
+        int high = buffer.getInt(base(page) + KEYS_SIZE);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (codec.compare(buffer, keys + mid * keyWidth, value) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void addKey(int page, T value) {
+        insertKey(page, insertionIndex(page, value), value);
+    }
+
+    private void insertKey(int page, int index, T value) {
+        int keysSize = numberOfKeys(page);
+        // shift the greater keys up
+        copy(page, keyOffset(index), page, keyOffset(index + 1), (keysSize - index) * keyWidth);
+        codec.write(chunk(page), base(page) + keyOffset(index), value);
+        setNumberOfKeys(page, keysSize + 1);
+    }
+
+    private void insertKeys(int page, int index, int srcPage, int srcPos, int length) {
+        int keysSize = numberOfKeys(page);
+        copy(page, keyOffset(index), page, keyOffset(index + length), (keysSize - index) * keyWidth);
+        copy(srcPage, keyOffset(srcPos), page, keyOffset(index), length * keyWidth);
+        setNumberOfKeys(page, keysSize + length);
+    }
+
+    private T removeKey(int page, int index) {
+        int keysSize = numberOfKeys(page);
+        T value = getKey(page, index);
+        // shift the rest of the keys down
+        copy(page, keyOffset(index + 1), page, keyOffset(index), (keysSize - index - 1) * keyWidth);
+        setNumberOfKeys(page, keysSize - 1);
+        return value;
+    }
+
+    private int getChild(int page, int index) {
+        if (index >= numberOfChildren(page))
+            return NIL;
+        return chunk(page).getInt(base(page) + childOffset(index));
+    }
+
+    private void setChild(int page, int index, int child) {
+        chunk(page).putInt(base(page) + childOffset(index), child);
+    }
+
+    private void addChild(int page, int index, int child) {
+        int childrenSize = numberOfChildren(page);
+        // shift the following children up
+        copy(page, childOffset(index), page, childOffset(index + 1), (childrenSize - index) * 4);
+        setChild(page, index, child);
+        setNumberOfChildren(page, childrenSize + 1);
+    }
+
+    private void insertChildren(int page, int index, int srcPage, int srcPos, int length) {
+        int childrenSize = numberOfChildren(page);
+        copy(page, childOffset(index), page, childOffset(index + length), (childrenSize - index) * 4);
+        copy(srcPage, childOffset(srcPos), page, childOffset(index), length * 4);
+        setNumberOfChildren(page, childrenSize + length);
+    }
+
+    private int removeChild(int page, int index) {
+        int childrenSize = numberOfChildren(page);
+        int child = getChild(page, index);
+        // shift the rest of the children down
+        copy(page, childOffset(index + 1), page, childOffset(index), (childrenSize - index - 1) * 4);
+        setNumberOfChildren(page, childrenSize - 1);
+        return child;
+    }
+
+    /* ----------------------------------------------------------------- arbre */
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(T value) {
+        if (root == NIL) {
+            root = newPage();
+            addKey(root, value);
+            size++;
+            return true;
+        }
+
+        depth = 0;
+        int node = root;
+        while (true) {
+            push(node);
+            if (numberOfChildren(node) == 0)
+                break;
+            // navigation, une valeur égale à une clé descend à gauche de celle-ci
+            int index = search(node, value);
+            int child = (index >= 0) ? index : -index - 1;
+            pathIndexes[depth - 1] = child;
+            node = getChild(node, child);
+        }
+
+        int leaf = depth - 1;
+        copyPathOnWrite(leaf);
+        addKey(pathPages[leaf], value);
+        if (numberOfKeys(pathPages[leaf]) > maxKeySize) {
+            // séparation
+            split(leaf);
+        }
+
+        size++;
+
+        return true;
+    }
+
+    /**
+     * La taille de la clé du nœud est supérieure à maxKeySize, divisée par le milieu.
+     * La page séparée garde la moitié gauche, la moitié droite part dans une nouvelle page.
+     *
+     * @param level profondeur du nœud dans le chemin courant.
+     */
+    private void split(int level) {
+        int node = pathPages[level];
+        int numberOfKeys = numberOfKeys(node);
+        int numberOfChildren = numberOfChildren(node);
+        int medianIndex = numberOfKeys / 2;
+        T medianValue = getKey(node, medianIndex);
+
+        int right = newPage();
+        insertKeys(right, 0, node, medianIndex + 1, numberOfKeys - medianIndex - 1);
+        if (numberOfChildren > 0) {
+            insertChildren(right, 0, node, medianIndex + 1, numberOfChildren - medianIndex - 1);
+            setNumberOfChildren(node, medianIndex + 1);
+        }
+        setNumberOfKeys(node, medianIndex);
+
+        if (level == 0) {
+            // nouvelle racine, la hauteur de l'arbre est augmentée
+            int newRoot = newPage();
+            addKey(newRoot, medianValue);
+            addChild(newRoot, 0, node);
+            addChild(newRoot, 1, right);
+            root = newRoot;
+        } else {
+            // Déplacer la valeur médiane vers le parent, juste après le nœud séparé
+            int parent = pathPages[level - 1];
+            int index = pathIndexes[level - 1];
+            insertKey(parent, index, medianValue);
+            addChild(parent, index + 1, right);
+
+            if (numberOfKeys(parent) > maxKeySize) split(level - 1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T remove(T value) {
+        depth = 0;
+        int node = root;
+        int index = -1;
+        while (node != NIL) {
+            push(node);
+            index = search(node, value);
+            if (index >= 0)
+                break;
+            int child = -index - 1;
+            pathIndexes[depth - 1] = child;
+            node = getChild(node, child);
+        }
+        if (node == NIL)
+            return null;
+
+        int level = depth - 1;
+        if (numberOfChildren(node) > 0) {
+            // nœud interne : on descend jusqu'à la plus grande valeur du sous-arbre gauche
+            pathIndexes[level] = index;
+            int greatest = getChild(node, index);
+            while (true) {
+                push(greatest);
+                int childrenSize = numberOfChildren(greatest);
+                if (childrenSize == 0)
+                    break;
+                pathIndexes[depth - 1] = childrenSize - 1;
+                greatest = getChild(greatest, childrenSize - 1);
+            }
+        }
+
+        int leaf = depth - 1;
+        copyPathOnWrite(leaf);
+        T removed = removeKey(pathPages[level], index);
+        if (leaf != level) {
+            T replaceValue = removeKey(pathPages[leaf], numberOfKeys(pathPages[leaf]) - 1);
+            insertKey(pathPages[level], index, replaceValue);
+        }
+
+        if (leaf > 0 && numberOfKeys(pathPages[leaf]) < minKeySize) {
+            this.combined(leaf);
+        } else if (leaf == 0 && numberOfKeys(pathPages[leaf]) == 0) {
+            // Suppression du noeud racine sans clés ni enfants
+            release(root);
+            root = NIL;
+        }
+
+        size--;
+
+        return removed;
+    }
+
+    /**
+     * fonction de Combinaison de clés enfants avec parent
+     * lorsque la taille est inférieure à minKeySize. Le chemin jusqu'au nœud
+     * est déjà modifiable, les voisins sont recopiés s'ils doivent changer.
+     *
+     * @param level profondeur du nœud dans le chemin courant.
+     */
+    private void combined(int level) {
+        int node = pathPages[level];
+        int parent = pathPages[level - 1];
+        int index = pathIndexes[level - 1];
+        int indexOfLeftNeighbor = index - 1;
+        int indexOfRightNeighbor = index + 1;
+
+        int rightNeighbor = NIL;
+        int rightNeighborSize = -minChildrenSize;
+        if (indexOfRightNeighbor < numberOfChildren(parent)) {
+            rightNeighbor = getChild(parent, indexOfRightNeighbor);
+            rightNeighborSize = numberOfKeys(rightNeighbor);
+        }
+
+        // Essayer d'emprunter le voisin
+        if (rightNeighbor != NIL && rightNeighborSize > minKeySize) {
+            // Essayer d'emprunter au bon voisin
+            rightNeighbor = copyOnWrite(rightNeighbor);
+            setChild(parent, indexOfRightNeighbor, rightNeighbor);
+            T parentValue = removeKey(parent, index);
+            T neighborValue = removeKey(rightNeighbor, 0);
+            addKey(node, parentValue);
+            insertKey(parent, index, neighborValue);
+            if (numberOfChildren(rightNeighbor) > 0) {
+                addChild(node, numberOfChildren(node), removeChild(rightNeighbor, 0));
+            }
+            return;
+        }
+
+        int leftNeighbor = NIL;
+        int leftNeighborSize = -minChildrenSize;
+        if (indexOfLeftNeighbor >= 0) {
+            leftNeighbor = getChild(parent, indexOfLeftNeighbor);
+            leftNeighborSize = numberOfKeys(leftNeighbor);
+        }
+
+        if (leftNeighbor != NIL && leftNeighborSize > minKeySize) {
+            // Essayer d'emprunter au voisin de gauche
+            leftNeighbor = copyOnWrite(leftNeighbor);
+            setChild(parent, indexOfLeftNeighbor, leftNeighbor);
+            T parentValue = removeKey(parent, indexOfLeftNeighbor);
+            T neighborValue = removeKey(leftNeighbor, numberOfKeys(leftNeighbor) - 1);
+            addKey(node, parentValue);
+            insertKey(parent, indexOfLeftNeighbor, neighborValue);
+            if (numberOfChildren(leftNeighbor) > 0) {
+                addChild(node, 0, removeChild(leftNeighbor, numberOfChildren(leftNeighbor) - 1));
+            }
+            return;
+        }
+
+        if (rightNeighbor != NIL && numberOfKeys(parent) > 0) {
+            // On ne peut pas emprunter aux voisins, essayez de combiner avec le bon voisin
+            T parentValue = removeKey(parent, index);
+            removeChild(parent, indexOfRightNeighbor);
+            addKey(node, parentValue);
+            insertKeys(node, numberOfKeys(node), rightNeighbor, 0, numberOfKeys(rightNeighbor));
+            insertChildren(node, numberOfChildren(node), rightNeighbor, 0, numberOfChildren(rightNeighbor));
+            release(rightNeighbor);
+        } else if (leftNeighbor != NIL && numberOfKeys(parent) > 0) {
+            // On ne peut pas emprunter aux voisins, essayez de combiner avec le voisin de gauche
+            T parentValue = removeKey(parent, indexOfLeftNeighbor);
+            removeChild(parent, indexOfLeftNeighbor);
+            addKey(node, parentValue);
+            insertKeys(node, 0, leftNeighbor, 0, numberOfKeys(leftNeighbor));
+            insertChildren(node, 0, leftNeighbor, 0, numberOfChildren(leftNeighbor));
+            release(leftNeighbor);
+            // le nœud a pris la place de son voisin de gauche dans le parent
+            pathIndexes[level - 1] = indexOfLeftNeighbor;
+        } else {
+            return;
+        }
+
+        if (level - 1 > 0 && numberOfKeys(parent) < minKeySize) {
+            // suppression de la clé rendue parent trop petit, arbre combiné
+            this.combined(level - 1);
+        } else if (numberOfKeys(parent) == 0) {
+            // parent n'a plus de clés,
+            // faites de ce noeud la nouvelle racine qui diminue la hauteur de l'arbre
+            release(parent);
+            root = node;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        if (root != NIL)
+            releaseSubtree(root);
+        root = NIL;
+        size = 0;
+        dirty = true;
+    }
+
+    private void releaseSubtree(int page) {
+        for (int i = 0; i < numberOfChildren(page); i++)
+            releaseSubtree(getChild(page, i));
+        release(page);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(T value) {
+        int node = root;
+        while (node != NIL) {
+            int index = search(node, value);
+            if (index >= 0)
+                return true;
+            node = getChild(node, -index - 1);
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean validate() {
+        if (root == NIL) return (size == 0);
+        int height = 0;
+        for (int node = root; node != NIL; node = getChild(node, 0))
+            height++;
+        return validateNode(root, true, height - 1);
+    }
+
+    /**
+     * Validation de la page selon les invariants de l'arbre B.
+     * Toutes les feuilles doivent être à la même profondeur.
+     *
+     * @param node
+     * @param isRoot
+     * @param levelsBelow nombre de niveaux attendus sous la page.
+     * @return Vrai si valide.
+     */
+    private boolean validateNode(int node, boolean isRoot, int levelsBelow) {
+        int keySize = numberOfKeys(node);
+        for (int i = 1; i < keySize; i++) {
+            if (getKey(node, i - 1).compareTo(getKey(node, i)) > 0)
+                return false;
+        }
+        int childrenSize = numberOfChildren(node);
+        if (keySize > maxKeySize || (!isRoot && keySize < minKeySize))
+            return false;
+        if (childrenSize == 0)
+            return (levelsBelow == 0);
+        if (keySize != (childrenSize - 1) || levelsBelow == 0)
+            return false;
+        if ((!isRoot && childrenSize < minChildrenSize) || childrenSize > maxChildrenSize)
+            return false;
+
+        // Chaque enfant doit être encadré par les clés qui l'entourent
+        for (int i = 0; i < childrenSize; i++) {
+            int c = getChild(node, i);
+            if (i > 0 && getKey(node, i - 1).compareTo(getKey(c, 0)) > 0)
+                return false;
+            if (i < keySize && getKey(node, i).compareTo(getKey(c, numberOfKeys(c) - 1)) < 0)
+                return false;
+            if (!this.validateNode(c, false, levelsBelow - 1))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public java.util.Collection<T> toCollection() {
+        return (new JavaCompatibleMappedBTree<T>(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        if (root == NIL) return "Tree has no nodes.";
+        return getString(root, "", true);
+    }
+
+    private String getString(int node, String prefix, boolean isTail) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(prefix).append((isTail ? "└── " : "├── "));
+        for (int i = 0; i < numberOfKeys(node); i++) {
+            builder.append(getKey(node, i));
+            if (i < numberOfKeys(node) - 1)
+                builder.append(", ");
+        }
+        builder.append("\n");
+
+        int childrenSize = numberOfChildren(node);
+        for (int i = 0; i < childrenSize; i++) {
+            builder.append(getString(getChild(node, i), prefix + (isTail ? "    " : "│   "), i == childrenSize - 1));
+        }
+
+        return builder.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static class JavaCompatibleMappedBTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
+
+        private MappedBTree<T> tree = null;
+
+        public JavaCompatibleMappedBTree(MappedBTree<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(T value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(Object value) {
+            return (tree.remove((T)value)!=null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(Object value) {
+            return tree.contains((T)value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         * L'itérateur parcourt les valeurs dans l'ordre et ne permet pas de retrait.
+         */
+        @Override
+        public java.util.Iterator<T> iterator() {
+            return (new MappedBTreeIterator<T>(this.tree));
+        }
+
+        private static class MappedBTreeIterator<C extends Comparable<C>> implements java.util.Iterator<C> {
+
+            private MappedBTree<C> tree = null;
+            // pile des pages ouvertes et de la prochaine position dans chacune
+            private int[] pages = new int[16];
+            private int[] positions = new int[16];
+            private int top = -1;
+
+            protected MappedBTreeIterator(MappedBTree<C> tree) {
+                this.tree = tree;
+                if (tree.root != NIL)
+                    descend(tree.root);
+            }
+
+            private void descend(int page) {
+                while (page != NIL) {
+                    if (++top == pages.length) {
+                        pages = Arrays.copyOf(pages, top * 2);
+                        positions = Arrays.copyOf(positions, top * 2);
+                    }
+                    pages[top] = page;
+                    positions[top] = 0;
+                    page = tree.getChild(page, 0);
+                }
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                while (top >= 0 && positions[top] >= tree.numberOfKeys(pages[top]))
+                    top--;
+                return (top >= 0);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public C next() {
+                if (!hasNext())
+                    throw new java.util.NoSuchElementException();
+                int page = pages[top];
+                int position = positions[top]++;
+                C value = tree.getKey(page, position);
+                descend(tree.getChild(page, position + 1));
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,821 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import interfaces.ITree;
+
+/**
+ * B-arbre dont les nœuds vivent hors du tas Java, dans des pages de taille fixe
+ * réservées dans des {@link ByteBuffer} directs. Les clés ont une largeur fixe
+ * et sont encodées par un {@link KeyCodec} ({@link #INTEGER} ou {@link #LONG}).
+ * <p>
+ * La taille d'une page découle de l'ordre, comme pour {@link BTree} :
+ * <pre>
+ * [nombre de clés : int][nombre d'enfants : int][page parente : int]
+ * [clés : (2 * ordre + 1) * largeur][enfants : (2 * ordre + 2) * int]
+ * </pre>
+ * Les pages sont regroupées par blocs, ce qui permet de dépasser les 2 Go d'un
+ * seul tampon. Les pages libérées par les fusions sont réutilisées.
+ * L'ajout, la séparation (split) et la combinaison (combined) suivent
+ * exactement ceux de {@link BTree}.
+ * <p>
+ * @see BTree
+ */
+public class OffHeapBTree<T extends Comparable<T>> implements ITree<T> {
+
+    /**
+     * Encodage d'une clé de largeur fixe dans une page.
+     */
+    public static interface KeyCodec<T> {
+
+        /**
+         * @return nombre d'octets occupés par une clé.
+         */
+        public int width();
+
+        public void write(ByteBuffer buffer, int offset, T value);
+
+        public T read(ByteBuffer buffer, int offset);
+
+        /**
+         * Compare la clé encodée à la valeur, sans la décoder.
+         *
+         * @return un entier négatif, nul ou positif comme compareTo.
+         */
+        public int compare(ByteBuffer buffer, int offset, T value);
+    }
+
+    public static final KeyCodec<Integer> INTEGER = new KeyCodec<Integer>() {
+        @Override
+        public int width() {
+            return 4;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Integer value) {
+            buffer.putInt(offset, value.intValue());
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset);
+        }
+
+        @Override
+        public int compare(ByteBuffer buffer, int offset, Integer value) {
+            return Integer.compare(buffer.getInt(offset), value.intValue());
+        }
+    };
+
+    public static final KeyCodec<Long> LONG = new KeyCodec<Long>() {
+        @Override
+        public int width() {
+            return 8;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Long value) {
+            buffer.putLong(offset, value.longValue());
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+
+        @Override
+        public int compare(ByteBuffer buffer, int offset, Long value) {
+            return Long.compare(buffer.getLong(offset), value.longValue());
+        }
+    };
+
+    private static final int NIL = -1;
+
+    // en-tête de page
+    private static final int KEYS_SIZE = 0;
+    private static final int CHILDREN_SIZE = 4;
+    private static final int PARENT = 8;
+    private static final int HEADER = 12;
+
+    // taille visée pour un bloc de pages
+    private static final int CHUNK_BYTES = 1 << 22;
+
+    private final KeyCodec<T> codec;
+    private final int keyWidth;
+
+    private int minKeySize = 1;
+    private int minChildrenSize = minKeySize + 1;
+    private int maxKeySize = 2 * minKeySize;
+    private int maxChildrenSize = maxKeySize + 1;
+
+    private final int childrenOffset;
+    private final int pageSize;
+    private final int pagesPerChunkShift;
+    private final int pagesPerChunkMask;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int pageCount = 0;
+    // liste des pages libres, chaînée par le champ parent
+    private int free = NIL;
+    // tampon des copies entre pages
+    private final byte[] scratch;
+
+    private int root = NIL;
+    private int size = 0;
+
+    /**
+     * Constructeur pour B-arbre qui par défaut est un B-arbre 2-3.
+     *
+     * @param codec encodage des clés.
+     */
+    public OffHeapBTree(KeyCodec<T> codec) {
+        this(codec, 1);
+    }
+
+    /**
+     * Constructeur pour l'arbre B du paramètre ordonné.
+     * L'ordre signifie ici le nombre minimum de clés dans un nœud non racine
+     * et fixe la taille des pages.
+     *
+     * @param codec encodage des clés.
+     * @param order
+     */
+    public OffHeapBTree(KeyCodec<T> codec, int order) {
+        this.codec = codec;
+        this.keyWidth = codec.width();
+        this.minKeySize = order;
+        this.minChildrenSize = minKeySize + 1;
+        this.maxKeySize = 2 * minKeySize;
+        this.maxChildrenSize = maxKeySize + 1;
+
+        // une place de plus pour la clé et l'enfant en trop avant séparation
+        this.childrenOffset = HEADER + (maxKeySize + 1) * keyWidth;
+        this.pageSize = childrenOffset + (maxChildrenSize + 1) * 4;
+        this.scratch = new byte[pageSize];
+
+        int pagesPerChunk = Integer.highestOneBit(Math.max(1, CHUNK_BYTES / pageSize));
+        this.pagesPerChunkShift = Integer.numberOfTrailingZeros(pagesPerChunk);
+        this.pagesPerChunkMask = pagesPerChunk - 1;
+    }
+
+    /* ---------------------------------------------------------------- pages */
+
+    private ByteBuffer chunk(int page) {
+        return chunks[page >>> pagesPerChunkShift];
+    }
+
+    private int base(int page) {
+        return (page & pagesPerChunkMask) * pageSize;
+    }
+
+    private int newPage(int parent) {
+        int page;
+        if (free != NIL) {
+            page = free;
+            free = getParent(page);
+        } else {
+            page = pageCount++;
+            int chunkIndex = page >>> pagesPerChunkShift;
+            if (chunkIndex == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkIndex + 1);
+                chunks[chunkIndex] = ByteBuffer.allocateDirect((pagesPerChunkMask + 1) * pageSize)
+                                               .order(ByteOrder.nativeOrder());
+            }
+        }
+        ByteBuffer buffer = chunk(page);
+        int base = base(page);
+        buffer.putInt(base + KEYS_SIZE, 0);
+        buffer.putInt(base + CHILDREN_SIZE, 0);
+        buffer.putInt(base + PARENT, parent);
+        return page;
+    }
+
+    private void freePage(int page) {
+        setParent(page, free);
+        free = page;
+    }
+
+    private void copy(int srcPage, int srcOffset, int dstPage, int dstOffset, int length) {
+        if (length <= 0)
+            return;
+        ByteBuffer src = chunk(srcPage);
+        src.position(base(srcPage) + srcOffset);
+        src.get(scratch, 0, length);
+        ByteBuffer dst = chunk(dstPage);
+        dst.position(base(dstPage) + dstOffset);
+        dst.put(scratch, 0, length);
+    }
+
+    private int numberOfKeys(int page) {
+        return chunk(page).getInt(base(page) + KEYS_SIZE);
+    }
+
+    private void setNumberOfKeys(int page, int keysSize) {
+        chunk(page).putInt(base(page) + KEYS_SIZE, keysSize);
+    }
+
+    private int numberOfChildren(int page) {
+        return chunk(page).getInt(base(page) + CHILDREN_SIZE);
+    }
+
+    private void setNumberOfChildren(int page, int childrenSize) {
+        chunk(page).putInt(base(page) + CHILDREN_SIZE, childrenSize);
+    }
+
+    private int getParent(int page) {
+        return chunk(page).getInt(base(page) + PARENT);
+    }
+
+    private void setParent(int page, int parent) {
+        chunk(page).putInt(base(page) + PARENT, parent);
+    }
+
+    private int keyOffset(int index) {
+        return HEADER + index * keyWidth;
+    }
+
+    private int childOffset(int index) {
+        return childrenOffset + index * 4;
+    }
+
+    private T getKey(int page, int index) {
+        return codec.read(chunk(page), base(page) + keyOffset(index));
+    }
+
+    /**
+     * Recherche dichotomique de la valeur parmi les clés de la page.
+     *
+     * @return indice de la clé égale à la valeur, sinon (-(indice de l'enfant à suivre) - 1).
+     */
+    private int search(int page, T value) {
+        ByteBuffer buffer = chunk(page);
+        int keys = base(page) + HEADER;
+        int low = 0;
+        int high = buffer.getInt(base(page) + KEYS_SIZE) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = codec.compare(buffer, keys + mid * keyWidth, value);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return indice de la première clé strictement supérieure à la valeur.
+     */
+    private int insertionIndex(int page, T value) {
+        ByteBuffer buffer = chunk(page);
+        int keys = base(page) + HEADER;
+        int low = 0;
+        int high = buffer.getInt(base(page) + KEYS_SIZE);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (codec.compare(buffer, keys + mid * keyWidth, value) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void addKey(int page, T value) {
+        insertKey(page, insertionIndex(page, value), value);
+    }
+
+    private void insertKey(int page, int index, T value) {
+        int keysSize = numberOfKeys(page);
+        // shift the greater keys up
+        copy(page, keyOffset(index), page, keyOffset(index + 1), (keysSize - index) * keyWidth);
+        codec.write(chunk(page), base(page) + keyOffset(index), value);
+        setNumberOfKeys(page, keysSize + 1);
+    }
+
+    private void insertKeys(int page, int index, int srcPage, int srcPos, int length) {
+        int keysSize = numberOfKeys(page);
+        copy(page, keyOffset(index), page, keyOffset(index + length), (keysSize - index) * keyWidth);
+        copy(srcPage, keyOffset(srcPos), page, keyOffset(index), length * keyWidth);
+        setNumberOfKeys(page, keysSize + length);
+    }
+
+    private T removeKey(int page, int index) {
+        int keysSize = numberOfKeys(page);
+        T value = getKey(page, index);
+        // shift the rest of the keys down
+        copy(page, keyOffset(index + 1), page, keyOffset(index), (keysSize - index - 1) * keyWidth);
+        setNumberOfKeys(page, keysSize - 1);
+        return value;
+    }
+
+    private int getChild(int page, int index) {
+        if (index >= numberOfChildren(page))
+            return NIL;
+        return chunk(page).getInt(base(page) + childOffset(index));
+    }
+
+    private void putChild(int page, int index, int child) {
+        chunk(page).putInt(base(page) + childOffset(index), child);
+        setParent(child, page);
+    }
+
+    private int indexOf(int page, int child) {
+        ByteBuffer buffer = chunk(page);
+        int children = base(page) + childrenOffset;
+        int childrenSize = buffer.getInt(base(page) + CHILDREN_SIZE);
+        for (int i = 0; i < childrenSize; i++) {
+            if (buffer.getInt(children + i * 4) == child)
+                return i;
+        }
+        return -1;
+    }
+
+    private void addChild(int page, int index, int child) {
+        int childrenSize = numberOfChildren(page);
+        // shift the following children up
+        copy(page, childOffset(index), page, childOffset(index + 1), (childrenSize - index) * 4);
+        putChild(page, index, child);
+        setNumberOfChildren(page, childrenSize + 1);
+    }
+
+    private void insertChildren(int page, int index, int srcPage, int srcPos, int length) {
+        int childrenSize = numberOfChildren(page);
+        copy(page, childOffset(index), page, childOffset(index + length), (childrenSize - index) * 4);
+        for (int i = 0; i < length; i++) {
+            putChild(page, index + i, getChild(srcPage, srcPos + i));
+        }
+        setNumberOfChildren(page, childrenSize + length);
+    }
+
+    private int removeChild(int page, int index) {
+        int childrenSize = numberOfChildren(page);
+        int child = getChild(page, index);
+        // shift the rest of the children down
+        copy(page, childOffset(index + 1), page, childOffset(index), (childrenSize - index - 1) * 4);
+        setNumberOfChildren(page, childrenSize - 1);
+        return child;
+    }
+
+    /* ----------------------------------------------------------------- arbre */
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(T value) {
+        if (root == NIL) {
+            root = newPage(NIL);
+            addKey(root, value);
+        } else {
+            int node = root;
+            while (node != NIL) {
+                if (numberOfChildren(node) == 0) {
+                    addKey(node, value);
+                    if (numberOfKeys(node) > maxKeySize) {
+                        // séparation
+                        split(node);
+                    }
+                    break;
+                }
+                // navigation, une valeur égale à une clé descend à gauche de celle-ci
+                int index = search(node, value);
+                node = getChild(node, (index >= 0) ? index : -index - 1);
+            }
+        }
+
+        size++;
+
+        return true;
+    }
+
+    /**
+     * La taille de la clé du nœud est supérieure à maxKeySize, divisée par le milieu.
+     * La page séparée garde la moitié gauche, la moitié droite part dans une nouvelle page.
+     *
+     * @param node
+     */
+    private void split(int node) {
+        int numberOfKeys = numberOfKeys(node);
+        int numberOfChildren = numberOfChildren(node);
+        int medianIndex = numberOfKeys / 2;
+        T medianValue = getKey(node, medianIndex);
+
+        int right = newPage(NIL);
+        insertKeys(right, 0, node, medianIndex + 1, numberOfKeys - medianIndex - 1);
+        if (numberOfChildren > 0) {
+            insertChildren(right, 0, node, medianIndex + 1, numberOfChildren - medianIndex - 1);
+            setNumberOfChildren(node, medianIndex + 1);
+        }
+        setNumberOfKeys(node, medianIndex);
+
+        int parent = getParent(node);
+        if (parent == NIL) {
+            // nouvelle racine, la hauteur de l'arbre est augmentée
+            int newRoot = newPage(NIL);
+            addKey(newRoot, medianValue);
+            addChild(newRoot, 0, node);
+            addChild(newRoot, 1, right);
+            root = newRoot;
+        } else {
+            // Déplacer la valeur médiane vers le parent, juste après le nœud séparé
+            int index = indexOf(parent, node);
+            insertKey(parent, index, medianValue);
+            addChild(parent, index + 1, right);
+
+            if (numberOfKeys(parent) > maxKeySize) split(parent);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T remove(T value) {
+        int node = root;
+        while (node != NIL) {
+            int index = search(node, value);
+            if (index >= 0)
+                return remove(index, node);
+            node = getChild(node, -index - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Supprimez la clé d'indice donné de la page et vérifiez les invariants
+     *
+     * @param index de la clé à enlever
+     * @param node
+     * @return la valeur retirée de l'arbre.
+     */
+    private T remove(int index, int node) {
+        T removed = removeKey(node, index);
+        if (numberOfChildren(node) == 0) {
+            // nœud feuille
+            int parent = getParent(node);
+            if (parent != NIL && numberOfKeys(node) < minKeySize) {
+                this.combined(node);
+            } else if (parent == NIL && numberOfKeys(node) == 0) {
+                // Suppression du noeud racine sans clés ni enfants
+                freePage(node);
+                root = NIL;
+            }
+        } else {
+            // nœud interne
+            int greatest = getChild(node, index);
+            while (numberOfChildren(greatest) > 0) {
+                greatest = getChild(greatest, numberOfChildren(greatest) - 1);
+            }
+            T replaceValue = removeKey(greatest, numberOfKeys(greatest) - 1);
+            insertKey(node, index, replaceValue);
+            if (numberOfKeys(greatest) < minKeySize) {
+                this.combined(greatest);
+            }
+        }
+
+        size--;
+
+        return removed;
+    }
+
+    /**
+     * fonction de Combinaison de clés enfants avec parent
+     * lorsque la taille est inférieure à minKeySize.
+     *
+     * @param node
+     * @return True si combinaison réussi.
+     */
+    private boolean combined(int node) {
+        int parent = getParent(node);
+        int index = indexOf(parent, node);
+        int indexOfLeftNeighbor = index - 1;
+        int indexOfRightNeighbor = index + 1;
+
+        int rightNeighbor = NIL;
+        int rightNeighborSize = -minChildrenSize;
+        if (indexOfRightNeighbor < numberOfChildren(parent)) {
+            rightNeighbor = getChild(parent, indexOfRightNeighbor);
+            rightNeighborSize = numberOfKeys(rightNeighbor);
+        }
+
+        // Essayer d'emprunter le voisin
+        if (rightNeighbor != NIL && rightNeighborSize > minKeySize) {
+            // Essayer d'emprunter au bon voisin
+            T parentValue = removeKey(parent, index);
+            T neighborValue = removeKey(rightNeighbor, 0);
+            addKey(node, parentValue);
+            insertKey(parent, index, neighborValue);
+            if (numberOfChildren(rightNeighbor) > 0) {
+                addChild(node, numberOfChildren(node), removeChild(rightNeighbor, 0));
+            }
+            return true;
+        }
+
+        int leftNeighbor = NIL;
+        int leftNeighborSize = -minChildrenSize;
+        if (indexOfLeftNeighbor >= 0) {
+            leftNeighbor = getChild(parent, indexOfLeftNeighbor);
+            leftNeighborSize = numberOfKeys(leftNeighbor);
+        }
+
+        if (leftNeighbor != NIL && leftNeighborSize > minKeySize) {
+            // Essayer d'emprunter au voisin de gauche
+            T parentValue = removeKey(parent, indexOfLeftNeighbor);
+            T neighborValue = removeKey(leftNeighbor, numberOfKeys(leftNeighbor) - 1);
+            addKey(node, parentValue);
+            insertKey(parent, indexOfLeftNeighbor, neighborValue);
+            if (numberOfChildren(leftNeighbor) > 0) {
+                addChild(node, 0, removeChild(leftNeighbor, numberOfChildren(leftNeighbor) - 1));
+            }
+            return true;
+        }
+
+        if (rightNeighbor != NIL && numberOfKeys(parent) > 0) {
+            // On ne peut pas emprunter aux voisins, essayez de combiner avec le bon voisin
+            T parentValue = removeKey(parent, index);
+            removeChild(parent, indexOfRightNeighbor);
+            addKey(node, parentValue);
+            insertKeys(node, numberOfKeys(node), rightNeighbor, 0, numberOfKeys(rightNeighbor));
+            insertChildren(node, numberOfChildren(node), rightNeighbor, 0, numberOfChildren(rightNeighbor));
+            freePage(rightNeighbor);
+        } else if (leftNeighbor != NIL && numberOfKeys(parent) > 0) {
+            // On ne peut pas emprunter aux voisins, essayez de combiner avec le voisin de gauche
+            T parentValue = removeKey(parent, indexOfLeftNeighbor);
+            removeChild(parent, indexOfLeftNeighbor);
+            addKey(node, parentValue);
+            insertKeys(node, 0, leftNeighbor, 0, numberOfKeys(leftNeighbor));
+            insertChildren(node, 0, leftNeighbor, 0, numberOfChildren(leftNeighbor));
+            freePage(leftNeighbor);
+        } else {
+            return true;
+        }
+
+        if (getParent(parent) != NIL && numberOfKeys(parent) < minKeySize) {
+            // suppression de la clé rendue parent trop petit, arbre combiné
+            this.combined(parent);
+        } else if (numberOfKeys(parent) == 0) {
+            // parent n'a plus de clés,
+            // faites de ce noeud la nouvelle racine qui diminue la hauteur de l'arbre
+            setParent(node, NIL);
+            freePage(parent);
+            root = node;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        // les tampons directs sont rendus au système par le ramasse-miettes
+        chunks = new ByteBuffer[0];
+        pageCount = 0;
+        free = NIL;
+        root = NIL;
+        size = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(T value) {
+        int node = root;
+        while (node != NIL) {
+            int index = search(node, value);
+            if (index >= 0)
+                return true;
+            node = getChild(node, -index - 1);
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return nombre d'octets réservés hors du tas pour les pages.
+     */
+    public long reservedBytes() {
+        return (long) chunks.length * (pagesPerChunkMask + 1) * pageSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean validate() {
+        if (root == NIL) return (size == 0);
+        return validateNode(root);
+    }
+
+    /**
+     * Validation de la page selon les invariants de l'arbre B.
+     *
+     * @param node
+     * @return Vrai si valide.
+     */
+    private boolean validateNode(int node) {
+        int keySize = numberOfKeys(node);
+        for (int i = 1; i < keySize; i++) {
+            if (getKey(node, i - 1).compareTo(getKey(node, i)) > 0)
+                return false;
+        }
+        int childrenSize = numberOfChildren(node);
+        if (getParent(node) == NIL) {
+            // racine
+            if (keySize > maxKeySize) {
+                return false;
+            } else if (childrenSize == 0) {
+                return true;
+            } else if (childrenSize < 2 || childrenSize > maxChildrenSize) {
+                return false;
+            }
+        } else {
+            // non racine
+            if (keySize < minKeySize || keySize > maxKeySize) {
+                return false;
+            } else if (childrenSize == 0) {
+                return true;
+            } else if (keySize != (childrenSize - 1)) {
+                return false;
+            } else if (childrenSize < minChildrenSize || childrenSize > maxChildrenSize) {
+                return false;
+            }
+        }
+
+        // Chaque enfant doit être encadré par les clés qui l'entourent
+        for (int i = 0; i < childrenSize; i++) {
+            int c = getChild(node, i);
+            if (getParent(c) != node)
+                return false;
+            if (i > 0 && getKey(node, i - 1).compareTo(getKey(c, 0)) > 0)
+                return false;
+            if (i < keySize && getKey(node, i).compareTo(getKey(c, numberOfKeys(c) - 1)) < 0)
+                return false;
+            if (!this.validateNode(c))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public java.util.Collection<T> toCollection() {
+        return (new JavaCompatibleOffHeapBTree<T>(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        if (root == NIL) return "Tree has no nodes.";
+        return getString(root, "", true);
+    }
+
+    private String getString(int node, String prefix, boolean isTail) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(prefix).append((isTail ? "└── " : "├── "));
+        for (int i = 0; i < numberOfKeys(node); i++) {
+            builder.append(getKey(node, i));
+            if (i < numberOfKeys(node) - 1)
+                builder.append(", ");
+        }
+        builder.append("\n");
+
+        int childrenSize = numberOfChildren(node);
+        for (int i = 0; i < childrenSize; i++) {
+            builder.append(getString(getChild(node, i), prefix + (isTail ? "    " : "│   "), i == childrenSize - 1));
+        }
+
+        return builder.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static class JavaCompatibleOffHeapBTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
+
+        private OffHeapBTree<T> tree = null;
+
+        public JavaCompatibleOffHeapBTree(OffHeapBTree<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(T value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(Object value) {
+            return (tree.remove((T)value)!=null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(Object value) {
+            return tree.contains((T)value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public java.util.Iterator<T> iterator() {
+            return (new OffHeapBTreeIterator<T>(this.tree));
+        }
+
+        private static class OffHeapBTreeIterator<C extends Comparable<C>> implements java.util.Iterator<C> {
+
+            private OffHeapBTree<C> tree = null;
+            private int lastNode = NIL;
+            private int index = 0;
+            private boolean removable = false;
+            private Deque<Integer> toVisit = new ArrayDeque<Integer>();
+
+            protected OffHeapBTreeIterator(OffHeapBTree<C> tree) {
+                this.tree = tree;
+                reset();
+            }
+
+            private void reset() {
+                lastNode = NIL;
+                index = 0;
+                toVisit.clear();
+                if (tree.root != NIL && tree.numberOfKeys(tree.root) > 0) {
+                    toVisit.add(tree.root);
+                }
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                return (lastNode != NIL && index < tree.numberOfKeys(lastNode)) || (toVisit.size() > 0);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public C next() {
+                if (lastNode == NIL || index >= tree.numberOfKeys(lastNode)) {
+                    if (toVisit.isEmpty())
+                        return null;
+                    int n = toVisit.pop();
+                    for (int i = 0; i < tree.numberOfChildren(n); i++) {
+                        toVisit.add(tree.getChild(n, i));
+                    }
+                    index = 0;
+                    lastNode = n;
+                }
+                removable = true;
+                return tree.getKey(lastNode, index++);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void remove() {
+                if (lastNode != NIL && removable) {
+                    // On remove, reset the iterator (very inefficient, I know)
+                    tree.remove(index - 1, lastNode);
+                    removable = false;
+                    reset();
+                }
+            }
+        }
+    }
+}
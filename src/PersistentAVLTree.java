@@ -0,0 +1,424 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import interfaces.ITree;
+
+/**
+ * Arbre AVL persistant : les nœuds ne sont jamais modifiés. Un ajout ou une
+ * suppression recopie seulement les nœuds du chemin de la racine à la valeur
+ * (path copying) et partage tout le reste avec la version précédente.
+ * <p>
+ * Une photographie de l'arbre s'obtient donc en O(1) avec snapshot() : c'est
+ * la racine courante. Elle reste valide et immuable pendant que l'arbre continue
+ * d'être modifié, et peut être parcourue par un autre thread via toCollection().
+ * Les écritures sur l'arbre lui-même doivent venir d'un seul thread à la fois.
+ * <p>
+ * Les valeurs égales partagent un nœud avec un compteur.
+ * <p>
+ * @see <a href="https://en.wikipedia.org/wiki/Persistent_data_structure#Trees">Persistent data structure (Wikipedia)</a>
+ * <br>
+ */
+public class PersistentAVLTree<T extends Comparable<T>> implements ITree<T> {
+
+    private volatile Node<T> root = null;
+    private final boolean readOnly;
+
+    /**
+     * Constructeur par défaut.
+     */
+    public PersistentAVLTree() {
+        this.readOnly = false;
+    }
+
+    private PersistentAVLTree(Node<T> root) {
+        this.root = root;
+        this.readOnly = true;
+    }
+
+    /**
+     * Photographie immuable de l'arbre, en O(1). Les modifications ultérieures
+     * de l'arbre n'y sont pas visibles ; add, remove et clear y sont interdits.
+     *
+     * @return l'arbre dans son état courant.
+     */
+    public PersistentAVLTree<T> snapshot() {
+        if (readOnly)
+            return this;
+        return new PersistentAVLTree<T>(root);
+    }
+
+    /**
+     * @return vrai pour une photographie obtenue par snapshot().
+     */
+    public boolean isSnapshot() {
+        return readOnly;
+    }
+
+    private void checkWritable() {
+        if (readOnly)
+            throw new UnsupportedOperationException("Snapshots are read-only.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(T value) {
+        checkWritable();
+        root = insert(root, value);
+        return true;
+    }
+
+    /**
+     * Ajoute la valeur sous le nœud en recopiant le chemin.
+     *
+     * @return la nouvelle racine du sous-arbre.
+     */
+    private Node<T> insert(Node<T> node, T value) {
+        if (node == null)
+            return new Node<T>(value, 1, null, null);
+        int cmp = value.compareTo(node.id);
+        if (cmp == 0)
+            return new Node<T>(node.id, node.count + 1, node.lesser, node.greater);
+        if (cmp < 0)
+            return balance(node.id, node.count, insert(node.lesser, value), node.greater);
+        return balance(node.id, node.count, node.lesser, insert(node.greater, value));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T remove(T value) {
+        checkWritable();
+        Node<T> node = getNode(root, value);
+        if (node == null)
+            return null;
+        root = delete(root, value);
+        return node.id;
+    }
+
+    /**
+     * Retire une occurrence de la valeur, présente sous le nœud, en recopiant le chemin.
+     *
+     * @return la nouvelle racine du sous-arbre.
+     */
+    private Node<T> delete(Node<T> node, T value) {
+        int cmp = value.compareTo(node.id);
+        if (cmp < 0)
+            return balance(node.id, node.count, delete(node.lesser, value), node.greater);
+        if (cmp > 0)
+            return balance(node.id, node.count, node.lesser, delete(node.greater, value));
+
+        if (node.count > 1)
+            return new Node<T>(node.id, node.count - 1, node.lesser, node.greater);
+        if (node.lesser == null)
+            return node.greater;
+        if (node.greater == null)
+            return node.lesser;
+        // Deux enfants, le plus petit nœud du sous-arbre droit prend la place du nœud
+        Node<T> least = node.greater;
+        while (least.lesser != null)
+            least = least.lesser;
+        return balance(least.id, least.count, node.lesser, deleteLeast(node.greater));
+    }
+
+    private Node<T> deleteLeast(Node<T> node) {
+        if (node.lesser == null)
+            return node.greater;
+        return balance(node.id, node.count, deleteLeast(node.lesser), node.greater);
+    }
+
+    /**
+     * Crée le nœud à partir de deux sous-arbres AVL dont les hauteurs diffèrent d'au
+     * plus deux, avec une rotation simple ou double si nécessaire.
+     *
+     * @return la racine équilibrée.
+     */
+    private static <T extends Comparable<T>> Node<T> balance(T id, int count, Node<T> lesser, Node<T> greater) {
+        int balanceFactor = height(lesser) - height(greater);
+        if (balanceFactor > 1) {
+            if (height(lesser.lesser) >= height(lesser.greater)) {
+                // Left-Left (Right rotation)
+                return new Node<T>(lesser.id, lesser.count, lesser.lesser,
+                                   new Node<T>(id, count, lesser.greater, greater));
+            }
+            // Left-Right (Left rotation, right rotation)
+            Node<T> middle = lesser.greater;
+            return new Node<T>(middle.id, middle.count,
+                               new Node<T>(lesser.id, lesser.count, lesser.lesser, middle.lesser),
+                               new Node<T>(id, count, middle.greater, greater));
+        } else if (balanceFactor < -1) {
+            if (height(greater.greater) >= height(greater.lesser)) {
+                // Right-Right (Left rotation)
+                return new Node<T>(greater.id, greater.count,
+                                   new Node<T>(id, count, lesser, greater.lesser), greater.greater);
+            }
+            // Right-Left (Right rotation, left rotation)
+            Node<T> middle = greater.lesser;
+            return new Node<T>(middle.id, middle.count,
+                               new Node<T>(id, count, lesser, middle.lesser),
+                               new Node<T>(greater.id, greater.count, middle.greater, greater.greater));
+        }
+        return new Node<T>(id, count, lesser, greater);
+    }
+
+    private static int height(Node<?> node) {
+        return (node == null) ? 0 : node.height;
+    }
+
+    private static int size(Node<?> node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        checkWritable();
+        root = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(T value) {
+        return (getNode(root, value) != null);
+    }
+
+    private Node<T> getNode(Node<T> node, T value) {
+        while (node != null) {
+            int cmp = value.compareTo(node.id);
+            if (cmp == 0)
+                return node;
+            node = (cmp < 0) ? node.lesser : node.greater;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean validate() {
+        return (validateNode(root, null, null) >= 0);
+    }
+
+    /**
+     * Validation du sous-arbre : ordre strict des clés, hauteurs, tailles et équilibre.
+     *
+     * @param node racine du sous-arbre.
+     * @param min clé strictement inférieure à tout le sous-arbre, ou null.
+     * @param max clé strictement supérieure à tout le sous-arbre, ou null.
+     * @return hauteur du sous-arbre, -1 s'il est invalide.
+     */
+    private int validateNode(Node<T> node, T min, T max) {
+        if (node == null)
+            return 0;
+        if (node.count < 1)
+            return -1;
+        if (min != null && node.id.compareTo(min) <= 0)
+            return -1;
+        if (max != null && node.id.compareTo(max) >= 0)
+            return -1;
+        int lesserHeight = validateNode(node.lesser, min, node.id);
+        int greaterHeight = validateNode(node.greater, node.id, max);
+        if (lesserHeight < 0 || greaterHeight < 0)
+            return -1;
+        if (Math.abs(lesserHeight - greaterHeight) > 1)
+            return -1;
+        if (node.size != size(node.lesser) + node.count + size(node.greater))
+            return -1;
+        int height = 1 + Math.max(lesserHeight, greaterHeight);
+        return (height == node.height) ? height : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Chaque itérateur parcourt la version de l'arbre qui existait à sa création.
+     */
+    @Override
+    public java.util.Collection<T> toCollection() {
+        return (new JavaCompatiblePersistentAVLTree<T>(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return TreePrinter.getString(root);
+    }
+
+    private static class Node<T extends Comparable<T>> {
+
+        private final T id;
+        // nombre de valeurs égales à id
+        private final int count;
+        private final Node<T> lesser;
+        private final Node<T> greater;
+        private final int height;
+        // nombre de valeurs du sous-arbre
+        private final int size;
+
+        private Node(T id, int count, Node<T> lesser, Node<T> greater) {
+            this.id = id;
+            this.count = count;
+            this.lesser = lesser;
+            this.greater = greater;
+            this.height = 1 + Math.max(PersistentAVLTree.height(lesser), PersistentAVLTree.height(greater));
+            this.size = PersistentAVLTree.size(lesser) + count + PersistentAVLTree.size(greater);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "id=" + id + " count=" + count + " height=" + height + " size=" + size;
+        }
+    }
+
+    private static class TreePrinter {
+
+        public static <T extends Comparable<T>> String getString(Node<T> root) {
+            if (root == null) return "Tree has no nodes.";
+            return getString(root, "", true);
+        }
+
+        private static <T extends Comparable<T>> String getString(Node<T> node, String prefix, boolean isTail) {
+            StringBuilder builder = new StringBuilder();
+
+            builder.append(prefix).append((isTail ? "└── " : "├── "));
+            builder.append("(").append(node.height).append(") ").append(node.id);
+            if (node.count != 1)
+                builder.append(" x").append(node.count);
+            builder.append("\n");
+
+            if (node.greater != null)
+                builder.append(getString(node.greater, prefix + (isTail ? "    " : "│   "), node.lesser == null));
+            if (node.lesser != null)
+                builder.append(getString(node.lesser, prefix + (isTail ? "    " : "│   "), true));
+
+            return builder.toString();
+        }
+    }
+
+    public static class JavaCompatiblePersistentAVLTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
+
+        private PersistentAVLTree<T> tree = null;
+
+        public JavaCompatiblePersistentAVLTree(PersistentAVLTree<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(T value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean remove(Object value) {
+            return (tree.remove((T)value)!=null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean contains(Object value) {
+            return tree.contains((T)value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public java.util.Iterator<T> iterator() {
+            return (new PersistentAVLTreeIterator<T>(this.tree));
+        }
+
+        private static class PersistentAVLTreeIterator<C extends Comparable<C>> implements java.util.Iterator<C> {
+
+            private PersistentAVLTree<C> tree = null;
+            // chemin vers le prochain nœud, parcours infixe de la version de départ
+            private Deque<PersistentAVLTree.Node<C>> toVisit = new ArrayDeque<PersistentAVLTree.Node<C>>();
+            private PersistentAVLTree.Node<C> node = null;
+            private int remaining = 0;
+            private C lastValue = null;
+
+            protected PersistentAVLTreeIterator(PersistentAVLTree<C> tree) {
+                this.tree = tree;
+                pushLesser(tree.root);
+            }
+
+            private void pushLesser(PersistentAVLTree.Node<C> start) {
+                for (PersistentAVLTree.Node<C> n = start; n != null; n = n.lesser)
+                    toVisit.push(n);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                return remaining > 0 || toVisit.size() > 0;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public C next() {
+                if (remaining == 0) {
+                    if (toVisit.size() == 0)
+                        throw new java.util.NoSuchElementException();
+                    node = toVisit.pop();
+                    remaining = node.count;
+                    pushLesser(node.greater);
+                }
+                remaining--;
+                lastValue = node.id;
+                return lastValue;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void remove() {
+                if (lastValue == null)
+                    throw new IllegalStateException();
+                tree.remove(lastValue);
+                lastValue = null;
+            }
+        }
+    }
+}
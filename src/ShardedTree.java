@@ -0,0 +1,408 @@
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import interfaces.ITree;
+
+/**
+ * Façade qui répartit les valeurs sur plusieurs arbres indépendants (shards),
+ * chacun protégé par son propre verrou, pour que des écritures venant de
+ * plusieurs threads ne se bloquent que si elles tombent sur le même shard.
+ * <p>
+ * La répartition se fait soit par hachage de la valeur, soit par intervalles
+ * de valeurs délimités par des bornes triées. toCollection() fusionne les shards
+ * pour rendre les valeurs dans l'ordre croissant dans les deux cas.
+ * <p>
+ * @see <a href="https://en.wikipedia.org/wiki/Shard_(database_architecture)">Shard (Wikipedia)</a>
+ * <br>
+ */
+@SuppressWarnings("unchecked")
+public class ShardedTree<T extends Comparable<T>> implements ITree<T> {
+
+    private final ITree<T>[] shards;
+    private final ReentrantReadWriteLock[] locks;
+    // bornes des intervalles, null pour la répartition par hachage
+    private final T[] bounds;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Arbre réparti par hachage sur le nombre de shards donné.
+     *
+     * @param numberOfShards nombre d'arbres.
+     * @param creator crée chaque arbre.
+     */
+    public ShardedTree(int numberOfShards, ITreeCreator<T> creator) {
+        this(numberOfShards, null, creator);
+    }
+
+    /**
+     * Arbre réparti par intervalles : le shard i reçoit les valeurs v telles que
+     * bounds[i - 1] < v <= bounds[i], le dernier shard reçoit les valeurs supérieures
+     * à la dernière borne.
+     *
+     * @param bounds bornes triées, une de moins que de shards.
+     * @param creator crée chaque arbre.
+     */
+    public ShardedTree(T[] bounds, ITreeCreator<T> creator) {
+        this(bounds.length + 1, bounds.clone(), creator);
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i - 1].compareTo(bounds[i]) >= 0)
+                throw new IllegalArgumentException("Bounds are not strictly increasing at index " + i);
+        }
+    }
+
+    private ShardedTree(int numberOfShards, T[] bounds, ITreeCreator<T> creator) {
+        if (numberOfShards < 1)
+            throw new IllegalArgumentException("At least one shard is required.");
+        this.bounds = bounds;
+        this.shards = new ITree[numberOfShards];
+        this.locks = new ReentrantReadWriteLock[numberOfShards];
+        for (int i = 0; i < numberOfShards; i++) {
+            shards[i] = creator.createNewTree();
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Arbre réparti par hachage sur des AVLTree.
+     */
+    public static <T extends Comparable<T>> ShardedTree<T> ofAVLTrees(int numberOfShards) {
+        return new ShardedTree<T>(numberOfShards, new ITreeCreator<T>() {
+            @Override
+            public ITree<T> createNewTree() {
+                return new AVLTree<T>();
+            }
+        });
+    }
+
+    /**
+     * Arbre réparti par hachage sur des BTree de l'ordre donné.
+     */
+    public static <T extends Comparable<T>> ShardedTree<T> ofBTrees(int numberOfShards, final int order) {
+        return new ShardedTree<T>(numberOfShards, new ITreeCreator<T>() {
+            @Override
+            public ITree<T> createNewTree() {
+                return new BTree<T>(order);
+            }
+        });
+    }
+
+    /**
+     * Indice du shard qui contient la valeur.
+     */
+    private int shardOf(T value) {
+        if (bounds == null) {
+            // mélange les bits de poids fort, comme HashMap
+            int h = value.hashCode();
+            h ^= (h >>> 16);
+            return (h & 0x7fffffff) % shards.length;
+        }
+        // premier intervalle dont la borne est supérieure ou égale à la valeur
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bounds[mid].compareTo(value) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @return nombre de shards.
+     */
+    public int numberOfShards() {
+        return shards.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(T value) {
+        int shard = shardOf(value);
+        ReentrantReadWriteLock.WriteLock lock = locks[shard].writeLock();
+        lock.lock();
+        try {
+            boolean added = shards[shard].add(value);
+            if (added)
+                size.increment();
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T remove(T value) {
+        int shard = shardOf(value);
+        ReentrantReadWriteLock.WriteLock lock = locks[shard].writeLock();
+        lock.lock();
+        try {
+            T removed = shards[shard].remove(value);
+            if (removed != null)
+                size.decrement();
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(T value) {
+        int shard = shardOf(value);
+        ReentrantReadWriteLock.ReadLock lock = locks[shard].readLock();
+        lock.lock();
+        try {
+            return shards[shard].contains(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        // les verrous sont toujours pris dans l'ordre des shards
+        for (ReentrantReadWriteLock lock : locks)
+            lock.writeLock().lock();
+        try {
+            for (ITree<T> shard : shards)
+                shard.clear();
+            size.reset();
+        } finally {
+            for (ReentrantReadWriteLock lock : locks)
+                lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return (int) size.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tous les shards sont verrouillés en lecture pendant la validation. Chaque shard
+     * doit être valide et ne contenir que des valeurs qui lui reviennent.
+     */
+    @Override
+    public boolean validate() {
+        for (ReentrantReadWriteLock lock : locks)
+            lock.readLock().lock();
+        try {
+            long total = 0;
+            for (int i = 0; i < shards.length; i++) {
+                if (!shards[i].validate())
+                    return false;
+                for (T value : shards[i].toCollection()) {
+                    if (shardOf(value) != i)
+                        return false;
+                }
+                total += shards[i].size();
+            }
+            return total == size.sum();
+        } finally {
+            for (ReentrantReadWriteLock lock : locks)
+                lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copie des valeurs de chaque shard, prise sous son verrou de lecture.
+     *
+     * @return une copie par shard, dans l'ordre d'itération du shard.
+     */
+    private Comparable<?>[][] snapshot() {
+        Comparable<?>[][] values = new Comparable[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            ReentrantReadWriteLock.ReadLock lock = locks[i].readLock();
+            lock.lock();
+            try {
+                values[i] = shards[i].toCollection().toArray(new Comparable[0]);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return values;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * L'itération fusionne une copie de chaque shard prise à la création de l'itérateur.
+     */
+    @Override
+    public java.util.Collection<T> toCollection() {
+        return (new JavaCompatibleShardedTree<T>(this));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < shards.length; i++) {
+            ReentrantReadWriteLock.ReadLock lock = locks[i].readLock();
+            lock.lock();
+            try {
+                builder.append("shard ").append(i).append(" :\n").append(shards[i].toString()).append("\n");
+            } finally {
+                lock.unlock();
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Création des arbres de chaque shard.
+     */
+    public static interface ITreeCreator<T extends Comparable<T>> {
+
+        /**
+         * Créez un nouvel arbre vide.
+         *
+         * @return ITree<T> nouvel arbre.
+         */
+        public ITree<T> createNewTree();
+    }
+
+    public static class JavaCompatibleShardedTree<T extends Comparable<T>> extends java.util.AbstractCollection<T> {
+
+        private ShardedTree<T> tree = null;
+
+        public JavaCompatibleShardedTree(ShardedTree<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean add(T value) {
+            return tree.add(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean remove(Object value) {
+            return (tree.remove((T)value)!=null);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean contains(Object value) {
+            return tree.contains((T)value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public java.util.Iterator<T> iterator() {
+            return (new ShardedTreeIterator<T>(this.tree));
+        }
+
+        /**
+         * Fusion à k voies : un tas contient la prochaine valeur de chaque shard.
+         */
+        private static class ShardedTreeIterator<C extends Comparable<C>> implements java.util.Iterator<C> {
+
+            private ShardedTree<C> tree = null;
+            private PriorityQueue<Cursor<C>> heads = new PriorityQueue<Cursor<C>>();
+            private C lastValue = null;
+
+            protected ShardedTreeIterator(ShardedTree<C> tree) {
+                this.tree = tree;
+                for (Comparable<?>[] values : tree.snapshot()) {
+                    if (values.length == 0)
+                        continue;
+                    C[] sorted = (C[]) values;
+                    // un ITree quelconque ne rend pas forcément ses valeurs dans l'ordre,
+                    // le tri d'une suite déjà triée est linéaire
+                    Arrays.sort(sorted);
+                    heads.add(new Cursor<C>(sorted));
+                }
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                return heads.size() > 0;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public C next() {
+                Cursor<C> cursor = heads.poll();
+                if (cursor == null)
+                    throw new java.util.NoSuchElementException();
+                lastValue = cursor.values[cursor.index++];
+                if (cursor.index < cursor.values.length)
+                    heads.add(cursor);
+                return lastValue;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void remove() {
+                if (lastValue == null)
+                    throw new IllegalStateException();
+                tree.remove(lastValue);
+                lastValue = null;
+            }
+        }
+
+        private static class Cursor<C extends Comparable<C>> implements Comparable<Cursor<C>> {
+
+            private final C[] values;
+            private int index = 0;
+
+            private Cursor(C[] values) {
+                this.values = values;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public int compareTo(Cursor<C> other) {
+                return values[index].compareTo(other.values[other.index]);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import interfaces.ITree;
+
+/**
+ * Suite d'opérations add / remove / contains sur des clés int, écrite et relue
+ * au fil de l'eau dans un format binaire compact, puis rejouée sur un ITree.
+ * <p>
+ * Format : les 4 octets "TRC1", puis une opération par enregistrement. Un enregistrement
+ * est un entier variable (7 bits par octet, bit de poids fort pour « suite ») qui contient
+ * l'écart avec la clé précédente, en zigzag pour que les petits écarts négatifs restent
+ * petits, décalé de 2 bits pour loger le code de l'opération. Une suite croissante tient
+ * donc sur un octet par opération, une clé aléatoire sur cinq au plus.
+ * <p>
+ * Le rejeu décode les opérations par blocs, clés déjà converties en Integer, et ne
+ * chronomètre que les appels à l'arbre : le décodage n'entre pas dans les mesures.
+ * <br>
+ */
+public class Trace {
+
+    public static final byte ADD = 0;
+    public static final byte REMOVE = 1;
+    public static final byte CONTAINS = 2;
+
+    private static final byte[] MAGIC = { 'T', 'R', 'C', '1' };
+    private static final int BUFFER = 1 << 16;
+    // nombre d'opérations décodées d'un coup par le rejeu
+    private static final int BLOCK = 4096;
+
+    private Trace() { }
+
+    /**
+     * Écrit une trace dans un flux. Le flux n'est pas bufferisé par l'écrivain
+     * au-delà de son propre tampon, inutile de l'envelopper.
+     */
+    public static class Writer implements Closeable {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER];
+        private int position = 0;
+        private int previous = 0;
+        private long count = 0;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(MAGIC);
+        }
+
+        /**
+         * Ajoute une opération à la trace.
+         *
+         * @param operation ADD, REMOVE ou CONTAINS.
+         * @param key clé de l'opération.
+         */
+        public void append(byte operation, int key) throws IOException {
+            if (operation < ADD || operation > CONTAINS)
+                throw new IllegalArgumentException("Unknown operation " + operation);
+            // un enregistrement fait au plus 5 octets
+            if (position + 5 > buffer.length)
+                flush();
+            int delta = key - previous;
+            long zigzag = ((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL;
+            long record = (zigzag << 2) | operation;
+            while ((record & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((record & 0x7F) | 0x80);
+                record >>>= 7;
+            }
+            buffer[position++] = (byte) record;
+            previous = key;
+            count++;
+        }
+
+        /**
+         * @return nombre d'opérations écrites.
+         */
+        public long size() {
+            return count;
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        /**
+         * Vide le tampon et ferme le flux.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Relit une trace depuis un flux, sans la charger en entier.
+     */
+    public static class Reader implements Closeable {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER];
+        private int position = 0;
+        private int limit = 0;
+        private int previous = 0;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = in;
+            for (byte expected : MAGIC) {
+                if (!fill() || buffer[position++] != expected)
+                    throw new IOException("Not a trace file, bad header.");
+            }
+        }
+
+        /**
+         * Garantit au moins un octet disponible dans le tampon.
+         *
+         * @return faux à la fin du flux.
+         */
+        private boolean fill() throws IOException {
+            if (position < limit)
+                return true;
+            int read;
+            do {
+                read = in.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0)
+                return false;
+            position = 0;
+            limit = read;
+            return true;
+        }
+
+        /**
+         * Décode les opérations suivantes.
+         *
+         * @param operations reçoit le code de chaque opération.
+         * @param keys reçoit la clé de chaque opération.
+         * @return nombre d'opérations décodées, 0 à la fin de la trace.
+         */
+        public int read(byte[] operations, Integer[] keys) throws IOException {
+            int count = 0;
+            while (count < operations.length && fill()) {
+                long record = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    if (!fill())
+                        throw new EOFException("Trace ends in the middle of a record.");
+                    b = buffer[position++];
+                    record |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                int zigzag = (int) (record >>> 2);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                operations[count] = (byte) (record & 3);
+                keys[count] = previous;
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Bilan d'un rejeu.
+     */
+    public static class Replay {
+
+        // nombre d'opérations rejouées, par code d'opération
+        public final long[] operations = new long[CONTAINS + 1];
+        // add qui ont ajouté, remove qui ont retiré, contains qui ont trouvé
+        public final long[] successes = new long[CONTAINS + 1];
+        // temps passé dans l'arbre, en nanosecondes
+        public long nanos = 0;
+
+        /**
+         * @return nombre total d'opérations rejouées.
+         */
+        public long size() {
+            return operations[ADD] + operations[REMOVE] + operations[CONTAINS];
+        }
+
+        @Override
+        public String toString() {
+            long size = size();
+            return size + " opérations (" + operations[ADD] + " add, " + operations[REMOVE] + " remove, "
+                    + operations[CONTAINS] + " contains), " + (size == 0 ? 0 : nanos / size) + " ns/op";
+        }
+    }
+
+    /**
+     * Rejoue une trace sur un arbre.
+     * <p>
+     * Sans analyseur, seul chaque bloc est chronométré et le surcoût de la mesure est
+     * négligeable. Avec un analyseur, chaque opération est chronométrée et son temps
+     * y est ajouté, au prix de deux appels à System.nanoTime() par opération.
+     *
+     * @param in trace à rejouer, lue jusqu'au bout.
+     * @param tree arbre sur lequel rejouer la trace.
+     * @param costs reçoit le temps de chaque opération, ou null.
+     * @return bilan du rejeu.
+     */
+    public static Replay replay(Reader in, ITree<Integer> tree, Analyzer costs) throws IOException {
+        Replay replay = new Replay();
+        byte[] operations = new byte[BLOCK];
+        Integer[] keys = new Integer[BLOCK];
+        long[] successes = replay.successes;
+        int count;
+        while ((count = in.read(operations, keys)) > 0) {
+            long before = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                long start = costs == null ? 0 : System.nanoTime();
+                switch (operations[i]) {
+                case ADD:
+                    if (tree.add(keys[i]))
+                        successes[ADD]++;
+                    break;
+                case REMOVE:
+                    if (tree.remove(keys[i]) != null)
+                        successes[REMOVE]++;
+                    break;
+                default:
+                    if (tree.contains(keys[i]))
+                        successes[CONTAINS]++;
+                    break;
+                }
+                if (costs != null)
+                    costs.append(System.nanoTime() - start);
+            }
+            long after = System.nanoTime();
+            replay.nanos += after - before;
+            for (int i = 0; i < count; i++)
+                replay.operations[operations[i]]++;
+        }
+        return replay;
+    }
+}
@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Génère des traces reproductibles : la même graine donne toujours la même suite
+ * d'opérations.
+ * <p>
+ * Un générateur combine une distribution des clés (uniforme, Zipf, croissante) et une
+ * façon de choisir les opérations (mélange en proportions fixes, ou fenêtre glissante
+ * qui retire les clés les plus anciennes).
+ * <p>
+ * @see <a href="https://en.wikipedia.org/wiki/Zipf%27s_law">Zipf's law (Wikipedia)</a>
+ * <br>
+ */
+public abstract class TraceGenerator {
+
+    protected final Random random;
+
+    // opération et clé produites par le dernier appel à next()
+    protected byte operation;
+    protected int key;
+
+    protected TraceGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Calcule l'opération suivante dans operation et key.
+     */
+    protected abstract void next();
+
+    /**
+     * Écrit les count opérations suivantes dans une trace.
+     */
+    public void write(Trace.Writer out, long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            next();
+            out.append(operation, key);
+        }
+    }
+
+    /**
+     * Add, remove et contains sur des clés uniformes dans [0, range).
+     *
+     * @param containsPercent part des contains, sur 100.
+     * @param addPercent part des add, sur 100 ; le reste est fait de remove.
+     */
+    public static TraceGenerator uniform(int range, int containsPercent, int addPercent, long seed) {
+        return new Mix(uniformKeys(range), containsPercent, addPercent, seed);
+    }
+
+    /**
+     * Add, remove et contains sur des clés de [0, range) tirées selon une loi de Zipf :
+     * quelques clés concentrent la plupart des opérations.
+     *
+     * @param theta exposant de la loi, dans ]0, 1[ ; 0.99 est la valeur habituelle.
+     */
+    public static TraceGenerator zipfian(int range, double theta, int containsPercent, int addPercent, long seed) {
+        return new Mix(zipfianKeys(range, theta), containsPercent, addPercent, seed);
+    }
+
+    /**
+     * Add de clés croissantes à partir de 0, le pire cas d'un arbre binaire non équilibré.
+     */
+    public static TraceGenerator sequential() {
+        return new Mix(sequentialKeys(), 0, 100, 0);
+    }
+
+    /**
+     * Fenêtre glissante : chaque opération retire la clé la plus ancienne avec la probabilité
+     * donnée, ou quand la fenêtre est pleine, et ajoute sinon une nouvelle clé.
+     *
+     * @param window nombre maximal de clés présentes, 0 pour ne pas limiter.
+     * @param removePercent probabilité de retirer, sur 100.
+     * @param sequential clés croissantes plutôt qu'aléatoires.
+     */
+    public static TraceGenerator slidingWindow(int window, int removePercent, boolean sequential, long seed) {
+        return new Window(sequential ? sequentialKeys() : uniformKeys(Integer.MAX_VALUE), window, removePercent, seed);
+    }
+
+    /**
+     * Lectures majoritaires sur des clés Zipf : 95% de contains, le reste partagé entre
+     * add et remove.
+     */
+    public static TraceGenerator readHeavy(int range, long seed) {
+        return new Mix(zipfianKeys(range, 0.99), 95, 50, seed);
+    }
+
+    /**
+     * Distribution des clés.
+     */
+    protected static interface Keys {
+
+        /**
+         * @return la clé suivante.
+         */
+        public int next(Random random);
+    }
+
+    protected static Keys uniformKeys(final int range) {
+        if (range < 1)
+            throw new IllegalArgumentException("Range must be positive.");
+        return new Keys() {
+            @Override
+            public int next(Random random) {
+                return random.nextInt(range);
+            }
+        };
+    }
+
+    protected static Keys sequentialKeys() {
+        return new Keys() {
+            private int next = 0;
+
+            @Override
+            public int next(Random random) {
+                return next++;
+            }
+        };
+    }
+
+    /**
+     * Loi de Zipf par la méthode de Gray et al. (« Quickly generating billion-record
+     * synthetic databases », SIGMOD 1994) : O(range) au départ pour la constante zeta,
+     * O(1) par tirage. Le rang tiré est mélangé pour que les clés fréquentes ne soient
+     * pas toutes voisines.
+     */
+    protected static Keys zipfianKeys(final int range, final double theta) {
+        if (range < 1)
+            throw new IllegalArgumentException("Range must be positive.");
+        if (theta <= 0 || theta >= 1)
+            throw new IllegalArgumentException("Theta must be in ]0, 1[.");
+        double zeta = 0;
+        for (int i = 1; i <= range; i++)
+            zeta += 1 / Math.pow(i, theta);
+        final double zetan = zeta;
+        final double zeta2 = 1 + 1 / Math.pow(2, theta);
+        final double alpha = 1 / (1 - theta);
+        final double eta = (1 - Math.pow(2. / range, 1 - theta)) / (1 - zeta2 / zetan);
+        final double half = 1 + Math.pow(0.5, theta);
+        return new Keys() {
+            @Override
+            public int next(Random random) {
+                double u = random.nextDouble();
+                double uz = u * zetan;
+                long rank;
+                if (uz < 1)
+                    rank = 0;
+                else if (uz < half)
+                    rank = 1;
+                else
+                    rank = Math.min(range - 1, (long) (range * Math.pow(eta * u - eta + 1, alpha)));
+                int h = (int) rank * 0x9E3779B1;
+                h ^= h >>> 16;
+                return (h & 0x7fffffff) % range;
+            }
+        };
+    }
+
+    /**
+     * Opérations tirées en proportions fixes.
+     */
+    private static class Mix extends TraceGenerator {
+
+        private final Keys keys;
+        private final int containsPercent;
+        private final int addPercent;
+
+        private Mix(Keys keys, int containsPercent, int addPercent, long seed) {
+            super(seed);
+            if (containsPercent < 0 || containsPercent > 100 || addPercent < 0 || addPercent > 100)
+                throw new IllegalArgumentException("Percentages must be in [0, 100].");
+            this.keys = keys;
+            this.containsPercent = containsPercent;
+            this.addPercent = addPercent;
+        }
+
+        @Override
+        protected void next() {
+            if (containsPercent > 0 && random.nextInt(100) < containsPercent)
+                operation = Trace.CONTAINS;
+            else if (addPercent == 100 || (addPercent > 0 && random.nextInt(100) < addPercent))
+                operation = Trace.ADD;
+            else
+                operation = Trace.REMOVE;
+            key = keys.next(random);
+        }
+    }
+
+    /**
+     * Fenêtre glissante : les clés présentes sont gardées dans l'ordre d'ajout, dans
+     * un tampon circulaire, pour retirer la plus ancienne en O(1).
+     */
+    private static class Window extends TraceGenerator {
+
+        private final Keys keys;
+        private final int window;
+        private final int removePercent;
+        private int[] present = new int[16];
+        private int head = 0;
+        private int size = 0;
+
+        private Window(Keys keys, int window, int removePercent, long seed) {
+            super(seed);
+            if (window < 0)
+                throw new IllegalArgumentException("Window must be positive, or 0 for no limit.");
+            if (removePercent < 0 || removePercent > 100)
+                throw new IllegalArgumentException("Percentages must be in [0, 100].");
+            this.keys = keys;
+            this.window = window;
+            this.removePercent = removePercent;
+        }
+
+        @Override
+        protected void next() {
+            boolean full = window > 0 && size == window;
+            if (size > 0 && (full || random.nextInt(100) < removePercent)) {
+                operation = Trace.REMOVE;
+                key = present[head];
+                head = (head + 1) & (present.length - 1);
+                size--;
+                return;
+            }
+            operation = Trace.ADD;
+            key = keys.next(random);
+            if (size == present.length) {
+                // double le tampon en remettant la plus ancienne clé en tête
+                int[] larger = new int[2 * present.length];
+                for (int i = 0; i < size; i++)
+                    larger[i] = present[(head + i) & (present.length - 1)];
+                present = larger;
+                head = 0;
+            }
+            present[(head + size) & (present.length - 1)] = key;
+            size++;
+        }
+    }
+}
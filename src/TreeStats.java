@@ -0,0 +1,147 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instantané des compteurs d'un arbre : comparaisons de valeurs, nœuds visités,
+ * rotations, séparations, fusions et emprunts de nœuds, profondeur maximale atteinte.
+ * <p>
+ * Les compteurs ne sont tenus qu'après enableStats() sur l'arbre. Chaque opération
+ * compte dans des variables locales et ne les ajoute qu'une fois, à la fin, à des
+ * LongAdder : un arbre sans compteurs ne paie qu'un test à null par opération, et
+ * un autre thread peut prendre un instantané pendant que l'arbre travaille.
+ * <p>
+ * Seuls les chemins de add, contains et remove sont comptés, pas les parcours,
+ * les intervalles ni les opérations par lots.
+ * <br>
+ */
+public class TreeStats {
+
+    private final long comparisons;
+    private final long nodesVisited;
+    private final long rotations;
+    private final long splits;
+    private final long merges;
+    private final long borrows;
+    private final long maxDepth;
+
+    private TreeStats(Recorder recorder) {
+        this.comparisons = recorder.comparisons.sum();
+        this.nodesVisited = recorder.nodesVisited.sum();
+        this.rotations = recorder.rotations.sum();
+        this.splits = recorder.splits.sum();
+        this.merges = recorder.merges.sum();
+        this.borrows = recorder.borrows.sum();
+        this.maxDepth = recorder.maxDepth.get();
+    }
+
+    /**
+     * @return nombre d'appels à compareTo.
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * @return nombre de nœuds traversés.
+     */
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * @return nombre de rotations simples, une rotation double en compte deux.
+     */
+    public long getRotations() {
+        return rotations;
+    }
+
+    /**
+     * @return nombre de nœuds séparés parce qu'ils avaient trop de clés.
+     */
+    public long getSplits() {
+        return splits;
+    }
+
+    /**
+     * @return nombre de nœuds fusionnés avec un voisin parce qu'ils n'avaient plus assez de clés.
+     */
+    public long getMerges() {
+        return merges;
+    }
+
+    /**
+     * @return nombre de clés empruntées à un voisin, à la place d'une fusion.
+     */
+    public long getBorrows() {
+        return borrows;
+    }
+
+    /**
+     * @return plus grande profondeur atteinte, en nœuds depuis la racine (la racine est à 1).
+     */
+    public long getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "comparaisons " + comparisons + ", nœuds visités " + nodesVisited + ", rotations " + rotations
+                + ", séparations " + splits + ", fusions " + merges + ", emprunts " + borrows
+                + ", profondeur max " + maxDepth;
+    }
+
+    /**
+     * Compteurs vivants d'un arbre, dont TreeStats est l'instantané.
+     */
+    static class Recorder {
+
+        private final LongAdder comparisons = new LongAdder();
+        private final LongAdder nodesVisited = new LongAdder();
+        private final LongAdder rotations = new LongAdder();
+        private final LongAdder splits = new LongAdder();
+        private final LongAdder merges = new LongAdder();
+        private final LongAdder borrows = new LongAdder();
+        private final LongAccumulator maxDepth = new LongAccumulator(new java.util.function.LongBinaryOperator() {
+            @Override
+            public long applyAsLong(long left, long right) {
+                return Math.max(left, right);
+            }
+        }, 0);
+
+        /**
+         * Compte le chemin d'une opération.
+         *
+         * @param comparisons appels à compareTo.
+         * @param nodes nœuds traversés.
+         * @param depth profondeur du nœud le plus bas atteint.
+         */
+        void path(int comparisons, int nodes, int depth) {
+            this.comparisons.add(comparisons);
+            this.nodesVisited.add(nodes);
+            this.maxDepth.accumulate(depth);
+        }
+
+        void rotation() {
+            rotations.increment();
+        }
+
+        void split() {
+            splits.increment();
+        }
+
+        void merge() {
+            merges.increment();
+        }
+
+        void borrow() {
+            borrows.increment();
+        }
+
+        TreeStats snapshot() {
+            return new TreeStats(this);
+        }
+    }
+}
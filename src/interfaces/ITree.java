@@ -28,6 +28,66 @@ public interface ITree<T> {
      */
     public T remove(T value);
 
+    /**
+     * Add every value of the array to the tree.
+     * 
+     * @param values to add to the tree.
+     * @return Number of values successfully added to the tree.
+     */
+    public default int addAll(T[] values) {
+        int added = 0;
+        for (T value : values) {
+            if (add(value))
+                added++;
+        }
+        return added;
+    }
+
+    /**
+     * Add every value of the collection to the tree.
+     * 
+     * @param values to add to the tree.
+     * @return Number of values successfully added to the tree.
+     */
+    public default int addAll(java.util.Collection<? extends T> values) {
+        int added = 0;
+        for (T value : values) {
+            if (add(value))
+                added++;
+        }
+        return added;
+    }
+
+    /**
+     * Remove first occurrence of each value of the array from the tree.
+     * 
+     * @param values to remove from the tree.
+     * @return Number of values removed from the tree.
+     */
+    public default int removeAll(T[] values) {
+        int removed = 0;
+        for (T value : values) {
+            if (remove(value) != null)
+                removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Remove first occurrence of each value of the collection from the tree.
+     * 
+     * @param values to remove from the tree.
+     * @return Number of values removed from the tree.
+     */
+    public default int removeAll(java.util.Collection<? extends T> values) {
+        int removed = 0;
+        for (T value : values) {
+            if (remove(value) != null)
+                removed++;
+        }
+        return removed;
+    }
+
     /**
      * Clear the entire stack.
      */
@@ -55,6 +115,17 @@ public interface ITree<T> {
      */
     public boolean validate();
 
+    /**
+     * Apply the action to every value of the tree, in the order of toCollection().
+     * Implementations may walk their nodes directly instead of creating an iterator.
+     * 
+     * @param action to apply to each value.
+     */
+    public default void forEach(java.util.function.Consumer<? super T> action) {
+        for (T value : toCollection())
+            action.accept(value);
+    }
+
     /**
      * Get Tree as a Java compatible Collection
      * 